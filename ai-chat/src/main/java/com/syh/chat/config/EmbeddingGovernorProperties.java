@@ -0,0 +1,188 @@
+package com.syh.chat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "app.embedding.governor")
+public class EmbeddingGovernorProperties {
+
+    private boolean enabled = true;
+    private String key = "embedding:governor:siliconflow";
+    private double initialRate = 50;
+    private double minRate = 5;
+    private double maxRate = 100;
+    private double burstSeconds = 2;
+    private double rateIncreaseStep = 5;
+    private double decreaseFactor = 0.5;
+    private long decreaseCooldownMs = 2000;
+    private long throttlePenaltyMs = 1000;
+    private double bulkReserveTokens = 2;
+    private int initialConcurrency = 4;
+    private int minConcurrency = 1;
+    private int maxConcurrency = 16;
+    private int interactiveReservedSlots = 1;
+    private long latencyTargetMs = 5000;
+    private long bulkLatencyTargetMs = 0;
+    private int maxAttempts = 3;
+    private long interactiveMaxWaitMs = 3000;
+    private long bulkMaxWaitMs = 60000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public double getInitialRate() {
+        return initialRate;
+    }
+
+    public void setInitialRate(double initialRate) {
+        this.initialRate = initialRate;
+    }
+
+    public double getMinRate() {
+        return minRate;
+    }
+
+    public void setMinRate(double minRate) {
+        this.minRate = minRate;
+    }
+
+    public double getMaxRate() {
+        return maxRate;
+    }
+
+    public void setMaxRate(double maxRate) {
+        this.maxRate = maxRate;
+    }
+
+    public double getBurstSeconds() {
+        return burstSeconds;
+    }
+
+    public void setBurstSeconds(double burstSeconds) {
+        this.burstSeconds = burstSeconds;
+    }
+
+    public double getRateIncreaseStep() {
+        return rateIncreaseStep;
+    }
+
+    public void setRateIncreaseStep(double rateIncreaseStep) {
+        this.rateIncreaseStep = rateIncreaseStep;
+    }
+
+    public double getDecreaseFactor() {
+        return decreaseFactor;
+    }
+
+    public void setDecreaseFactor(double decreaseFactor) {
+        this.decreaseFactor = decreaseFactor;
+    }
+
+    public long getDecreaseCooldownMs() {
+        return decreaseCooldownMs;
+    }
+
+    public void setDecreaseCooldownMs(long decreaseCooldownMs) {
+        this.decreaseCooldownMs = decreaseCooldownMs;
+    }
+
+    public long getThrottlePenaltyMs() {
+        return throttlePenaltyMs;
+    }
+
+    public void setThrottlePenaltyMs(long throttlePenaltyMs) {
+        this.throttlePenaltyMs = throttlePenaltyMs;
+    }
+
+    public double getBulkReserveTokens() {
+        return bulkReserveTokens;
+    }
+
+    public void setBulkReserveTokens(double bulkReserveTokens) {
+        this.bulkReserveTokens = bulkReserveTokens;
+    }
+
+    public int getInitialConcurrency() {
+        return initialConcurrency;
+    }
+
+    public void setInitialConcurrency(int initialConcurrency) {
+        this.initialConcurrency = initialConcurrency;
+    }
+
+    public int getMinConcurrency() {
+        return minConcurrency;
+    }
+
+    public void setMinConcurrency(int minConcurrency) {
+        this.minConcurrency = minConcurrency;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public int getInteractiveReservedSlots() {
+        return interactiveReservedSlots;
+    }
+
+    public void setInteractiveReservedSlots(int interactiveReservedSlots) {
+        this.interactiveReservedSlots = interactiveReservedSlots;
+    }
+
+    public long getLatencyTargetMs() {
+        return latencyTargetMs;
+    }
+
+    public void setLatencyTargetMs(long latencyTargetMs) {
+        this.latencyTargetMs = latencyTargetMs;
+    }
+
+    public long getBulkLatencyTargetMs() {
+        return bulkLatencyTargetMs;
+    }
+
+    public void setBulkLatencyTargetMs(long bulkLatencyTargetMs) {
+        this.bulkLatencyTargetMs = bulkLatencyTargetMs;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public long getInteractiveMaxWaitMs() {
+        return interactiveMaxWaitMs;
+    }
+
+    public void setInteractiveMaxWaitMs(long interactiveMaxWaitMs) {
+        this.interactiveMaxWaitMs = interactiveMaxWaitMs;
+    }
+
+    public long getBulkMaxWaitMs() {
+        return bulkMaxWaitMs;
+    }
+
+    public void setBulkMaxWaitMs(long bulkMaxWaitMs) {
+        this.bulkMaxWaitMs = bulkMaxWaitMs;
+    }
+}
@@ -0,0 +1,111 @@
+package com.syh.chat.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class IdBlockAllocator {
+
+    private static volatile IdBlockAllocator instance;
+
+    private final HikariDataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Block> blocks = new ConcurrentHashMap<>();
+
+    @Autowired
+    public IdBlockAllocator(
+            DataSourceProperties dataSourceProperties,
+            MeterRegistry meterRegistry,
+            @Value("${app.id-allocator.pool-size:2}") int poolSize
+    ) {
+        this(createDataSource(dataSourceProperties, poolSize), meterRegistry);
+        instance = this;
+    }
+
+    private IdBlockAllocator(HikariDataSource dataSource, MeterRegistry meterRegistry) {
+        this(dataSource, new JdbcTemplate(dataSource), new TransactionTemplate(new DataSourceTransactionManager(dataSource)), meterRegistry);
+    }
+
+    IdBlockAllocator(HikariDataSource dataSource, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, MeterRegistry meterRegistry) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = Objects.requireNonNull(jdbcTemplate);
+        this.transactionTemplate = Objects.requireNonNull(transactionTemplate);
+        this.meterRegistry = Objects.requireNonNull(meterRegistry);
+    }
+
+    public static IdBlockAllocator get() {
+        IdBlockAllocator current = instance;
+        if (current == null) {
+            throw new IllegalStateException("ID 分配器未初始化");
+        }
+        return current;
+    }
+
+    public long next(String name, int allocationSize) {
+        Block block = blocks.computeIfAbsent(name, k -> new Block());
+        synchronized (block) {
+            if (block.next > block.max) {
+                long hi = allocate(name, allocationSize);
+                block.next = hi - allocationSize + 1;
+                block.max = hi;
+            }
+            return block.next++;
+        }
+    }
+
+    long allocate(String name, int allocationSize) {
+        Long hi = transactionTemplate.execute(status -> {
+            Long current = jdbcTemplate.queryForObject(
+                    "SELECT gen_value FROM id_generator WHERE gen_name = ? FOR UPDATE", Long.class, name);
+            if (current == null) {
+                throw new IllegalStateException("ID 序列不存在: " + name);
+            }
+            long next = current + allocationSize;
+            jdbcTemplate.update("UPDATE id_generator SET gen_value = ? WHERE gen_name = ?", next, name);
+            return next;
+        });
+        if (hi == null) {
+            throw new IllegalStateException("ID 分配失败: " + name);
+        }
+        Counter.builder("id_block_allocations_total").tag("name", name).register(meterRegistry).increment();
+        return hi;
+    }
+
+    @PreDestroy
+    public void close() {
+        if (instance == this) {
+            instance = null;
+        }
+        if (dataSource != null) {
+            dataSource.close();
+        }
+    }
+
+    private static HikariDataSource createDataSource(DataSourceProperties properties, int poolSize) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("id-allocator");
+        dataSource.setMaximumPoolSize(Math.max(1, poolSize));
+        dataSource.setMinimumIdle(0);
+        return dataSource;
+    }
+
+    private static final class Block {
+        private long next = 1;
+        private long max = 0;
+    }
+}
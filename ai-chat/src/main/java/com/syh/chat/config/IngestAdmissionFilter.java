@@ -0,0 +1,63 @@
+package com.syh.chat.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.syh.chat.service.IngestAdmissionService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Objects;
+
+@Component
+public class IngestAdmissionFilter extends OncePerRequestFilter {
+
+    private final IngestAdmissionService admissionService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public IngestAdmissionFilter(IngestAdmissionService admissionService) {
+        this.admissionService = admissionService;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull FilterChain filterChain)
+            throws ServletException, IOException {
+        String path = Objects.requireNonNull(request.getRequestURI());
+        String method = Objects.requireNonNull(request.getMethod());
+
+        if (HttpMethod.POST.matches(method)
+                && ("/api/knowledge/documents/upload".equals(path) || "/api/knowledge/documents/upload-async".equals(path))) {
+            Object userId = request.getAttribute("userId");
+            IngestAdmissionService.Decision decision = admissionService.check(userId instanceof Long id ? id : null);
+            if (!decision.admitted()) {
+                writeRejected(response, decision);
+                return;
+            }
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    private void writeRejected(HttpServletResponse response, IngestAdmissionService.Decision decision) throws IOException {
+        boolean quota = decision.status() == 429;
+        response.setStatus(decision.status());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(decision.retryAfterSeconds()));
+        response.setHeader(HttpHeaders.CONNECTION, "close");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write(objectMapper.writeValueAsString(Map.of(
+                "code", quota ? "INGEST_QUOTA_EXCEEDED" : "INGEST_OVERLOADED",
+                "message", quota ? "进行中的入库任务过多，请稍后再试" : "入库队列繁忙，请稍后再试",
+                "reason", decision.reason(),
+                "retryAfterSeconds", decision.retryAfterSeconds()
+        )));
+    }
+}
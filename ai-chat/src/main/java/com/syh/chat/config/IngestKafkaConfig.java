@@ -0,0 +1,68 @@
+package com.syh.chat.config;
+
+import com.syh.chat.service.IngestLane;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.listener.ContainerProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+@Configuration
+@ConditionalOnProperty(name = "app.ingest.queue", havingValue = "kafka")
+public class IngestKafkaConfig {
+
+    @Bean
+    public KafkaAdmin.NewTopics ingestTaskTopics(
+            @Value("${app.ingest.kafka.topic:ingest-tasks}") String topic,
+            @Value("${app.ingest.kafka.partitions:4}") int partitions,
+            @Value("${app.ingest.kafka.replicas:1}") int replicas
+    ) {
+        List<NewTopic> topics = new ArrayList<>();
+        for (IngestLane lane : IngestLane.values()) {
+            topics.add(TopicBuilder.name(lane.topic(topic)).partitions(Math.max(1, partitions)).replicas(Math.max(1, replicas)).build());
+        }
+        return new KafkaAdmin.NewTopics(topics.toArray(new NewTopic[0]));
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> ingestKafkaListenerContainerFactory(
+            ConsumerFactory<String, String> consumerFactory,
+            @Value("${app.ingest.kafka.concurrency:1}") int concurrency,
+            @Value("${app.ingest.kafka.max-poll-records:10}") int maxPollRecords
+    ) {
+        return ingestListenerContainerFactory(consumerFactory, concurrency, maxPollRecords, false);
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> ingestKafkaBatchListenerContainerFactory(
+            ConsumerFactory<String, String> consumerFactory,
+            @Value("${app.ingest.kafka.concurrency:1}") int concurrency,
+            @Value("${app.ingest.kafka.max-poll-records:10}") int maxPollRecords
+    ) {
+        return ingestListenerContainerFactory(consumerFactory, concurrency, maxPollRecords, true);
+    }
+
+    public static ConcurrentKafkaListenerContainerFactory<String, String> ingestListenerContainerFactory(
+            ConsumerFactory<String, String> consumerFactory, int concurrency, int maxPollRecords, boolean batch) {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        factory.setConcurrency(Math.max(1, concurrency));
+        factory.setBatchListener(batch);
+        ContainerProperties containerProperties = factory.getContainerProperties();
+        containerProperties.setAckMode(ContainerProperties.AckMode.MANUAL);
+        Properties consumerProperties = new Properties();
+        consumerProperties.setProperty(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(Math.max(1, maxPollRecords)));
+        containerProperties.setKafkaConsumerProperties(consumerProperties);
+        return factory;
+    }
+}
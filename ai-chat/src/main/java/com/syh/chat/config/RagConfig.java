@@ -1,16 +1,29 @@
 package com.syh.chat.config;
 
+import com.syh.chat.rag.CachingEmbeddingModel;
+import com.syh.chat.rag.Chunker;
+import com.syh.chat.rag.EmbeddingCacheStore;
+import com.syh.chat.rag.EmbeddingRateGovernor;
+import com.syh.chat.rag.FixedWindowChunker;
+import com.syh.chat.rag.GovernedEmbeddingModel;
+import com.syh.chat.rag.SentenceChunker;
 import com.syh.chat.rag.SiliconFlowEmbeddingModel;
 import dev.langchain4j.model.embedding.EmbeddingModel;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import java.util.Locale;
 import java.util.Objects;
 
 @Configuration
+@EnableConfigurationProperties(EmbeddingGovernorProperties.class)
 public class RagConfig {
 
     @Bean
@@ -18,10 +31,40 @@ public class RagConfig {
     public EmbeddingModel embeddingModel(
             WebClient.Builder webClientBuilder,
             SiliconFlowProperties siliconFlowProperties,
-            @Value("${siliconflow.embedding-model:BAAI/bge-m3}") String siliconFlowEmbeddingModelName
+            JdbcTemplate jdbcTemplate,
+            StringRedisTemplate stringRedisTemplate,
+            EmbeddingGovernorProperties governorProperties,
+            MeterRegistry meterRegistry,
+            @Value("${siliconflow.embedding-model:BAAI/bge-m3}") String siliconFlowEmbeddingModelName,
+            @Value("${app.embedding.cache.enabled:true}") boolean cacheEnabled,
+            @Value("${app.embedding.cache.l1-max-entries:2048}") int l1MaxEntries,
+            @Value("${app.embedding.cache.l2-enabled:true}") boolean l2Enabled
     ) {
         WebClient webClient = webClientBuilder.baseUrl(Objects.requireNonNull(siliconFlowProperties.getBaseUrl())).build();
-        return new SiliconFlowEmbeddingModel(webClient, siliconFlowProperties, siliconFlowEmbeddingModelName);
+        EmbeddingModel model = new SiliconFlowEmbeddingModel(webClient, siliconFlowProperties, siliconFlowEmbeddingModelName);
+        if (governorProperties.isEnabled()) {
+            model = new GovernedEmbeddingModel(model, new EmbeddingRateGovernor(stringRedisTemplate, governorProperties, meterRegistry));
+        }
+        if (!cacheEnabled) {
+            return model;
+        }
+        EmbeddingCacheStore l2 = l2Enabled ? new EmbeddingCacheStore(jdbcTemplate) : null;
+        return new CachingEmbeddingModel(model, siliconFlowEmbeddingModelName, l2, l1MaxEntries, meterRegistry);
     }
-}
 
+    @Bean
+    public Chunker chunker(
+            @Value("${app.ingest.chunker.strategy:fixed}") String strategy,
+            @Value("${app.ingest.chunker.max-chars:900}") int maxChars,
+            @Value("${app.ingest.chunker.overlap-chars:120}") int overlapChars,
+            @Value("${app.ingest.chunker.max-tokens:512}") int maxTokens,
+            @Value("${app.ingest.chunker.overlap-tokens:64}") int overlapTokens
+    ) {
+        return switch (strategy == null ? "" : strategy.trim().toLowerCase(Locale.ROOT)) {
+            case "fixed" -> new FixedWindowChunker(maxChars, overlapChars);
+            case "sentence" -> new SentenceChunker(maxChars, overlapChars, SentenceChunker.Budget.CHARS);
+            case "token" -> new SentenceChunker(maxTokens, overlapTokens, SentenceChunker.Budget.TOKENS);
+            default -> throw new IllegalArgumentException("未知的分块策略: " + strategy);
+        };
+    }
+}
@@ -19,10 +19,12 @@ public class WebSecurityConfig {
     
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
     private final RateLimitFilter rateLimitFilter;
+    private final IngestAdmissionFilter ingestAdmissionFilter;
     
-    public WebSecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter, RateLimitFilter rateLimitFilter) {
+    public WebSecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter, RateLimitFilter rateLimitFilter, IngestAdmissionFilter ingestAdmissionFilter) {
         this.jwtAuthenticationFilter = jwtAuthenticationFilter;
         this.rateLimitFilter = rateLimitFilter;
+        this.ingestAdmissionFilter = ingestAdmissionFilter;
     }
     
     @Bean
@@ -44,7 +46,8 @@ public class WebSecurityConfig {
                 .anyRequest().denyAll()
             )
             .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
-            .addFilterAfter(rateLimitFilter, JwtAuthenticationFilter.class);
+            .addFilterAfter(rateLimitFilter, JwtAuthenticationFilter.class)
+            .addFilterAfter(ingestAdmissionFilter, RateLimitFilter.class);
         
         return http.build();
     }
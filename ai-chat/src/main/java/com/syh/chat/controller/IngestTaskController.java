@@ -2,6 +2,7 @@ package com.syh.chat.controller;
 
 import com.syh.chat.dto.IngestTaskResponse;
 import com.syh.chat.service.AsyncIngestTaskService;
+import com.syh.chat.service.IngestTaskEventHub;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -14,22 +15,16 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.util.Objects;
-import java.io.IOException;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
-
 @RestController
 @RequestMapping("/api/knowledge")
 public class IngestTaskController {
 
     private final AsyncIngestTaskService asyncIngestTaskService;
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+    private final IngestTaskEventHub eventHub;
 
-    public IngestTaskController(AsyncIngestTaskService asyncIngestTaskService) {
+    public IngestTaskController(AsyncIngestTaskService asyncIngestTaskService, IngestTaskEventHub eventHub) {
         this.asyncIngestTaskService = asyncIngestTaskService;
+        this.eventHub = eventHub;
     }
 
     private Long getUserId(HttpServletRequest request) {
@@ -55,24 +50,6 @@ public class IngestTaskController {
     @GetMapping(value = "/tasks/{taskId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public SseEmitter taskEvents(@PathVariable("taskId") String taskId, HttpServletRequest httpRequest) {
         Long userId = getUserId(httpRequest);
-        SseEmitter emitter = new SseEmitter(0L);
-        ScheduledFuture<?> future = scheduler.scheduleAtFixedRate(() -> {
-            try {
-                IngestTaskResponse status = asyncIngestTaskService.get(userId, taskId);
-                emitter.send(SseEmitter.event().name("status").data(Objects.requireNonNull(status)));
-                if ("SUCCEEDED".equalsIgnoreCase(status.getStatus()) || "FAILED".equalsIgnoreCase(status.getStatus())) {
-                    emitter.complete();
-                }
-            } catch (IOException e) {
-                emitter.completeWithError(e);
-            } catch (Exception e) {
-                emitter.completeWithError(e);
-            }
-        }, 0, 1, TimeUnit.SECONDS);
-
-        emitter.onCompletion(() -> future.cancel(true));
-        emitter.onTimeout(() -> future.cancel(true));
-        emitter.onError(ex -> future.cancel(true));
-        return emitter;
+        return eventHub.subscribe(userId, taskId, () -> asyncIngestTaskService.get(userId, taskId));
     }
 }
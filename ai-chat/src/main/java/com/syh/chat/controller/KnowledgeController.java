@@ -1,18 +1,28 @@
 package com.syh.chat.controller;
 
+import com.syh.chat.dto.IngestTaskResponse;
 import com.syh.chat.dto.KnowledgeDocumentResponse;
 import com.syh.chat.entity.KnowledgeDocument;
+import com.syh.chat.service.AsyncIngestTaskService;
+import com.syh.chat.service.IngestTaskEventHub;
+import com.syh.chat.service.IngestTaskStateService;
 import com.syh.chat.service.KnowledgeIngestService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.net.URI;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/api/knowledge")
@@ -20,9 +30,20 @@ import java.util.Map;
 public class KnowledgeController {
 
     private final KnowledgeIngestService ingestService;
+    private final AsyncIngestTaskService asyncIngestTaskService;
+    private final IngestTaskEventHub eventHub;
+    private final long syncUploadTimeoutMs;
 
-    public KnowledgeController(KnowledgeIngestService ingestService) {
+    public KnowledgeController(
+            KnowledgeIngestService ingestService,
+            AsyncIngestTaskService asyncIngestTaskService,
+            IngestTaskEventHub eventHub,
+            @Value("${app.ingest.sync-upload.timeout-ms:120000}") long syncUploadTimeoutMs
+    ) {
         this.ingestService = ingestService;
+        this.asyncIngestTaskService = asyncIngestTaskService;
+        this.eventHub = eventHub;
+        this.syncUploadTimeoutMs = Math.max(1000, syncUploadTimeoutMs);
     }
 
     private Long getUserId(HttpServletRequest request) {
@@ -34,19 +55,48 @@ public class KnowledgeController {
     public List<KnowledgeDocumentResponse> listDocuments(HttpServletRequest httpRequest) {
         Long userId = getUserId(httpRequest);
         return ingestService.listDocuments(userId).stream()
-                .map(d -> new KnowledgeDocumentResponse(d.getId(), d.getTitle(), d.getStatus(), d.getSegmentCount(), d.getUpdatedAt()))
+                .map(this::toResponse)
                 .toList();
     }
 
     @PostMapping(value = "/documents/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<KnowledgeDocumentResponse> upload(
+    public DeferredResult<ResponseEntity<KnowledgeDocumentResponse>> upload(
             @RequestParam("file") MultipartFile file,
             @RequestParam(value = "title", required = false) String title,
             HttpServletRequest httpRequest
     ) {
         Long userId = getUserId(httpRequest);
-        KnowledgeDocument doc = ingestService.uploadAndIngest(userId, file, title);
-        return ResponseEntity.ok(new KnowledgeDocumentResponse(doc.getId(), doc.getTitle(), doc.getStatus(), doc.getSegmentCount(), doc.getUpdatedAt()));
+        IngestTaskResponse task = asyncIngestTaskService.submit(userId, file, title);
+        String taskId = task.getTaskId();
+        DeferredResult<ResponseEntity<KnowledgeDocumentResponse>> result = new DeferredResult<>(syncUploadTimeoutMs);
+        CompletableFuture<IngestTaskResponse> done = eventHub.awaitCompletion(userId, taskId, () -> asyncIngestTaskService.get(userId, taskId));
+        result.onTimeout(() -> result.setResult(ResponseEntity.accepted()
+                .location(URI.create("/api/knowledge/tasks/" + taskId))
+                .body(toResponse(ingestService.getDocument(userId, task.getDocumentId())))));
+        result.onCompletion(() -> done.cancel(false));
+        done.whenComplete((finished, ex) -> {
+            if (ex instanceof CancellationException) {
+                return;
+            }
+            if (ex != null) {
+                result.setErrorResult(ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+                return;
+            }
+            if (IngestTaskStateService.STATUS_DEAD.equalsIgnoreCase(finished.getStatus())) {
+                result.setErrorResult(new IllegalStateException(finished.getLastError() == null ? "文档入库失败" : finished.getLastError()));
+                return;
+            }
+            try {
+                result.setResult(ResponseEntity.ok(toResponse(ingestService.getDocument(userId, finished.getDocumentId()))));
+            } catch (RuntimeException e) {
+                result.setErrorResult(e);
+            }
+        });
+        return result;
+    }
+
+    private KnowledgeDocumentResponse toResponse(KnowledgeDocument doc) {
+        return new KnowledgeDocumentResponse(doc.getId(), doc.getTitle(), doc.getStatus(), doc.getSegmentCount(), doc.getUpdatedAt());
     }
 
     @DeleteMapping("/documents/{id}")
@@ -0,0 +1,31 @@
+package com.syh.chat.dto;
+
+public class IngestTaskStatusEvent {
+
+    private Long userId;
+    private IngestTaskResponse task;
+
+    public IngestTaskStatusEvent() {
+    }
+
+    public IngestTaskStatusEvent(Long userId, IngestTaskResponse task) {
+        this.userId = userId;
+        this.task = task;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public IngestTaskResponse getTask() {
+        return task;
+    }
+
+    public void setTask(IngestTaskResponse task) {
+        this.task = task;
+    }
+}
@@ -0,0 +1,21 @@
+package com.syh.chat.entity;
+
+import com.syh.chat.config.IdBlockAllocator;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+
+public class BlockIdGenerator implements IdentifierGenerator {
+
+    private final String name;
+    private final int allocationSize;
+
+    public BlockIdGenerator(BlockId config) {
+        this.name = config.name();
+        this.allocationSize = Math.max(1, config.allocationSize());
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        return IdBlockAllocator.get().next(name, allocationSize);
+    }
+}
@@ -9,7 +9,7 @@ import java.time.LocalDateTime;
 public class GeneratedQuestion {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @BlockId(name = "generated_question")
     private Long id;
 
     @Column(nullable = false)
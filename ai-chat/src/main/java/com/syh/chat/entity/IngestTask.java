@@ -48,6 +48,15 @@ public class IngestTask {
     @Column(columnDefinition = "LONGTEXT", name = "last_error")
     private String lastError;
 
+    @Column(length = 16)
+    private String lane;
+
+    @Column(name = "estimated_pages")
+    private Integer estimatedPages;
+
+    @Column(name = "blob_hash", length = 64)
+    private String blobHash;
+
     @Column(nullable = false)
     private LocalDateTime createdAt;
 
@@ -165,4 +174,28 @@ public class IngestTask {
     public void setUpdatedAt(LocalDateTime updatedAt) {
         this.updatedAt = updatedAt;
     }
+
+    public String getLane() {
+        return lane;
+    }
+
+    public void setLane(String lane) {
+        this.lane = lane;
+    }
+
+    public Integer getEstimatedPages() {
+        return estimatedPages;
+    }
+
+    public void setEstimatedPages(Integer estimatedPages) {
+        this.estimatedPages = estimatedPages;
+    }
+
+    public String getBlobHash() {
+        return blobHash;
+    }
+
+    public void setBlobHash(String blobHash) {
+        this.blobHash = blobHash;
+    }
 }
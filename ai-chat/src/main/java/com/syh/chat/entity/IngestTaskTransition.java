@@ -2,8 +2,6 @@ package com.syh.chat.entity;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
 
@@ -14,7 +12,7 @@ import java.time.LocalDateTime;
 public class IngestTaskTransition {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @BlockId(name = "ingest_task_transition")
     private Long id;
 
     @Column(nullable = false, length = 36, name = "task_id")
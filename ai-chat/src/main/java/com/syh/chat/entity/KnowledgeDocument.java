@@ -33,6 +33,14 @@ public class KnowledgeDocument {
     @Column(columnDefinition = "LONGTEXT")
     private String summary;
 
+    @Column(length = 64)
+    private String contentHash;
+
+    @Column(length = 100)
+    private String embeddingModel;
+
+    private Long vectorDocumentId;
+
     public Long getId() {
         return id;
     }
@@ -96,6 +104,28 @@ public class KnowledgeDocument {
     public void setSummary(String summary) {
         this.summary = summary;
     }
-}
 
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
 
+    public String getEmbeddingModel() {
+        return embeddingModel;
+    }
+
+    public void setEmbeddingModel(String embeddingModel) {
+        this.embeddingModel = embeddingModel;
+    }
+
+    public Long getVectorDocumentId() {
+        return vectorDocumentId;
+    }
+
+    public void setVectorDocumentId(Long vectorDocumentId) {
+        this.vectorDocumentId = vectorDocumentId;
+    }
+}
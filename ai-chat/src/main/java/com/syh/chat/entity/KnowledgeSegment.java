@@ -9,7 +9,7 @@ import java.time.LocalDateTime;
 public class KnowledgeSegment {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @BlockId(name = "knowledge_segment")
     private Long id;
 
     @Column(nullable = false)
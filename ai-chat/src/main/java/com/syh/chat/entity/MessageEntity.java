@@ -10,7 +10,7 @@ import java.time.LocalDateTime;
 public class MessageEntity {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @BlockId(name = "message")
     private Long id;
     
     @Column(name = "conversation_id", nullable = false)
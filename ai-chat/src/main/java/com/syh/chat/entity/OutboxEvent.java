@@ -42,6 +42,12 @@ public class OutboxEvent {
     @Column(nullable = true, name = "next_retry_at")
     private LocalDateTime nextRetryAt;
 
+    @Column(nullable = true, length = 64, name = "lease_owner")
+    private String leaseOwner;
+
+    @Column(nullable = true, name = "lease_until")
+    private LocalDateTime leaseUntil;
+
     public String getId() {
         return id;
     }
@@ -121,4 +127,20 @@ public class OutboxEvent {
     public void setNextRetryAt(LocalDateTime nextRetryAt) {
         this.nextRetryAt = nextRetryAt;
     }
+
+    public String getLeaseOwner() {
+        return leaseOwner;
+    }
+
+    public void setLeaseOwner(String leaseOwner) {
+        this.leaseOwner = leaseOwner;
+    }
+
+    public LocalDateTime getLeaseUntil() {
+        return leaseUntil;
+    }
+
+    public void setLeaseUntil(LocalDateTime leaseUntil) {
+        this.leaseUntil = leaseUntil;
+    }
 }
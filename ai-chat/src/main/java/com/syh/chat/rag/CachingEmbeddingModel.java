@@ -0,0 +1,184 @@
+package com.syh.chat.rag;
+
+import com.syh.chat.util.ContentHash;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+public class CachingEmbeddingModel implements EmbeddingModel {
+
+    private static final Logger log = LoggerFactory.getLogger(CachingEmbeddingModel.class);
+
+    private final EmbeddingModel delegate;
+    private final String modelName;
+    private final EmbeddingCacheStore l2;
+    private final Map<String, float[]> l1;
+    private final Counter l1Hits;
+    private final Counter l2Hits;
+    private final Counter misses;
+    private final Counter l2Errors;
+
+    public CachingEmbeddingModel(EmbeddingModel delegate, String modelName, EmbeddingCacheStore l2,
+                                 int l1MaxEntries, MeterRegistry meterRegistry) {
+        this.delegate = Objects.requireNonNull(delegate);
+        this.modelName = modelName == null ? "" : modelName.trim();
+        this.l2 = l2;
+        int maxEntries = Math.max(0, l1MaxEntries);
+        this.l1 = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, float[]> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.l1Hits = Counter.builder("embedding_cache_lookups_total").tag("result", "l1_hit").register(meterRegistry);
+        this.l2Hits = Counter.builder("embedding_cache_lookups_total").tag("result", "l2_hit").register(meterRegistry);
+        this.misses = Counter.builder("embedding_cache_lookups_total").tag("result", "miss").register(meterRegistry);
+        this.l2Errors = Counter.builder("embedding_cache_l2_errors_total").register(meterRegistry);
+    }
+
+    @Override
+    public Response<Embedding> embed(String text) {
+        String key = cacheKey(text);
+        float[] cached = lookup(List.of(key), false).get(key);
+        if (cached != null) {
+            return Response.from(Embedding.from(cached));
+        }
+        Embedding embedding = delegate.embed(text).content();
+        store(Map.of(key, embedding.vector()), false);
+        return Response.from(embedding);
+    }
+
+    @Override
+    public Response<Embedding> embed(TextSegment textSegment) {
+        return embed(textSegment == null ? "" : textSegment.text());
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        if (textSegments == null || textSegments.isEmpty()) {
+            return Response.from(List.of());
+        }
+        List<String> keys = new ArrayList<>(textSegments.size());
+        for (TextSegment seg : textSegments) {
+            keys.add(cacheKey(seg == null ? "" : seg.text()));
+        }
+        Map<String, float[]> found = lookup(keys, true);
+
+        Map<String, Integer> missingIndex = new LinkedHashMap<>();
+        List<TextSegment> missing = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            String key = keys.get(i);
+            if (!found.containsKey(key) && !missingIndex.containsKey(key)) {
+                missingIndex.put(key, missing.size());
+                missing.add(textSegments.get(i));
+            }
+        }
+        if (!missing.isEmpty()) {
+            List<Embedding> fresh = delegate.embedAll(missing).content();
+            if (fresh == null || fresh.size() != missing.size()) {
+                throw new IllegalStateException("SiliconFlow embeddings 返回数量不匹配: expected=" + missing.size()
+                        + ", actual=" + (fresh == null ? 0 : fresh.size()));
+            }
+            Map<String, float[]> loaded = new HashMap<>();
+            for (Map.Entry<String, Integer> e : missingIndex.entrySet()) {
+                loaded.put(e.getKey(), fresh.get(e.getValue()).vector());
+            }
+            store(loaded, true);
+            found.putAll(loaded);
+        }
+
+        List<Embedding> out = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            out.add(Embedding.from(found.get(key)));
+        }
+        return Response.from(out);
+    }
+
+    private Map<String, float[]> lookup(List<String> keys, boolean useL2) {
+        Map<String, float[]> found = new HashMap<>();
+        List<String> l1Missing = new ArrayList<>();
+        synchronized (l1) {
+            for (String key : keys) {
+                float[] v = l1.get(key);
+                if (v != null) {
+                    found.put(key, v);
+                } else {
+                    l1Missing.add(key);
+                }
+            }
+        }
+        l1Hits.increment(keys.size() - l1Missing.size());
+        if (l1Missing.isEmpty()) {
+            return found;
+        }
+
+        Map<String, float[]> fromL2 = Map.of();
+        if (useL2 && l2 != null) {
+            try {
+                fromL2 = l2.getAll(l1Missing);
+            } catch (Exception e) {
+                l2Errors.increment();
+                log.debug("Embedding cache L2 lookup failed", e);
+            }
+        }
+        if (!fromL2.isEmpty()) {
+            synchronized (l1) {
+                l1.putAll(fromL2);
+            }
+            found.putAll(fromL2);
+        }
+        int l2HitCount = 0;
+        for (String key : l1Missing) {
+            if (fromL2.containsKey(key)) {
+                l2HitCount++;
+            }
+        }
+        l2Hits.increment(l2HitCount);
+        misses.increment(l1Missing.size() - l2HitCount);
+        return found;
+    }
+
+    private void store(Map<String, float[]> entries, boolean useL2) {
+        synchronized (l1) {
+            l1.putAll(entries);
+        }
+        if (!useL2 || l2 == null) {
+            return;
+        }
+        try {
+            l2.putAll(modelName, entries);
+        } catch (Exception e) {
+            l2Errors.increment();
+            log.debug("Embedding cache L2 write failed", e);
+        }
+    }
+
+    String cacheKey(String text) {
+        MessageDigest digest = ContentHash.newSha256();
+        digest.update(modelName.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(normalize(text).getBytes(StandardCharsets.UTF_8));
+        return ContentHash.toHex(digest);
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.replaceAll("\\s+", " ").trim();
+    }
+}
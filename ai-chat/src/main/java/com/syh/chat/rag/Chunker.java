@@ -0,0 +1,17 @@
+package com.syh.chat.rag;
+
+import java.util.function.Consumer;
+
+public interface Chunker {
+
+    String name();
+
+    Session open(Consumer<String> sink);
+
+    interface Session {
+
+        void append(CharSequence text);
+
+        void finish();
+    }
+}
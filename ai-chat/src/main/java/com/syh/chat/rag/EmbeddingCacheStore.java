@@ -0,0 +1,73 @@
+package com.syh.chat.rag;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+public class EmbeddingCacheStore {
+
+    private static final int MAX_KEYS_PER_QUERY = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public EmbeddingCacheStore(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = Objects.requireNonNull(jdbcTemplate);
+    }
+
+    public Map<String, float[]> getAll(Collection<String> keys) {
+        Map<String, float[]> out = new HashMap<>();
+        if (keys == null || keys.isEmpty()) {
+            return out;
+        }
+        List<String> all = new ArrayList<>(keys);
+        for (int from = 0; from < all.size(); from += MAX_KEYS_PER_QUERY) {
+            List<String> part = all.subList(from, Math.min(all.size(), from + MAX_KEYS_PER_QUERY));
+            String placeholders = String.join(",", Collections.nCopies(part.size(), "?"));
+            jdbcTemplate.query(
+                    "SELECT cache_key, vector FROM embedding_cache WHERE cache_key IN (" + placeholders + ")",
+                    rs -> {
+                        out.put(rs.getString(1), decode(rs.getBytes(2)));
+                    },
+                    part.toArray()
+            );
+        }
+        return out;
+    }
+
+    public void putAll(String model, Map<String, float[]> entries) {
+        if (entries == null || entries.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(entries.size());
+        for (Map.Entry<String, float[]> e : entries.entrySet()) {
+            rows.add(new Object[]{e.getKey(), model, e.getValue().length, encode(e.getValue()), now});
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT IGNORE INTO embedding_cache (cache_key, model, dimension, vector, created_at) VALUES (?, ?, ?, ?, ?)",
+                rows
+        );
+    }
+
+    static byte[] encode(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(vector);
+        return buffer.array();
+    }
+
+    static float[] decode(byte[] bytes) {
+        float[] vector = new float[bytes.length / Float.BYTES];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(vector);
+        return vector;
+    }
+}
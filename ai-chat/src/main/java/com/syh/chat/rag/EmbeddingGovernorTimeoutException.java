@@ -0,0 +1,8 @@
+package com.syh.chat.rag;
+
+public class EmbeddingGovernorTimeoutException extends IllegalStateException {
+
+    public EmbeddingGovernorTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,346 @@
+package com.syh.chat.rag;
+
+import com.syh.chat.config.EmbeddingGovernorProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+public class EmbeddingRateGovernor {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddingRateGovernor.class);
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+            "local t = redis.call('TIME')\n" +
+                    "local now = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000)\n" +
+                    "local s = redis.call('HMGET', KEYS[1], 'tokens', 'ts', 'rate', 'blocked_until')\n" +
+                    "local rate = tonumber(s[3]) or tonumber(ARGV[1])\n" +
+                    "rate = math.max(tonumber(ARGV[2]), math.min(tonumber(ARGV[3]), rate))\n" +
+                    "local capacity = math.max(1, rate * tonumber(ARGV[4]))\n" +
+                    "local cost = math.max(1, math.min(tonumber(ARGV[6]), capacity))\n" +
+                    "local reserve = math.max(0, math.min(tonumber(ARGV[5]), capacity - cost))\n" +
+                    "local tokens = tonumber(s[1]) or capacity\n" +
+                    "local ts = tonumber(s[2]) or now\n" +
+                    "tokens = math.min(capacity, tokens + math.max(0, now - ts) * rate / 1000)\n" +
+                    "local wait = 0\n" +
+                    "local blocked = tonumber(s[4]) or 0\n" +
+                    "if now < blocked then\n" +
+                    "  wait = blocked - now\n" +
+                    "elseif tokens >= cost + reserve then\n" +
+                    "  tokens = tokens - cost\n" +
+                    "else\n" +
+                    "  wait = math.ceil((cost + reserve - tokens) * 1000 / rate)\n" +
+                    "end\n" +
+                    "redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', tostring(now), 'rate', tostring(rate))\n" +
+                    "redis.call('PEXPIRE', KEYS[1], 3600000)\n" +
+                    "return {wait, math.floor(rate * 1000)}\n",
+            List.class
+    );
+
+    private static final RedisScript<Long> FEEDBACK_SCRIPT = new DefaultRedisScript<>(
+            "local t = redis.call('TIME')\n" +
+                    "local now = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000)\n" +
+                    "local s = redis.call('HMGET', KEYS[1], 'rate', 'cut_at')\n" +
+                    "local rate = tonumber(s[1]) or tonumber(ARGV[4])\n" +
+                    "if ARGV[1] == 'ok' then\n" +
+                    "  rate = rate + tonumber(ARGV[5]) * tonumber(ARGV[9]) / math.max(rate, 1)\n" +
+                    "elseif now - (tonumber(s[2]) or 0) >= tonumber(ARGV[7]) then\n" +
+                    "  rate = rate * tonumber(ARGV[6])\n" +
+                    "  redis.call('HSET', KEYS[1], 'cut_at', tostring(now), 'tokens', '0', 'ts', tostring(now), 'blocked_until', tostring(now + tonumber(ARGV[8])))\n" +
+                    "end\n" +
+                    "rate = math.max(tonumber(ARGV[2]), math.min(tonumber(ARGV[3]), rate))\n" +
+                    "redis.call('HSET', KEYS[1], 'rate', tostring(rate))\n" +
+                    "redis.call('PEXPIRE', KEYS[1], 3600000)\n" +
+                    "return math.floor(rate * 1000)\n",
+            Long.class
+    );
+
+    public enum Priority {
+        INTERACTIVE,
+        BULK;
+
+        public String key() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    enum Outcome {
+        OK,
+        THROTTLED,
+        ERROR
+    }
+
+    private final StringRedisTemplate redisTemplate;
+    private final EmbeddingGovernorProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Counter redisErrors;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private double limit;
+    private int inFlight;
+    private int interactiveWaiting;
+    private long lastDecreaseAt;
+    private volatile double sharedRate;
+
+    public EmbeddingRateGovernor(StringRedisTemplate redisTemplate, EmbeddingGovernorProperties properties, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.properties = Objects.requireNonNull(properties);
+        this.meterRegistry = Objects.requireNonNull(meterRegistry);
+        this.limit = clampLimit(properties.getInitialConcurrency());
+        this.sharedRate = properties.getInitialRate();
+        this.redisErrors = Counter.builder("embedding_governor_redis_errors_total").register(meterRegistry);
+        Gauge.builder("embedding_governor_concurrency_limit", this, g -> g.snapshot(true)).register(meterRegistry);
+        Gauge.builder("embedding_governor_in_flight", this, g -> g.snapshot(false)).register(meterRegistry);
+        Gauge.builder("embedding_governor_rate", this, g -> g.sharedRate).register(meterRegistry);
+    }
+
+    public <T> T call(Priority priority, Supplier<T> request) {
+        return call(priority, 1, request);
+    }
+
+    public <T> T call(Priority priority, int cost, Supplier<T> request) {
+        int inputs = Math.max(1, cost);
+        int attempts = Math.max(1, properties.getMaxAttempts());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMs(priority));
+        for (int attempt = 1; ; attempt++) {
+            acquire(priority, inputs, deadline);
+            long start = System.nanoTime();
+            Outcome outcome = Outcome.ERROR;
+            try {
+                T result = request.get();
+                outcome = Outcome.OK;
+                return result;
+            } catch (RuntimeException e) {
+                if (!isThrottled(e)) {
+                    throw e;
+                }
+                outcome = Outcome.THROTTLED;
+                if (attempt >= attempts) {
+                    throw e;
+                }
+                log.debug("SiliconFlow embeddings throttled, retrying: priority={}, attempt={}", priority.key(), attempt);
+            } finally {
+                release(priority, inputs, outcome, System.nanoTime() - start);
+                Counter.builder("embedding_governor_requests_total")
+                        .tag("priority", priority.key())
+                        .tag("outcome", outcome.name().toLowerCase(Locale.ROOT))
+                        .register(meterRegistry)
+                        .increment();
+            }
+        }
+    }
+
+    void acquire(Priority priority, int cost, long deadline) {
+        long waitStart = System.nanoTime();
+        try {
+            acquireSlot(priority, deadline);
+            try {
+                acquireToken(priority, cost, deadline);
+            } catch (RuntimeException | InterruptedException e) {
+                releaseSlot();
+                throw e;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("SiliconFlow embeddings 限流等待被中断");
+        } finally {
+            Timer.builder("embedding_governor_wait_seconds").tag("priority", priority.key()).register(meterRegistry)
+                    .record(System.nanoTime() - waitStart, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    void release(Priority priority, int cost, Outcome outcome, long elapsedNanos) {
+        lock.lock();
+        try {
+            inFlight--;
+            long now = System.currentTimeMillis();
+            long latencyTargetMs = priority == Priority.INTERACTIVE ? properties.getLatencyTargetMs() : properties.getBulkLatencyTargetMs();
+            boolean slow = latencyTargetMs > 0 && TimeUnit.NANOSECONDS.toMillis(elapsedNanos) > latencyTargetMs;
+            if (outcome == Outcome.THROTTLED || (outcome == Outcome.OK && slow)) {
+                if (now - lastDecreaseAt >= properties.getDecreaseCooldownMs()) {
+                    limit = clampLimit(limit * properties.getDecreaseFactor());
+                    lastDecreaseAt = now;
+                }
+            } else if (outcome == Outcome.OK) {
+                limit = clampLimit(limit + 1.0 / limit);
+            }
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (outcome == Outcome.THROTTLED) {
+            Counter.builder("embedding_governor_throttled_total").register(meterRegistry).increment();
+            feedback("throttled", cost);
+        } else if (outcome == Outcome.OK && sharedRate < properties.getMaxRate()) {
+            feedback("ok", cost);
+        }
+    }
+
+    private void acquireSlot(Priority priority, long deadline) throws InterruptedException {
+        lock.lock();
+        try {
+            if (priority == Priority.INTERACTIVE) {
+                interactiveWaiting++;
+            }
+            try {
+                while (!slotAvailable(priority)) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw timeout(priority);
+                    }
+                    released.awaitNanos(remaining);
+                }
+                inFlight++;
+            } finally {
+                if (priority == Priority.INTERACTIVE) {
+                    interactiveWaiting--;
+                    released.signalAll();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean slotAvailable(Priority priority) {
+        int cap = (int) Math.floor(limit);
+        if (priority == Priority.INTERACTIVE) {
+            return inFlight < cap;
+        }
+        return interactiveWaiting == 0 && inFlight < Math.max(1, cap - Math.max(0, properties.getInteractiveReservedSlots()));
+    }
+
+    private void releaseSlot() {
+        lock.lock();
+        try {
+            inFlight--;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void acquireToken(Priority priority, int cost, long deadline) throws InterruptedException {
+        if (redisTemplate == null) {
+            return;
+        }
+        double reserve = priority == Priority.BULK ? Math.max(0, properties.getBulkReserveTokens()) : 0;
+        while (true) {
+            long waitMs;
+            try {
+                List<?> reply = redisTemplate.execute(
+                        Objects.requireNonNull(ACQUIRE_SCRIPT),
+                        List.of(Objects.requireNonNull(properties.getKey())),
+                        String.valueOf(properties.getInitialRate()),
+                        String.valueOf(properties.getMinRate()),
+                        String.valueOf(properties.getMaxRate()),
+                        String.valueOf(properties.getBurstSeconds()),
+                        String.valueOf(reserve),
+                        String.valueOf(cost)
+                );
+                if (reply == null || reply.size() < 2) {
+                    return;
+                }
+                waitMs = parseLong(reply.get(0));
+                sharedRate = parseLong(reply.get(1)) / 1000.0;
+            } catch (RuntimeException e) {
+                redisErrors.increment();
+                log.debug("Embedding governor token bucket unavailable, falling back to local limit", e);
+                return;
+            }
+            if (waitMs <= 0) {
+                return;
+            }
+            long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (waitMs > remainingMs) {
+                throw timeout(priority);
+            }
+            Thread.sleep(waitMs);
+        }
+    }
+
+    private void feedback(String outcome, int cost) {
+        if (redisTemplate == null) {
+            return;
+        }
+        try {
+            Long rate = redisTemplate.execute(
+                    Objects.requireNonNull(FEEDBACK_SCRIPT),
+                    List.of(Objects.requireNonNull(properties.getKey())),
+                    outcome,
+                    String.valueOf(properties.getMinRate()),
+                    String.valueOf(properties.getMaxRate()),
+                    String.valueOf(properties.getInitialRate()),
+                    String.valueOf(properties.getRateIncreaseStep()),
+                    String.valueOf(properties.getDecreaseFactor()),
+                    String.valueOf(properties.getDecreaseCooldownMs()),
+                    String.valueOf(properties.getThrottlePenaltyMs()),
+                    String.valueOf(cost)
+            );
+            if (rate != null) {
+                sharedRate = rate / 1000.0;
+            }
+        } catch (RuntimeException e) {
+            redisErrors.increment();
+            log.debug("Embedding governor feedback failed", e);
+        }
+    }
+
+    private long maxWaitMs(Priority priority) {
+        return Math.max(0, priority == Priority.INTERACTIVE ? properties.getInteractiveMaxWaitMs() : properties.getBulkMaxWaitMs());
+    }
+
+    private double clampLimit(double value) {
+        int min = Math.max(1, properties.getMinConcurrency());
+        int max = Math.max(min, properties.getMaxConcurrency());
+        return Math.max(min, Math.min(max, value));
+    }
+
+    double snapshot(boolean limitValue) {
+        lock.lock();
+        try {
+            return limitValue ? limit : inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private EmbeddingGovernorTimeoutException timeout(Priority priority) {
+        Counter.builder("embedding_governor_timeouts_total").tag("priority", priority.key()).register(meterRegistry).increment();
+        return new EmbeddingGovernorTimeoutException("SiliconFlow embeddings 本地限流排队超时 priority=" + priority.key());
+    }
+
+    static boolean isThrottled(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof EmbeddingThrottledException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long parseLong(Object value) {
+        if (value instanceof Number n) {
+            return n.longValue();
+        }
+        try {
+            return value == null ? 0 : Long.parseLong(String.valueOf(value).trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.syh.chat.rag;
+
+public class EmbeddingThrottledException extends IllegalStateException {
+
+    public EmbeddingThrottledException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,30 @@
+package com.syh.chat.rag;
+
+import java.util.function.Consumer;
+
+public class FixedWindowChunker implements Chunker {
+
+    private final int maxChars;
+    private final int overlap;
+
+    public FixedWindowChunker(int maxChars, int overlap) {
+        if (maxChars <= 0) {
+            throw new IllegalArgumentException("maxChars must be positive");
+        }
+        if (overlap < 0 || overlap >= maxChars) {
+            throw new IllegalArgumentException("overlap must be in [0, maxChars)");
+        }
+        this.maxChars = maxChars;
+        this.overlap = overlap;
+    }
+
+    @Override
+    public String name() {
+        return "fixed";
+    }
+
+    @Override
+    public Session open(Consumer<String> sink) {
+        return new StreamingTextChunker(maxChars, overlap, sink);
+    }
+}
@@ -0,0 +1,38 @@
+package com.syh.chat.rag;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+
+import java.util.List;
+import java.util.Objects;
+
+public class GovernedEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final EmbeddingRateGovernor governor;
+
+    public GovernedEmbeddingModel(EmbeddingModel delegate, EmbeddingRateGovernor governor) {
+        this.delegate = Objects.requireNonNull(delegate);
+        this.governor = Objects.requireNonNull(governor);
+    }
+
+    @Override
+    public Response<Embedding> embed(String text) {
+        return governor.call(EmbeddingRateGovernor.Priority.INTERACTIVE, () -> delegate.embed(text));
+    }
+
+    @Override
+    public Response<Embedding> embed(TextSegment textSegment) {
+        return governor.call(EmbeddingRateGovernor.Priority.INTERACTIVE, () -> delegate.embed(textSegment));
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        if (textSegments == null || textSegments.isEmpty()) {
+            return Response.from(List.of());
+        }
+        return governor.call(EmbeddingRateGovernor.Priority.BULK, textSegments.size(), () -> delegate.embedAll(textSegments));
+    }
+}
@@ -0,0 +1,224 @@
+package com.syh.chat.rag;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+public class SentenceChunker implements Chunker {
+
+    public enum Budget {
+        CHARS,
+        TOKENS
+    }
+
+    private final int maxUnits;
+    private final int overlapUnits;
+    private final Budget budget;
+
+    public SentenceChunker(int maxUnits, int overlapUnits, Budget budget) {
+        if (maxUnits <= 0) {
+            throw new IllegalArgumentException("maxUnits must be positive");
+        }
+        if (overlapUnits < 0 || overlapUnits >= maxUnits) {
+            throw new IllegalArgumentException("overlapUnits must be in [0, maxUnits)");
+        }
+        this.maxUnits = maxUnits;
+        this.overlapUnits = overlapUnits;
+        this.budget = Objects.requireNonNull(budget);
+    }
+
+    @Override
+    public String name() {
+        return budget == Budget.CHARS ? "sentence" : "token";
+    }
+
+    @Override
+    public Session open(Consumer<String> sink) {
+        return new SentenceSession(Objects.requireNonNull(sink));
+    }
+
+    static boolean isSentenceEnd(char c) {
+        return c == '。' || c == '！' || c == '？' || c == '!' || c == '?';
+    }
+
+    private final class SentenceSession implements Session {
+        private final Consumer<String> sink;
+        private final StringBuilder chunk = new StringBuilder();
+        private final StringBuilder sentence = new StringBuilder();
+        private final StringBuilder carry = new StringBuilder();
+        private int[] starts = new int[16];
+        private int[] costs = new int[16];
+        private int sentences;
+        private int chunkCost;
+        private int sentenceCost;
+        private int wordLength;
+        private boolean pendingSpace;
+        private boolean pendingDot;
+        private boolean started;
+        private boolean dirty;
+
+        private SentenceSession(Consumer<String> sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void append(CharSequence text) {
+            if (text == null) {
+                return;
+            }
+            for (int i = 0, n = text.length(); i < n; i++) {
+                char c = text.charAt(i);
+                if (StreamingTextChunker.isWhitespace(c)) {
+                    if (pendingDot) {
+                        pendingDot = false;
+                        endSentence();
+                    }
+                    pendingSpace = started;
+                    continue;
+                }
+                pendingDot = false;
+                if (pendingSpace) {
+                    push(' ');
+                    pendingSpace = false;
+                }
+                push(c);
+                started = true;
+                if (isSentenceEnd(c)) {
+                    endSentence();
+                } else if (c == '.') {
+                    pendingDot = true;
+                }
+            }
+        }
+
+        @Override
+        public void finish() {
+            endSentence();
+            if (dirty) {
+                emit();
+            }
+            clearChunk();
+            pendingSpace = false;
+            pendingDot = false;
+            started = false;
+            dirty = false;
+            wordLength = 0;
+        }
+
+        private void push(char c) {
+            int cost = cost(c);
+            if (sentenceCost + cost > maxUnits) {
+                splitSentence();
+                wordLength = 0;
+                sentenceCost += measure(sentence);
+                cost = cost(c);
+            }
+            sentence.append(c);
+            sentenceCost += cost;
+        }
+
+        private void splitSentence() {
+            int cut = sentence.lastIndexOf(" ");
+            carry.setLength(0);
+            if (cut > sentence.length() / 2) {
+                carry.append(sentence, cut, sentence.length());
+                sentence.setLength(cut);
+                wordLength = 0;
+                sentenceCost = measure(sentence);
+            }
+            endSentence();
+            sentence.append(carry);
+        }
+
+        private int measure(CharSequence text) {
+            int total = 0;
+            for (int i = 0, n = text.length(); i < n; i++) {
+                total += cost(text.charAt(i));
+            }
+            return total;
+        }
+
+        private int cost(char c) {
+            if (budget == Budget.CHARS) {
+                return 1;
+            }
+            if (c == ' ') {
+                wordLength = 0;
+                return 0;
+            }
+            if (c < 0x80 && Character.isLetterOrDigit(c)) {
+                return wordLength++ % 4 == 0 ? 1 : 0;
+            }
+            wordLength = 0;
+            return 1;
+        }
+
+        private void endSentence() {
+            if (sentence.length() == 0) {
+                return;
+            }
+            if (sentences > 0 && chunkCost + sentenceCost > maxUnits) {
+                if (dirty) {
+                    emit();
+                    retainOverlap();
+                }
+                if (chunkCost + sentenceCost > maxUnits) {
+                    clearChunk();
+                }
+            }
+            if (sentences == starts.length) {
+                starts = Arrays.copyOf(starts, sentences * 2);
+                costs = Arrays.copyOf(costs, sentences * 2);
+            }
+            starts[sentences] = chunk.length();
+            costs[sentences] = sentenceCost;
+            sentences++;
+            chunk.append(sentence);
+            chunkCost += sentenceCost;
+            dirty = true;
+            sentence.setLength(0);
+            sentenceCost = 0;
+        }
+
+        private void emit() {
+            int start = 0;
+            int end = chunk.length();
+            while (start < end && chunk.charAt(start) == ' ') {
+                start++;
+            }
+            while (end > start && chunk.charAt(end - 1) == ' ') {
+                end--;
+            }
+            if (end > start) {
+                sink.accept(chunk.substring(start, end));
+            }
+            dirty = false;
+        }
+
+        private void retainOverlap() {
+            int first = sentences;
+            int kept = 0;
+            while (first > 0 && kept + costs[first - 1] <= overlapUnits) {
+                kept += costs[--first];
+            }
+            if (first == sentences) {
+                clearChunk();
+                return;
+            }
+            int offset = starts[first];
+            chunk.delete(0, offset);
+            for (int i = first; i < sentences; i++) {
+                starts[i - first] = starts[i] - offset;
+                costs[i - first] = costs[i];
+            }
+            sentences -= first;
+            chunkCost = kept;
+        }
+
+        private void clearChunk() {
+            chunk.setLength(0);
+            sentences = 0;
+            chunkCost = 0;
+        }
+    }
+}
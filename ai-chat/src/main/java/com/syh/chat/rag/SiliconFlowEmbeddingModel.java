@@ -15,6 +15,7 @@ import org.springframework.web.reactive.function.client.WebClient;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 
@@ -89,7 +90,12 @@ public class SiliconFlowEmbeddingModel implements EmbeddingModel {
                 .retrieve()
                 .onStatus(status -> status.isError(), resp -> resp.bodyToMono(String.class)
                         .defaultIfEmpty("")
-                        .map(b -> new IllegalStateException("SiliconFlow embeddings 调用失败: HTTP " + resp.statusCode().value() + " " + b)))
+                        .map(b -> {
+                            String message = "SiliconFlow embeddings 调用失败: HTTP " + resp.statusCode().value() + " " + b;
+                            return resp.statusCode().value() == 429
+                                    ? new EmbeddingThrottledException(message)
+                                    : new IllegalStateException(message);
+                        }))
                 .bodyToMono(String.class)
                 .timeout(Duration.ofSeconds(120))
                 .block();
@@ -108,7 +114,8 @@ public class SiliconFlowEmbeddingModel implements EmbeddingModel {
                 throw new IllegalStateException("SiliconFlow embeddings 返回缺少 data");
             }
 
-            List<Embedding> out = new ArrayList<>(data.size());
+            Embedding[] out = new Embedding[data.size()];
+            int position = 0;
             for (JsonNode item : data) {
                 JsonNode emb = item.path("embedding");
                 if (!emb.isArray() || emb.size() == 0) {
@@ -118,9 +125,14 @@ public class SiliconFlowEmbeddingModel implements EmbeddingModel {
                 for (JsonNode v : emb) {
                     vector.add((float) v.asDouble());
                 }
-                out.add(Embedding.from(vector));
+                int index = item.path("index").asInt(position);
+                if (index < 0 || index >= out.length || out[index] != null) {
+                    throw new IllegalStateException("SiliconFlow embeddings 返回 index 异常: " + index);
+                }
+                out[index] = Embedding.from(vector);
+                position++;
             }
-            return out;
+            return Arrays.asList(out);
         } catch (RuntimeException e) {
             throw e;
         } catch (Exception e) {
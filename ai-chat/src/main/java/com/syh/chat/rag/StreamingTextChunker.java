@@ -0,0 +1,81 @@
+package com.syh.chat.rag;
+
+import java.util.Objects;
+import java.util.function.Consumer;
+
+public class StreamingTextChunker implements Chunker.Session {
+
+    private final int maxChars;
+    private final int overlap;
+    private final Consumer<String> sink;
+    private final StringBuilder window;
+    private boolean pendingSpace;
+    private boolean started;
+
+    public StreamingTextChunker(int maxChars, int overlap, Consumer<String> sink) {
+        if (maxChars <= 0) {
+            throw new IllegalArgumentException("maxChars must be positive");
+        }
+        if (overlap < 0 || overlap >= maxChars) {
+            throw new IllegalArgumentException("overlap must be in [0, maxChars)");
+        }
+        this.maxChars = maxChars;
+        this.overlap = overlap;
+        this.sink = Objects.requireNonNull(sink);
+        this.window = new StringBuilder(maxChars + 1);
+    }
+
+    @Override
+    public void append(CharSequence text) {
+        if (text == null) {
+            return;
+        }
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (isWhitespace(c)) {
+                pendingSpace = started;
+                continue;
+            }
+            if (pendingSpace) {
+                push(' ');
+                pendingSpace = false;
+            }
+            push(c);
+            started = true;
+        }
+    }
+
+    @Override
+    public void finish() {
+        if (window.length() > 0) {
+            emit(window.length());
+            window.setLength(0);
+        }
+        pendingSpace = false;
+    }
+
+    private void push(char c) {
+        if (window.length() == maxChars) {
+            emit(maxChars);
+            window.delete(0, maxChars - overlap);
+        }
+        window.append(c);
+    }
+
+    private void emit(int end) {
+        int start = 0;
+        while (start < end && window.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && window.charAt(end - 1) == ' ') {
+            end--;
+        }
+        if (end > start) {
+            sink.accept(window.substring(start, end));
+        }
+    }
+
+    static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
@@ -12,6 +12,10 @@ import java.util.Optional;
 public interface IngestTaskRepository extends JpaRepository<IngestTask, String> {
     Optional<IngestTask> findByIdAndUserId(String id, Long userId);
 
+    long countByUserIdAndStatusIn(Long userId, java.util.Collection<String> statuses);
+
+    long countByStatusIn(java.util.Collection<String> statuses);
+
     @Modifying
     @Query("""
             update IngestTask t
@@ -2,6 +2,8 @@ package com.syh.chat.repository;
 
 import com.syh.chat.entity.KnowledgeDocument;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
@@ -9,6 +11,17 @@ import java.util.Optional;
 public interface KnowledgeDocumentRepository extends JpaRepository<KnowledgeDocument, Long> {
     List<KnowledgeDocument> findByUserIdOrderByUpdatedAtDesc(Long userId);
     Optional<KnowledgeDocument> findByIdAndUserId(Long id, Long userId);
-}
 
+    Optional<KnowledgeDocument> findFirstByContentHashAndEmbeddingModelAndStatusAndIdNotOrderByIdAsc(
+            String contentHash, String embeddingModel, String status, Long id);
+
+    @Query("select count(d) from KnowledgeDocument d where d.id = :vectorDocumentId or d.vectorDocumentId = :vectorDocumentId")
+    long countVectorReferences(@Param("vectorDocumentId") Long vectorDocumentId);
 
+    @Query("""
+            select count(d) from KnowledgeDocument d
+            where (d.id = :vectorDocumentId or d.vectorDocumentId = :vectorDocumentId)
+              and d.status in ('QUEUED', 'PROCESSING')
+            """)
+    long countInFlightVectorReferences(@Param("vectorDocumentId") Long vectorDocumentId);
+}
@@ -2,13 +2,32 @@ package com.syh.chat.repository;
 
 import com.syh.chat.entity.KnowledgeSegment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
 public interface KnowledgeSegmentRepository extends JpaRepository<KnowledgeSegment, Long> {
     List<KnowledgeSegment> findByUserIdAndDocumentIdOrderBySegmentIndexAsc(Long userId, Long documentId);
     long countByUserIdAndDocumentId(Long userId, Long documentId);
+    long countByUserIdAndDocumentIdAndSegmentIndexLessThan(Long userId, Long documentId, Integer segmentIndex);
     void deleteByUserIdAndDocumentId(Long userId, Long documentId);
+
+    @Transactional
+    @Modifying
+    @Query("delete from KnowledgeSegment s where s.userId = :userId and s.documentId = :documentId and s.segmentIndex >= :fromIndex")
+    int deleteFromSegmentIndex(@Param("userId") Long userId, @Param("documentId") Long documentId, @Param("fromIndex") Integer fromIndex);
+
+    @Query("""
+            select s.chromaId from KnowledgeSegment s
+            where s.documentId in (
+                select d.id from KnowledgeDocument d where d.id = :vectorDocumentId or d.vectorDocumentId = :vectorDocumentId
+            )
+            """)
+    List<String> findChromaIdsByVectorDocumentId(@Param("vectorDocumentId") Long vectorDocumentId);
+
     KnowledgeSegment findTop1ByUserIdAndContentStartingWith(Long userId, String prefix);
 }
 
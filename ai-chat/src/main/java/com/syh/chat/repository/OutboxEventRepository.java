@@ -2,22 +2,57 @@ package com.syh.chat.repository;
 
 import com.syh.chat.entity.OutboxEvent;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
-import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
 
 public interface OutboxEventRepository extends JpaRepository<OutboxEvent, String> {
+    @Query(value = """
+            select id from outbox_event
+            where ((status = 'NEW' and next_retry_at is null)
+                or (status = 'RETRYING' and next_retry_at is not null and next_retry_at <= :now))
+              and (lease_until is null or lease_until <= :now)
+            order by created_at asc
+            limit :limit
+            for update skip locked
+            """, nativeQuery = true)
+    List<String> lockDueIds(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("update OutboxEvent e set e.leaseOwner = :owner, e.leaseUntil = :leaseUntil where e.id in :ids")
+    int lease(@Param("ids") Collection<String> ids, @Param("owner") String owner, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Transactional
+    @Modifying
+    @Query("""
+            update OutboxEvent e
+            set e.status = 'SENT', e.sentAt = :sentAt, e.nextRetryAt = null, e.lastError = null,
+                e.leaseOwner = null, e.leaseUntil = null
+            where e.id in :ids and e.leaseOwner = :owner
+            """)
+    int markSent(@Param("ids") Collection<String> ids, @Param("owner") String owner, @Param("sentAt") LocalDateTime sentAt);
+
+    @Transactional
+    @Modifying
     @Query("""
-            select e from OutboxEvent e
-            where (e.status = 'NEW' and e.nextRetryAt is null)
-               or (e.status = 'RETRYING' and e.nextRetryAt is not null and e.nextRetryAt <= :now)
-            order by e.createdAt asc
+            update OutboxEvent e
+            set e.status = :status, e.attemptCount = :attemptCount, e.nextRetryAt = :nextRetryAt, e.lastError = :lastError,
+                e.leaseOwner = null, e.leaseUntil = null
+            where e.id in :ids and e.leaseOwner = :owner
             """)
-    List<OutboxEvent> findDue(@Param("now") LocalDateTime now, Pageable pageable);
+    int markFailed(
+            @Param("ids") Collection<String> ids,
+            @Param("owner") String owner,
+            @Param("status") String status,
+            @Param("attemptCount") int attemptCount,
+            @Param("nextRetryAt") LocalDateTime nextRetryAt,
+            @Param("lastError") String lastError
+    );
 
     long countByStatusIn(Collection<String> statuses);
 }
@@ -9,19 +9,21 @@ import com.syh.chat.entity.OutboxEvent;
 import com.syh.chat.repository.IngestTaskRepository;
 import com.syh.chat.repository.KnowledgeDocumentRepository;
 import com.syh.chat.repository.OutboxEventRepository;
+import com.syh.chat.util.UploadFiles;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.connection.stream.MapRecord;
 import org.springframework.data.redis.connection.stream.RecordId;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.support.TransactionSynchronization;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDateTime;
@@ -39,9 +41,16 @@ public class AsyncIngestTaskService {
     private final OutboxEventRepository outboxEventRepository;
     private final ObjectMapper objectMapper;
     private final String streamKey;
-    private final Path uploadDir;
+    private final Path tmpDir;
     private final String queueType;
     private final String kafkaTopic;
+    private final String kafkaPartitionKey;
+    private final IngestCostEstimator costEstimator;
+    private final IngestProgressStore progressStore;
+    private final IngestTaskEventPublisher eventPublisher;
+    private final UploadBlobStore blobStore;
+    private final long maxUploadBytes;
+    private final int maxPages;
     private final TransactionTemplate transactionTemplate;
 
     public AsyncIngestTaskService(
@@ -51,10 +60,17 @@ public class AsyncIngestTaskService {
             OutboxEventRepository outboxEventRepository,
             ObjectMapper objectMapper,
             PlatformTransactionManager transactionManager,
+            IngestCostEstimator costEstimator,
+            IngestProgressStore progressStore,
+            IngestTaskEventPublisher eventPublisher,
+            UploadBlobStore blobStore,
             @Value("${app.ingest.stream-key:ingest:tasks}") String streamKey,
             @Value("${app.storage.upload-dir:./data/uploads}") String uploadDir,
             @Value("${app.ingest.queue:redis}") String queueType,
-            @Value("${app.ingest.kafka.topic:ingest-tasks}") String kafkaTopic
+            @Value("${app.ingest.kafka.topic:ingest-tasks}") String kafkaTopic,
+            @Value("${app.ingest.kafka.partition-key:task}") String kafkaPartitionKey,
+            @Value("${spring.servlet.multipart.max-file-size:100MB}") DataSize maxUploadSize,
+            @Value("${app.ingest.upload.max-pages:0}") int maxPages
     ) {
         this.documentRepository = documentRepository;
         this.taskRepository = taskRepository;
@@ -62,32 +78,58 @@ public class AsyncIngestTaskService {
         this.outboxEventRepository = outboxEventRepository;
         this.objectMapper = objectMapper;
         this.streamKey = streamKey;
-        this.uploadDir = Path.of(uploadDir);
+        this.tmpDir = Path.of(uploadDir).toAbsolutePath().resolve("tmp");
         this.queueType = queueType;
         this.kafkaTopic = kafkaTopic;
+        this.kafkaPartitionKey = kafkaPartitionKey;
+        this.costEstimator = costEstimator;
+        this.progressStore = progressStore;
+        this.eventPublisher = eventPublisher;
+        this.blobStore = blobStore;
+        this.maxUploadBytes = maxUploadSize == null ? 0 : maxUploadSize.toBytes();
+        this.maxPages = Math.max(0, maxPages);
         this.transactionTemplate = new TransactionTemplate(Objects.requireNonNull(transactionManager, "transactionManager"));
     }
 
-    @Transactional
     public IngestTaskResponse submit(Long userId, MultipartFile file, String titleOverride) {
         if (file == null || file.isEmpty()) {
             throw new IllegalArgumentException("文件为空");
         }
+        if (maxUploadBytes > 0 && file.getSize() > maxUploadBytes) {
+            throw new IllegalArgumentException("文件超过大小限制");
+        }
         String originalName = file.getOriginalFilename() == null ? "document.pdf" : file.getOriginalFilename();
         String title = (titleOverride == null || titleOverride.isBlank()) ? originalName : titleOverride.trim();
 
+        String taskId = UUID.randomUUID().toString();
+        UploadFiles.Persisted upload = persistFile(taskId, file);
+        try {
+            IngestCostEstimator.Estimate estimate = costEstimator.estimate(upload.path());
+            if (maxPages > 0 && estimate.pages() > maxPages) {
+                throw new IllegalArgumentException("PDF页数超过限制");
+            }
+            return Objects.requireNonNull(transactionTemplate.execute(status -> createTask(userId, title, taskId, upload, estimate)));
+        } finally {
+            try {
+                Files.deleteIfExists(upload.path());
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private IngestTaskResponse createTask(Long userId, String title, String taskId, UploadFiles.Persisted upload, IngestCostEstimator.Estimate estimate) {
+        UploadBlobStore.Blob blob = blobStore.store(upload.path(), upload.sha256(), upload.bytes());
+        String filePath = blob.location();
         KnowledgeDocument doc = new KnowledgeDocument();
         doc.setUserId(userId);
         doc.setTitle(title);
         doc.setStatus("QUEUED");
         doc.setSegmentCount(0);
+        doc.setContentHash(upload.sha256());
         doc.setCreatedAt(LocalDateTime.now());
         doc.setUpdatedAt(LocalDateTime.now());
         doc = documentRepository.save(doc);
 
-        String taskId = UUID.randomUUID().toString();
-        String filePath = persistFile(taskId, file);
-
         IngestTask task = new IngestTask();
         task.setId(taskId);
         task.setUserId(userId);
@@ -97,27 +139,30 @@ public class AsyncIngestTaskService {
         task.setProcessedSegments(0);
         task.setTotalSegments(0);
         task.setFilePath(filePath);
+        task.setBlobHash(blob.sha256());
         task.setAttemptCount(0);
         task.setNextRetryAt(null);
         task.setLastError(null);
+        task.setLane(estimate.lane().key());
+        task.setEstimatedPages(estimate.pages() < 0 ? null : estimate.pages());
         task.setCreatedAt(LocalDateTime.now());
         task.setUpdatedAt(LocalDateTime.now());
         taskRepository.save(task);
 
-        enqueueAfterCommit(taskId, userId, doc.getId(), filePath);
+        enqueueAfterCommit(taskId, userId, doc.getId(), filePath, estimate.lane());
 
         return toResponse(task);
     }
 
-    private void enqueue(String taskId, Long userId, Long documentId, String filePath) {
+    private void enqueue(String taskId, Long userId, Long documentId, String filePath, IngestLane lane) {
         if ("kafka".equalsIgnoreCase(queueType)) {
             try {
                 IngestTaskEvent evt = new IngestTaskEvent(taskId, userId, documentId, filePath);
                 String payload = objectMapper.writeValueAsString(evt);
                 OutboxEvent outbox = new OutboxEvent();
                 outbox.setId(UUID.randomUUID().toString());
-                outbox.setTopic(kafkaTopic);
-                outbox.setMessageKey(taskId);
+                outbox.setTopic(lane.topic(kafkaTopic));
+                outbox.setMessageKey("user".equalsIgnoreCase(kafkaPartitionKey) ? String.valueOf(userId) : taskId);
                 outbox.setPayload(payload);
                 outbox.setStatus("NEW");
                 outbox.setAttemptCount(0);
@@ -137,23 +182,23 @@ public class AsyncIngestTaskService {
         payload.put("filePath", String.valueOf(filePath));
 
         RecordId recordId = stringRedisTemplate.opsForStream().add(
-                MapRecord.create(Objects.requireNonNull(streamKey), payload)
+                MapRecord.create(lane.streamKey(Objects.requireNonNull(streamKey)), payload)
         );
         if (recordId == null) {
             throw new IllegalStateException("任务入队失败");
         }
     }
 
-    private void enqueueAfterCommit(String taskId, Long userId, Long documentId, String filePath) {
+    private void enqueueAfterCommit(String taskId, Long userId, Long documentId, String filePath, IngestLane lane) {
         if (!TransactionSynchronizationManager.isActualTransactionActive()) {
-            enqueue(taskId, userId, documentId, filePath);
+            enqueue(taskId, userId, documentId, filePath, lane);
             return;
         }
         TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
             @Override
             public void afterCommit() {
                 try {
-                    enqueue(taskId, userId, documentId, filePath);
+                    enqueue(taskId, userId, documentId, filePath, lane);
                 } catch (Exception e) {
                     markEnqueueFailed(taskId, e);
                 }
@@ -172,6 +217,7 @@ public class AsyncIngestTaskService {
                 task.setNextRetryAt(null);
                 task.setUpdatedAt(LocalDateTime.now());
                 taskRepository.save(task);
+                eventPublisher.publish(task);
             });
             return null;
         });
@@ -180,21 +226,31 @@ public class AsyncIngestTaskService {
     public IngestTaskResponse get(Long userId, String taskId) {
         IngestTask task = taskRepository.findByIdAndUserId(taskId, userId)
                 .orElseThrow(() -> new IllegalArgumentException("任务不存在"));
+        if (IngestTaskStateService.STATUS_RUNNING.equalsIgnoreCase(task.getStatus())) {
+            progressStore.get(taskId).ifPresent(live -> {
+                task.setProcessedSegments(live.processed());
+                task.setTotalSegments(live.total());
+                task.setProgress(live.progress());
+                if (live.updatedAt() != null) {
+                    task.setUpdatedAt(live.updatedAt());
+                }
+            });
+        }
         return toResponse(task);
     }
 
-    private String persistFile(String taskId, MultipartFile file) {
+    private UploadFiles.Persisted persistFile(String taskId, MultipartFile file) {
         try {
-            Files.createDirectories(uploadDir);
-            Path target = uploadDir.resolve(taskId + ".pdf");
-            Files.write(target, file.getBytes());
-            return target.toAbsolutePath().toString();
+            Files.createDirectories(tmpDir);
+            try (InputStream in = file.getInputStream()) {
+                return UploadFiles.persistPdf(in, tmpDir.resolve(taskId + ".pdf"), maxUploadBytes);
+            }
         } catch (IOException e) {
             throw new IllegalStateException("文件保存失败");
         }
     }
 
-    private IngestTaskResponse toResponse(IngestTask task) {
+    static IngestTaskResponse toResponse(IngestTask task) {
         return new IngestTaskResponse(
                 task.getId(),
                 task.getDocumentId(),
@@ -8,7 +8,10 @@ import dev.langchain4j.data.embedding.Embedding;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -24,18 +27,24 @@ public class ChromaVectorStoreService {
     private final String database;
     private final String collectionPrefix;
     private final ConcurrentHashMap<String, String> collectionIdCache = new ConcurrentHashMap<>();
+    private final int upsertMaxRecords;
+    private final long upsertMaxPayloadBytes;
 
     public ChromaVectorStoreService(
             WebClient.Builder webClientBuilder,
             @Value("${chroma.base-url:http://localhost:8000}") String chromaBaseUrl,
             @Value("${chroma.tenant:default_tenant}") String tenant,
             @Value("${chroma.database:default_database}") String database,
-            @Value("${chroma.collection-prefix:ollama_chat_doc}") String collectionPrefix
+            @Value("${chroma.collection-prefix:ollama_chat_doc}") String collectionPrefix,
+            @Value("${chroma.upsert-max-records:256}") int upsertMaxRecords,
+            @Value("${chroma.upsert-max-payload-bytes:4194304}") long upsertMaxPayloadBytes
     ) {
         this.webClient = webClientBuilder.baseUrl(Objects.requireNonNull(chromaBaseUrl)).build();
         this.tenant = tenant;
         this.database = database;
         this.collectionPrefix = collectionPrefix;
+        this.upsertMaxRecords = Math.max(1, upsertMaxRecords);
+        this.upsertMaxPayloadBytes = Math.max(1, upsertMaxPayloadBytes);
     }
 
     public String collectionNameForDocument(Long documentId) {
@@ -45,22 +54,80 @@ public class ChromaVectorStoreService {
     public void upsert(Long documentId, String id, Embedding embedding, String documentText, Map<String, Object> metadata) {
         String collectionName = collectionNameForDocument(documentId);
         String collectionId = ensureCollectionId(collectionName);
+        postUpsert(collectionId, List.of(new VectorRecord(id, embedding, documentText, metadata)));
+    }
+
+    public UpsertResult upsertBatch(Long documentId, List<VectorRecord> records) {
+        if (records == null || records.isEmpty()) {
+            return new UpsertResult(List.of(), List.of(), null);
+        }
+        String collectionName = collectionNameForDocument(documentId);
+        String collectionId = ensureCollectionId(collectionName);
+
+        List<String> written = new ArrayList<>(records.size());
+        List<String> failed = new ArrayList<>();
+        String lastError = null;
+        for (List<VectorRecord> request : partitionByPayload(records)) {
+            try {
+                postUpsert(collectionId, request);
+                for (VectorRecord r : request) {
+                    written.add(r.id());
+                }
+            } catch (Exception e) {
+                for (VectorRecord r : request) {
+                    failed.add(r.id());
+                }
+                lastError = e.getMessage();
+            }
+        }
+        return new UpsertResult(written, failed, lastError);
+    }
 
+    private List<List<VectorRecord>> partitionByPayload(List<VectorRecord> records) {
+        List<List<VectorRecord>> out = new ArrayList<>();
+        List<VectorRecord> current = new ArrayList<>();
+        long currentBytes = 0;
+        for (VectorRecord r : records) {
+            long size = estimatePayloadBytes(r);
+            boolean full = current.size() >= upsertMaxRecords || currentBytes + size > upsertMaxPayloadBytes;
+            if (!current.isEmpty() && full) {
+                out.add(current);
+                current = new ArrayList<>();
+                currentBytes = 0;
+            }
+            current.add(r);
+            currentBytes += size;
+        }
+        if (!current.isEmpty()) {
+            out.add(current);
+        }
+        return out;
+    }
+
+    private long estimatePayloadBytes(VectorRecord r) {
+        long bytes = 64;
+        bytes += r.id() == null ? 0 : r.id().length();
+        bytes += r.embedding() == null ? 0 : (long) r.embedding().vector().length * 12;
+        bytes += r.document() == null ? 0 : r.document().getBytes(StandardCharsets.UTF_8).length;
+        bytes += r.metadata() == null ? 0 : (long) r.metadata().size() * 48;
+        return bytes;
+    }
+
+    private void postUpsert(String collectionId, List<VectorRecord> records) {
         ObjectNode payload = mapper.createObjectNode();
         ArrayNode ids = mapper.createArrayNode();
-        ids.add(id);
-        payload.set("ids", ids);
-
         ArrayNode embeddings = mapper.createArrayNode();
-        embeddings.add(vectorToJsonArray(embedding));
-        payload.set("embeddings", embeddings);
-
         ArrayNode documents = mapper.createArrayNode();
-        documents.add(documentText);
-        payload.set("documents", documents);
-
         ArrayNode metadatas = mapper.createArrayNode();
-        metadatas.add(mapper.valueToTree(metadata));
+        for (VectorRecord r : records) {
+            ids.add(r.id());
+            embeddings.add(vectorToJsonArray(r.embedding()));
+            documents.add(r.document());
+            metadatas.add(mapper.valueToTree(r.metadata()));
+        }
+        payload.set("ids", ids);
+        payload.set("embeddings", embeddings);
+        payload.set("documents", documents);
         payload.set("metadatas", metadatas);
 
         webClient.post()
@@ -95,6 +162,116 @@ public class ChromaVectorStoreService {
         return extractFirstDocuments(body);
     }
 
+    public void deleteCollection(Long documentId) {
+        String collectionName = collectionNameForDocument(documentId);
+        collectionIdCache.remove(collectionName);
+        webClient.delete()
+                .uri("/api/v2/tenants/{tenant}/databases/{database}/collections/{collectionName}", tenant, database, collectionName)
+                .retrieve()
+                .bodyToMono(String.class)
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> Mono.empty())
+                .block();
+    }
+
+    public List<Long> listDocumentCollections(int pageSize) {
+        String namePrefix = collectionPrefix + "_";
+        int limit = Math.max(1, pageSize);
+        List<Long> documentIds = new ArrayList<>();
+        for (int offset = 0; ; offset += limit) {
+            JsonNode page = readJson(webClient.get()
+                    .uri("/api/v2/tenants/{tenant}/databases/{database}/collections?limit={limit}&offset={offset}",
+                            tenant, database, limit, offset)
+                    .retrieve()
+                    .bodyToMono(String.class)
+                    .block());
+            if (!page.isArray() || page.isEmpty()) {
+                return documentIds;
+            }
+            for (JsonNode c : page) {
+                String name = c.path("name").asText("");
+                String id = c.path("id").asText("");
+                if (!name.startsWith(namePrefix)) {
+                    continue;
+                }
+                try {
+                    documentIds.add(Long.parseLong(name.substring(namePrefix.length())));
+                    if (!id.isBlank()) {
+                        collectionIdCache.putIfAbsent(name, id);
+                    }
+                } catch (NumberFormatException ignored) {
+                }
+            }
+            if (page.size() < limit) {
+                return documentIds;
+            }
+        }
+    }
+
+    public List<String> listIds(Long documentId, int offset, int limit) {
+        String collectionId = findCollectionId(collectionNameForDocument(documentId));
+        if (collectionId == null) {
+            return List.of();
+        }
+        ObjectNode payload = mapper.createObjectNode();
+        payload.set("include", mapper.createArrayNode());
+        payload.put("limit", Math.max(1, limit));
+        payload.put("offset", Math.max(0, offset));
+        JsonNode node = readJson(webClient.post()
+                .uri("/api/v2/tenants/{tenant}/databases/{database}/collections/{collectionId}/get", tenant, database, collectionId)
+                .bodyValue(payload)
+                .retrieve()
+                .bodyToMono(String.class)
+                .block());
+        List<String> ids = new ArrayList<>();
+        for (JsonNode id : node.path("ids")) {
+            ids.add(id.asText());
+        }
+        return ids;
+    }
+
+    public void deleteIds(Long documentId, List<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+        String collectionId = findCollectionId(collectionNameForDocument(documentId));
+        if (collectionId == null) {
+            return;
+        }
+        ObjectNode payload = mapper.createObjectNode();
+        ArrayNode arr = mapper.createArrayNode();
+        ids.forEach(arr::add);
+        payload.set("ids", arr);
+        webClient.post()
+                .uri("/api/v2/tenants/{tenant}/databases/{database}/collections/{collectionId}/delete", tenant, database, collectionId)
+                .bodyValue(payload)
+                .retrieve()
+                .bodyToMono(String.class)
+                .block();
+    }
+
+    private String findCollectionId(String collectionName) {
+        String cached = collectionIdCache.get(collectionName);
+        if (cached != null && !cached.isBlank()) {
+            return cached;
+        }
+        String id = fetchCollectionIdByName(collectionName);
+        if (id != null) {
+            collectionIdCache.put(collectionName, id);
+        }
+        return id;
+    }
+
+    private JsonNode readJson(String body) {
+        if (body == null || body.isBlank()) {
+            return mapper.createObjectNode();
+        }
+        try {
+            return mapper.readTree(body);
+        } catch (Exception e) {
+            throw new IllegalStateException("chroma 响应解析失败");
+        }
+    }
+
     private String ensureCollectionId(String collectionName) {
         String cached = collectionIdCache.get(collectionName);
         if (cached != null && !cached.isBlank()) {
@@ -185,6 +362,13 @@ public class ChromaVectorStoreService {
             return List.of();
         }
     }
-}
 
+    public record VectorRecord(String id, Embedding embedding, String document, Map<String, Object> metadata) {
+    }
 
+    public record UpsertResult(List<String> writtenIds, List<String> failedIds, String lastError) {
+        public boolean hasFailures() {
+            return failedIds != null && !failedIds.isEmpty();
+        }
+    }
+}
@@ -72,18 +72,40 @@ public class DatabaseConversationService {
     
     @Transactional
     public void saveMessage(Long userId, String sessionId, Message message) {
+        Conversation conversation = requireOwnedConversation(userId, sessionId);
+        int messageOrder = messageRepository.findByConversationIdOrderByMessageOrderAsc(conversation.getId()).size();
+        messageRepository.save(toEntity(conversation, userId, message, messageOrder));
+    }
+
+    @Transactional
+    public void saveMessages(Long userId, String sessionId, List<Message> messages) {
+        if (messages == null || messages.isEmpty()) {
+            return;
+        }
+        Conversation conversation = requireOwnedConversation(userId, sessionId);
+        int messageOrder = messageRepository.findByConversationIdOrderByMessageOrderAsc(conversation.getId()).size();
+
+        List<MessageEntity> entities = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            entities.add(toEntity(conversation, userId, message, messageOrder++));
+        }
+        messageRepository.saveAll(entities);
+    }
+
+    private Conversation requireOwnedConversation(Long userId, String sessionId) {
         Optional<Conversation> conversationOpt = conversationRepository.findBySessionId(sessionId);
         if (conversationOpt.isEmpty()) {
             throw new IllegalArgumentException("对话不存在");
         }
-        
+
         Conversation conversation = conversationOpt.get();
         if (!conversation.getUserId().equals(userId)) {
             throw new IllegalArgumentException("无权访问该对话");
         }
-        
-        int messageOrder = messageRepository.findByConversationIdOrderByMessageOrderAsc(conversation.getId()).size();
-        
+        return conversation;
+    }
+
+    private static MessageEntity toEntity(Conversation conversation, Long userId, Message message, int messageOrder) {
         MessageEntity messageEntity = new MessageEntity();
         messageEntity.setConversationId(conversation.getId());
         messageEntity.setUserId(userId);
@@ -92,8 +114,7 @@ public class DatabaseConversationService {
         String imageUrl = message.getImages() != null && !message.getImages().isEmpty() ? message.getImages().get(0) : null;
         messageEntity.setImageUrl(imageUrl);
         messageEntity.setMessageOrder(messageOrder);
-        
-        messageRepository.save(messageEntity);
+        return messageEntity;
     }
 
     @Transactional
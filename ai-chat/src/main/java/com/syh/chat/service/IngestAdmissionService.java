@@ -0,0 +1,219 @@
+package com.syh.chat.service;
+
+import com.syh.chat.repository.IngestTaskRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessagesSummary;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class IngestAdmissionService {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestAdmissionService.class);
+
+    private static final List<String> ACTIVE_STATUSES = List.of(
+            IngestTaskStateService.STATUS_QUEUED,
+            IngestTaskStateService.STATUS_RUNNING,
+            IngestTaskStateService.STATUS_RETRYING
+    );
+    private static final List<String> WAITING_STATUSES = List.of(
+            IngestTaskStateService.STATUS_QUEUED,
+            IngestTaskStateService.STATUS_RETRYING
+    );
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final IngestTaskRepository taskRepository;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final String queueType;
+    private final String streamKey;
+    private final String groupName;
+    private final long maxBacklog;
+    private final long maxPending;
+    private final long maxOldestAgeSeconds;
+    private final double maxMemoryRatio;
+    private final long perUserMaxInFlight;
+    private final long refreshMs;
+    private final double defaultTaskSeconds;
+    private final int workerConcurrency;
+    private final long memoryRetryAfterSeconds;
+    private final long maxRetryAfterSeconds;
+    private volatile QueueSnapshot snapshot;
+
+    public IngestAdmissionService(
+            StringRedisTemplate stringRedisTemplate,
+            IngestTaskRepository taskRepository,
+            MeterRegistry meterRegistry,
+            @Value("${app.ingest.admission.enabled:true}") boolean enabled,
+            @Value("${app.ingest.queue:redis}") String queueType,
+            @Value("${app.ingest.stream-key:ingest:tasks}") String streamKey,
+            @Value("${app.ingest.group:ingest-workers}") String groupName,
+            @Value("${app.ingest.admission.max-backlog:500}") long maxBacklog,
+            @Value("${app.ingest.admission.max-pending:200}") long maxPending,
+            @Value("${app.ingest.admission.max-oldest-age-seconds:1800}") long maxOldestAgeSeconds,
+            @Value("${app.ingest.admission.max-memory-ratio:0.85}") double maxMemoryRatio,
+            @Value("${app.ingest.admission.per-user-max-in-flight:5}") long perUserMaxInFlight,
+            @Value("${app.ingest.admission.refresh-ms:1000}") long refreshMs,
+            @Value("${app.ingest.admission.default-task-seconds:30}") double defaultTaskSeconds,
+            @Value("${app.ingest.workers.concurrency:2}") int workerConcurrency,
+            @Value("${app.ingest.admission.memory-retry-after-seconds:60}") long memoryRetryAfterSeconds,
+            @Value("${app.ingest.admission.max-retry-after-seconds:3600}") long maxRetryAfterSeconds
+    ) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.taskRepository = taskRepository;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.queueType = queueType;
+        this.streamKey = streamKey;
+        this.groupName = groupName;
+        this.maxBacklog = Math.max(0, maxBacklog);
+        this.maxPending = Math.max(0, maxPending);
+        this.maxOldestAgeSeconds = Math.max(0, maxOldestAgeSeconds);
+        this.maxMemoryRatio = maxMemoryRatio;
+        this.perUserMaxInFlight = Math.max(0, perUserMaxInFlight);
+        this.refreshMs = Math.max(0, refreshMs);
+        this.defaultTaskSeconds = defaultTaskSeconds > 0 ? defaultTaskSeconds : 30;
+        this.workerConcurrency = Math.max(1, workerConcurrency);
+        this.memoryRetryAfterSeconds = Math.max(1, memoryRetryAfterSeconds);
+        this.maxRetryAfterSeconds = Math.max(1, maxRetryAfterSeconds);
+    }
+
+    public Decision check(Long userId) {
+        if (!enabled) {
+            return Decision.ADMITTED;
+        }
+        Decision decision = decide(userId, snapshot());
+        Counter.builder("ingest_admission_total").tag("result", decision.reason()).register(meterRegistry).increment();
+        return decision;
+    }
+
+    Decision decide(Long userId, QueueSnapshot s) {
+        if (s != null && s.available()) {
+            if (maxMemoryRatio > 0 && s.maxMemory() > 0 && (double) s.usedMemory() / s.maxMemory() >= maxMemoryRatio) {
+                return Decision.reject(503, "memory", memoryRetryAfterSeconds);
+            }
+            if (maxBacklog > 0 && s.backlog() >= maxBacklog) {
+                return Decision.reject(503, "backlog", drainSeconds(s.backlog() - maxBacklog + 1));
+            }
+            if (maxPending > 0 && s.pending() >= maxPending) {
+                return Decision.reject(503, "pending", drainSeconds(s.pending() - maxPending + 1));
+            }
+            if (maxOldestAgeSeconds > 0 && s.oldestAgeSeconds() >= maxOldestAgeSeconds) {
+                return Decision.reject(503, "age", drainSeconds(Math.max(1, s.backlog())));
+            }
+        }
+        if (perUserMaxInFlight > 0 && userId != null
+                && taskRepository.countByUserIdAndStatusIn(userId, ACTIVE_STATUSES) >= perUserMaxInFlight) {
+            return Decision.reject(429, "quota", drainSeconds(1));
+        }
+        return Decision.ADMITTED;
+    }
+
+    long drainSeconds(long tasks) {
+        double perTask = defaultTaskSeconds;
+        Timer timer = meterRegistry.find("ingest_task_process_seconds").tag("result", "succeeded").timer();
+        if (timer != null && timer.count() > 0) {
+            perTask = timer.mean(TimeUnit.SECONDS);
+        }
+        long seconds = (long) Math.ceil(Math.max(1, tasks) * perTask / workerConcurrency);
+        return Math.max(1, Math.min(maxRetryAfterSeconds, seconds));
+    }
+
+    private QueueSnapshot snapshot() {
+        long now = System.currentTimeMillis();
+        QueueSnapshot current = snapshot;
+        if (current != null && now - current.takenAt() < refreshMs) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            if (current != null && now - current.takenAt() < refreshMs) {
+                return current;
+            }
+            try {
+                current = "kafka".equalsIgnoreCase(queueType) ? readKafkaSnapshot(now) : readStreamSnapshot(now);
+            } catch (Exception e) {
+                log.debug("Ingest admission snapshot unavailable, admitting", e);
+                current = QueueSnapshot.unavailable(now);
+            }
+            snapshot = current;
+            return current;
+        }
+    }
+
+    private QueueSnapshot readStreamSnapshot(long now) {
+        long backlog = 0;
+        long pending = 0;
+        long oldest = now;
+        for (IngestLane lane : IngestLane.values()) {
+            String key = lane.streamKey(Objects.requireNonNull(streamKey));
+            Long size = stringRedisTemplate.opsForStream().size(key);
+            backlog += size == null ? 0 : size;
+            if (size == null || size == 0) {
+                continue;
+            }
+            PendingMessagesSummary summary = stringRedisTemplate.opsForStream().pending(key, Objects.requireNonNull(groupName));
+            pending += summary == null ? 0 : summary.getTotalPendingMessages();
+            List<MapRecord<String, Object, Object>> first = stringRedisTemplate.opsForStream()
+                    .range(key, Range.unbounded(), Limit.limit().count(1));
+            if (first != null && !first.isEmpty() && first.get(0).getId().getTimestamp() != null) {
+                oldest = Math.min(oldest, first.get(0).getId().getTimestamp());
+            }
+        }
+        long[] memory = readMemory();
+        return new QueueSnapshot(true, backlog, pending, Math.max(0, (now - oldest) / 1000), memory[0], memory[1], now);
+    }
+
+    private QueueSnapshot readKafkaSnapshot(long now) {
+        long backlog = taskRepository.countByStatusIn(WAITING_STATUSES);
+        long[] memory = readMemory();
+        return new QueueSnapshot(true, backlog, 0, 0, memory[0], memory[1], now);
+    }
+
+    private long[] readMemory() {
+        Properties info = stringRedisTemplate.execute((RedisCallback<Properties>) (RedisConnection connection) -> connection.serverCommands().info("memory"));
+        if (info == null) {
+            return new long[]{0, 0};
+        }
+        return new long[]{parseLong(info.getProperty("used_memory")), parseLong(info.getProperty("maxmemory"))};
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return value == null ? 0 : Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    record QueueSnapshot(boolean available, long backlog, long pending, long oldestAgeSeconds, long usedMemory, long maxMemory, long takenAt) {
+
+        static QueueSnapshot unavailable(long now) {
+            return new QueueSnapshot(false, 0, 0, 0, 0, 0, now);
+        }
+    }
+
+    public record Decision(boolean admitted, int status, String reason, long retryAfterSeconds) {
+
+        static final Decision ADMITTED = new Decision(true, 200, "admitted", 0);
+
+        static Decision reject(int status, String reason, long retryAfterSeconds) {
+            return new Decision(false, status, reason, retryAfterSeconds);
+        }
+    }
+}
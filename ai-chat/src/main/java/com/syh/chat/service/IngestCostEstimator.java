@@ -0,0 +1,64 @@
+package com.syh.chat.service;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@Component
+public class IngestCostEstimator {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestCostEstimator.class);
+
+    private final int mediumMinPages;
+    private final int largeMinPages;
+    private final long mediumMinBytes;
+    private final long largeMinBytes;
+
+    public IngestCostEstimator(
+            @Value("${app.ingest.lanes.medium-min-pages:30}") int mediumMinPages,
+            @Value("${app.ingest.lanes.large-min-pages:200}") int largeMinPages,
+            @Value("${app.ingest.lanes.medium-min-bytes:10485760}") long mediumMinBytes,
+            @Value("${app.ingest.lanes.large-min-bytes:52428800}") long largeMinBytes
+    ) {
+        this.mediumMinPages = Math.max(1, mediumMinPages);
+        this.largeMinPages = Math.max(this.mediumMinPages, largeMinPages);
+        this.mediumMinBytes = Math.max(1, mediumMinBytes);
+        this.largeMinBytes = Math.max(this.mediumMinBytes, largeMinBytes);
+    }
+
+    public Estimate estimate(Path file) {
+        long bytes;
+        try {
+            bytes = Files.size(file);
+        } catch (IOException e) {
+            bytes = 0;
+        }
+        int pages = -1;
+        try (PDDocument pdf = PDDocument.load(file.toFile(), MemoryUsageSetting.setupTempFileOnly())) {
+            pages = pdf.getNumberOfPages();
+        } catch (IOException e) {
+            log.debug("Page count unavailable, estimating ingest cost from file size: file={}", file, e);
+        }
+        return new Estimate(pages, bytes, laneOf(pages, bytes));
+    }
+
+    IngestLane laneOf(int pages, long bytes) {
+        if (pages >= largeMinPages || bytes >= largeMinBytes) {
+            return IngestLane.LARGE;
+        }
+        if (pages >= mediumMinPages || bytes >= mediumMinBytes) {
+            return IngestLane.MEDIUM;
+        }
+        return IngestLane.SMALL;
+    }
+
+    public record Estimate(int pages, long bytes, IngestLane lane) {
+    }
+}
@@ -0,0 +1,32 @@
+package com.syh.chat.service;
+
+import java.util.Locale;
+
+public enum IngestLane {
+    SMALL,
+    MEDIUM,
+    LARGE;
+
+    public String key() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public String streamKey(String baseStreamKey) {
+        return this == SMALL ? baseStreamKey : baseStreamKey + ":" + key();
+    }
+
+    public String topic(String baseTopic) {
+        return this == SMALL ? baseTopic : baseTopic + "-" + key();
+    }
+
+    public static IngestLane from(String value) {
+        if (value == null || value.isBlank()) {
+            return SMALL;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return SMALL;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.syh.chat.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@Component
+public class IngestProgressStore {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestProgressStore.class);
+
+    private static final String PROCESSED = "processed";
+    private static final String TOTAL = "total";
+    private static final String PROGRESS = "progress";
+    private static final String UPDATED_AT = "updatedAt";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final String keyPrefix;
+    private final Duration ttl;
+
+    public IngestProgressStore(
+            StringRedisTemplate stringRedisTemplate,
+            @Value("${app.ingest.progress.key-prefix:ingest:progress:}") String keyPrefix,
+            @Value("${app.ingest.progress.ttl-seconds:3600}") long ttlSeconds
+    ) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.keyPrefix = keyPrefix;
+        this.ttl = Duration.ofSeconds(Math.max(1, ttlSeconds));
+    }
+
+    public void put(String taskId, int processed, int total, int progress, LocalDateTime updatedAt) {
+        Map<String, String> fields = new HashMap<>();
+        fields.put(PROCESSED, String.valueOf(processed));
+        fields.put(TOTAL, String.valueOf(total));
+        fields.put(PROGRESS, String.valueOf(progress));
+        fields.put(UPDATED_AT, String.valueOf(updatedAt));
+        String key = keyPrefix + taskId;
+        try {
+            stringRedisTemplate.opsForHash().putAll(key, fields);
+            stringRedisTemplate.expire(key, ttl);
+        } catch (Exception e) {
+            log.debug("Failed to write ingest progress: taskId={}", taskId, e);
+        }
+    }
+
+    public Optional<Progress> get(String taskId) {
+        try {
+            List<Object> values = stringRedisTemplate.opsForHash().multiGet(keyPrefix + taskId, List.of(PROCESSED, TOTAL, PROGRESS, UPDATED_AT));
+            if (values == null || values.size() < 4 || values.get(0) == null || values.get(1) == null || values.get(2) == null) {
+                return Optional.empty();
+            }
+            return Optional.of(new Progress(
+                    Integer.parseInt(String.valueOf(values.get(0))),
+                    Integer.parseInt(String.valueOf(values.get(1))),
+                    Integer.parseInt(String.valueOf(values.get(2))),
+                    values.get(3) == null ? null : LocalDateTime.parse(String.valueOf(values.get(3)))
+            ));
+        } catch (Exception e) {
+            log.debug("Failed to read ingest progress: taskId={}", taskId, e);
+            return Optional.empty();
+        }
+    }
+
+    public void delete(String taskId) {
+        try {
+            stringRedisTemplate.delete(keyPrefix + taskId);
+        } catch (Exception e) {
+            log.debug("Failed to delete ingest progress: taskId={}", taskId, e);
+        }
+    }
+
+    public record Progress(int processed, int total, int progress, LocalDateTime updatedAt) {
+    }
+}
@@ -20,33 +20,38 @@ public class IngestQueueMetrics {
             @Value("${app.ingest.stream-key:ingest:tasks}") String streamKey,
             @Value("${app.ingest.group:ingest-workers}") String groupName
     ) {
-        Gauge.builder("ingest_stream_length", () -> {
-                    try {
-                        Long size = stringRedisTemplate.opsForStream().size(Objects.requireNonNull(streamKey));
-                        return size == null ? 0.0 : size.doubleValue();
-                    } catch (Exception e) {
-                        return 0.0;
-                    }
-                })
-                .tag("stream", Objects.requireNonNull(streamKey))
-                .register(meterRegistry);
+        for (IngestLane lane : IngestLane.values()) {
+            String laneStreamKey = lane.streamKey(Objects.requireNonNull(streamKey));
+            Gauge.builder("ingest_stream_length", () -> {
+                        try {
+                            Long size = stringRedisTemplate.opsForStream().size(laneStreamKey);
+                            return size == null ? 0.0 : size.doubleValue();
+                        } catch (Exception e) {
+                            return 0.0;
+                        }
+                    })
+                    .tag("stream", laneStreamKey)
+                    .tag("lane", lane.key())
+                    .register(meterRegistry);
 
-        Gauge.builder("ingest_stream_pending", () -> {
-                    try {
-                        PendingMessagesSummary pending = stringRedisTemplate.opsForStream().pending(
-                                Objects.requireNonNull(streamKey),
-                                Objects.requireNonNull(groupName)
-                        );
-                        if (pending == null) {
+            Gauge.builder("ingest_stream_pending", () -> {
+                        try {
+                            PendingMessagesSummary pending = stringRedisTemplate.opsForStream().pending(
+                                    laneStreamKey,
+                                    Objects.requireNonNull(groupName)
+                            );
+                            if (pending == null) {
+                                return 0.0;
+                            }
+                            return (double) pending.getTotalPendingMessages();
+                        } catch (Exception e) {
                             return 0.0;
                         }
-                        return (double) pending.getTotalPendingMessages();
-                    } catch (Exception e) {
-                        return 0.0;
-                    }
-                })
-                .tag("stream", Objects.requireNonNull(streamKey))
-                .tag("group", Objects.requireNonNull(groupName))
-                .register(meterRegistry);
+                    })
+                    .tag("stream", laneStreamKey)
+                    .tag("lane", lane.key())
+                    .tag("group", Objects.requireNonNull(groupName))
+                    .register(meterRegistry);
+        }
     }
 }
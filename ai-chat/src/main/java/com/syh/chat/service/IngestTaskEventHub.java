@@ -0,0 +1,209 @@
+package com.syh.chat.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.syh.chat.dto.IngestTaskResponse;
+import com.syh.chat.dto.IngestTaskStatusEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+@Component
+public class IngestTaskEventHub implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestTaskEventHub.class);
+
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final long emitterTimeoutMs;
+    private final Map<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final Map<String, Set<Waiter>> waiters = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final ScheduledExecutorService heartbeat;
+
+    public IngestTaskEventHub(
+            RedisMessageListenerContainer listenerContainer,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${app.ingest.events.channel:ingest:task-events}") String channel,
+            @Value("${app.ingest.events.heartbeat-ms:15000}") long heartbeatMs,
+            @Value("${app.ingest.events.emitter-timeout-ms:0}") long emitterTimeoutMs
+    ) {
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.emitterTimeoutMs = Math.max(0, emitterTimeoutMs);
+        listenerContainer.addMessageListener(this, new ChannelTopic(channel));
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ingest-sse-heartbeat");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, heartbeatMs);
+        heartbeat.scheduleAtFixedRate(this::heartbeat, period, period, TimeUnit.MILLISECONDS);
+        Gauge.builder("ingest_task_sse_connections", connections, AtomicInteger::get).register(meterRegistry);
+    }
+
+    public SseEmitter subscribe(Long userId, String taskId, Supplier<IngestTaskResponse> snapshot) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Subscriber subscriber = new Subscriber(userId, emitter);
+        subscribers.compute(taskId, (k, v) -> {
+            Set<Subscriber> set = v == null ? new CopyOnWriteArraySet<>() : v;
+            if (set.add(subscriber)) {
+                connections.incrementAndGet();
+            }
+            return set;
+        });
+        emitter.onCompletion(() -> remove(taskId, subscriber));
+        emitter.onTimeout(() -> remove(taskId, subscriber));
+        emitter.onError(ex -> remove(taskId, subscriber));
+        IngestTaskResponse current;
+        try {
+            current = snapshot.get();
+        } catch (RuntimeException e) {
+            remove(taskId, subscriber);
+            throw e;
+        }
+        deliver(taskId, subscriber, current);
+        return emitter;
+    }
+
+    public CompletableFuture<IngestTaskResponse> awaitCompletion(Long userId, String taskId, Supplier<IngestTaskResponse> snapshot) {
+        CompletableFuture<IngestTaskResponse> future = new CompletableFuture<>();
+        Waiter waiter = new Waiter(userId, future);
+        waiters.compute(taskId, (k, v) -> {
+            Set<Waiter> set = v == null ? new CopyOnWriteArraySet<>() : v;
+            set.add(waiter);
+            return set;
+        });
+        future.whenComplete((r, ex) -> waiters.computeIfPresent(taskId, (k, v) -> {
+            v.remove(waiter);
+            return v.isEmpty() ? null : v;
+        }));
+        try {
+            IngestTaskResponse current = snapshot.get();
+            if (current != null && isTerminal(current.getStatus())) {
+                future.complete(current);
+            }
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        IngestTaskStatusEvent event;
+        try {
+            event = objectMapper.readValue(new String(message.getBody(), StandardCharsets.UTF_8), IngestTaskStatusEvent.class);
+        } catch (Exception e) {
+            log.debug("Skip unparseable ingest task event", e);
+            return;
+        }
+        if (event.getTask() == null || event.getTask().getTaskId() == null) {
+            return;
+        }
+        String taskId = event.getTask().getTaskId();
+        Set<Subscriber> targets = subscribers.get(taskId);
+        if (targets != null) {
+            for (Subscriber subscriber : targets) {
+                if (Objects.equals(subscriber.userId(), event.getUserId())) {
+                    deliver(taskId, subscriber, event.getTask());
+                }
+            }
+        }
+        Set<Waiter> pending = waiters.get(taskId);
+        if (pending != null && isTerminal(event.getTask().getStatus())) {
+            for (Waiter waiter : pending) {
+                if (Objects.equals(waiter.userId(), event.getUserId())) {
+                    waiter.future().complete(event.getTask());
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        for (Set<Waiter> set : waiters.values()) {
+            for (Waiter waiter : set) {
+                waiter.future().cancel(false);
+            }
+        }
+        for (Map.Entry<String, Set<Subscriber>> entry : subscribers.entrySet()) {
+            for (Subscriber subscriber : entry.getValue()) {
+                subscriber.emitter().complete();
+            }
+        }
+    }
+
+    private void deliver(String taskId, Subscriber subscriber, IngestTaskResponse status) {
+        try {
+            subscriber.emitter().send(SseEmitter.event().name("status").data(Objects.requireNonNull(status)));
+            Counter.builder("ingest_task_sse_events_total").tag("result", "sent").register(meterRegistry).increment();
+        } catch (Exception e) {
+            Counter.builder("ingest_task_sse_events_total").tag("result", "error").register(meterRegistry).increment();
+            remove(taskId, subscriber);
+            subscriber.emitter().completeWithError(e);
+            return;
+        }
+        if (isTerminal(status.getStatus())) {
+            remove(taskId, subscriber);
+            subscriber.emitter().complete();
+        }
+    }
+
+    private void heartbeat() {
+        for (Map.Entry<String, Set<Subscriber>> entry : subscribers.entrySet()) {
+            for (Subscriber subscriber : entry.getValue()) {
+                try {
+                    subscriber.emitter().send(SseEmitter.event().comment("ping"));
+                } catch (Exception e) {
+                    remove(entry.getKey(), subscriber);
+                    subscriber.emitter().completeWithError(e);
+                }
+            }
+        }
+    }
+
+    private void remove(String taskId, Subscriber subscriber) {
+        subscribers.computeIfPresent(taskId, (k, v) -> {
+            if (v.remove(subscriber)) {
+                connections.decrementAndGet();
+            }
+            return v.isEmpty() ? null : v;
+        });
+    }
+
+    private static boolean isTerminal(String status) {
+        return IngestTaskStateService.STATUS_SUCCEEDED.equalsIgnoreCase(status)
+                || IngestTaskStateService.STATUS_DEAD.equalsIgnoreCase(status);
+    }
+
+    private record Subscriber(Long userId, SseEmitter emitter) {
+    }
+
+    private record Waiter(Long userId, CompletableFuture<IngestTaskResponse> future) {
+    }
+}
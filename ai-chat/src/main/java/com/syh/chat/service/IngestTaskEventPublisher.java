@@ -0,0 +1,71 @@
+package com.syh.chat.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.syh.chat.dto.IngestTaskStatusEvent;
+import com.syh.chat.entity.IngestTask;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@Component
+public class IngestTaskEventPublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestTaskEventPublisher.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final String channel;
+
+    public IngestTaskEventPublisher(
+            StringRedisTemplate stringRedisTemplate,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${app.ingest.events.channel:ingest:task-events}") String channel
+    ) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.channel = channel;
+    }
+
+    public void publish(IngestTask task) {
+        if (task == null || task.getId() == null) {
+            return;
+        }
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(new IngestTaskStatusEvent(task.getUserId(), AsyncIngestTaskService.toResponse(task)));
+        } catch (Exception e) {
+            log.debug("Failed to serialize ingest task event: taskId={}", task.getId(), e);
+            return;
+        }
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            send(task.getId(), payload);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                send(task.getId(), payload);
+            }
+        });
+    }
+
+    private void send(String taskId, String payload) {
+        String result = "ok";
+        try {
+            stringRedisTemplate.convertAndSend(channel, payload);
+        } catch (Exception e) {
+            result = "error";
+            log.debug("Failed to publish ingest task event: taskId={}", taskId, e);
+        }
+        Counter.builder("ingest_task_events_published_total").tag("result", result).register(meterRegistry).increment();
+    }
+}
@@ -0,0 +1,109 @@
+package com.syh.chat.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.syh.chat.dto.IngestTaskEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+@Component
+@ConditionalOnProperty(name = "app.ingest.queue", havingValue = "kafka")
+@ConditionalOnProperty(name = "app.ingest.kafka.listener-mode", havingValue = "batch")
+public class IngestTaskKafkaBatchConsumer {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestTaskKafkaBatchConsumer.class);
+
+    private final ObjectMapper objectMapper;
+    private final IngestTaskProcessor ingestTaskProcessor;
+    private final MeterRegistry meterRegistry;
+    private final Duration nackSleep;
+
+    public IngestTaskKafkaBatchConsumer(
+            ObjectMapper objectMapper,
+            IngestTaskProcessor ingestTaskProcessor,
+            MeterRegistry meterRegistry,
+            @Value("${app.ingest.kafka.batch-nack-sleep-ms:1000}") long nackSleepMs
+    ) {
+        this.objectMapper = objectMapper;
+        this.ingestTaskProcessor = ingestTaskProcessor;
+        this.meterRegistry = meterRegistry;
+        this.nackSleep = Duration.ofMillis(Math.max(0, nackSleepMs));
+    }
+
+    @KafkaListener(
+            topics = "${app.ingest.kafka.topic:ingest-tasks}",
+            groupId = "${app.ingest.kafka.group:ingest-workers}",
+            containerFactory = "ingestKafkaBatchListenerContainerFactory",
+            concurrency = "${app.ingest.lanes.small.kafka-concurrency:${app.ingest.kafka.concurrency:1}}"
+    )
+    public void onMessages(List<ConsumerRecord<String, String>> records, Acknowledgment ack) {
+        meterRegistry.summary("ingest_kafka_batch_size").record(records.size());
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, String> record = records.get(i);
+            if (!processOne(record)) {
+                count("acked", i);
+                count("redelivered", records.size() - i);
+                ack.nack(i, nackSleep);
+                return;
+            }
+        }
+        count("acked", records.size());
+        ack.acknowledge();
+    }
+
+    @KafkaListener(
+            topics = "${app.ingest.kafka.topic:ingest-tasks}-medium",
+            groupId = "${app.ingest.kafka.group:ingest-workers}",
+            containerFactory = "ingestKafkaBatchListenerContainerFactory",
+            concurrency = "${app.ingest.lanes.medium.kafka-concurrency:${app.ingest.kafka.concurrency:1}}"
+    )
+    public void onMediumMessages(List<ConsumerRecord<String, String>> records, Acknowledgment ack) {
+        onMessages(records, ack);
+    }
+
+    // large 道不跟随 app.ingest.kafka.concurrency，与 app.ingest.lanes.large.workers 一致默认只处理 1 个大文档
+    @KafkaListener(
+            topics = "${app.ingest.kafka.topic:ingest-tasks}-large",
+            groupId = "${app.ingest.kafka.group:ingest-workers}",
+            containerFactory = "ingestKafkaBatchListenerContainerFactory",
+            concurrency = "${app.ingest.lanes.large.kafka-concurrency:1}"
+    )
+    public void onLargeMessages(List<ConsumerRecord<String, String>> records, Acknowledgment ack) {
+        onMessages(records, ack);
+    }
+
+    private boolean processOne(ConsumerRecord<String, String> record) {
+        IngestTaskEvent evt;
+        try {
+            evt = objectMapper.readValue(record.value(), IngestTaskEvent.class);
+        } catch (Exception e) {
+            log.warn("Skip unparseable ingest event: partition={}, offset={}", record.partition(), record.offset(), e);
+            count("skipped", 1);
+            return true;
+        }
+        try {
+            IngestTaskProcessingResult result = ingestTaskProcessor.process(evt.getTaskId(), evt.getUserId(), evt.getDocumentId(), evt.getFilePath());
+            return result != null && result.shouldAck();
+        } catch (Exception e) {
+            log.warn("Ingest event failed, batch will be redelivered from it: taskId={}, partition={}, offset={}",
+                    evt.getTaskId(), record.partition(), record.offset(), e);
+            return false;
+        }
+    }
+
+    private void count(String result, int amount) {
+        if (amount > 0) {
+            Counter.builder("ingest_kafka_records_total").tag("result", result).register(meterRegistry).increment(amount);
+        }
+    }
+}
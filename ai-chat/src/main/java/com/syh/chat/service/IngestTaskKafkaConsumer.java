@@ -9,6 +9,7 @@ import org.springframework.stereotype.Component;
 
 @Component
 @ConditionalOnProperty(name = "app.ingest.queue", havingValue = "kafka")
+@ConditionalOnProperty(name = "app.ingest.kafka.listener-mode", havingValue = "record", matchIfMissing = true)
 public class IngestTaskKafkaConsumer {
 
     private final ObjectMapper objectMapper;
@@ -24,7 +25,9 @@ public class IngestTaskKafkaConsumer {
 
     @KafkaListener(
             topics = "${app.ingest.kafka.topic:ingest-tasks}",
-            groupId = "${app.ingest.kafka.group:ingest-workers}"
+            groupId = "${app.ingest.kafka.group:ingest-workers}",
+            containerFactory = "ingestKafkaListenerContainerFactory",
+            concurrency = "${app.ingest.lanes.small.kafka-concurrency:${app.ingest.kafka.concurrency:1}}"
     )
     public void onMessage(String payload, Acknowledgment ack) {
         try {
@@ -39,4 +42,25 @@ public class IngestTaskKafkaConsumer {
             throw new IllegalStateException(e);
         }
     }
+
+    @KafkaListener(
+            topics = "${app.ingest.kafka.topic:ingest-tasks}-medium",
+            groupId = "${app.ingest.kafka.group:ingest-workers}",
+            containerFactory = "ingestKafkaListenerContainerFactory",
+            concurrency = "${app.ingest.lanes.medium.kafka-concurrency:${app.ingest.kafka.concurrency:1}}"
+    )
+    public void onMediumMessage(String payload, Acknowledgment ack) {
+        onMessage(payload, ack);
+    }
+
+    // large 道不跟随 app.ingest.kafka.concurrency，与 app.ingest.lanes.large.workers 一致默认只处理 1 个大文档
+    @KafkaListener(
+            topics = "${app.ingest.kafka.topic:ingest-tasks}-large",
+            groupId = "${app.ingest.kafka.group:ingest-workers}",
+            containerFactory = "ingestKafkaListenerContainerFactory",
+            concurrency = "${app.ingest.lanes.large.kafka-concurrency:1}"
+    )
+    public void onLargeMessage(String payload, Acknowledgment ack) {
+        onMessage(payload, ack);
+    }
 }
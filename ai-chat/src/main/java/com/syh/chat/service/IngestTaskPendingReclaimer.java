@@ -5,19 +5,18 @@ import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.data.redis.connection.stream.MapRecord;
-import org.springframework.data.redis.connection.stream.PendingMessage;
-import org.springframework.data.redis.connection.stream.PendingMessages;
 import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
 import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.time.Duration;
-import java.util.HashMap;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -30,127 +29,191 @@ public class IngestTaskPendingReclaimer {
 
     private static final Logger log = LoggerFactory.getLogger(IngestTaskPendingReclaimer.class);
 
+    static final String START_CURSOR = "0-0";
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> AUTOCLAIM_SCRIPT = new DefaultRedisScript<>(
+            "local cursor = redis.call('GET', KEYS[2]) or '0-0'\n" +
+                    "local r = redis.call('XAUTOCLAIM', KEYS[1], ARGV[1], ARGV[2], ARGV[3], cursor, 'COUNT', ARGV[4])\n" +
+                    "redis.call('SET', KEYS[2], r[1])\n" +
+                    "return {cursor, r[1], r[2], r[3] or {}}\n",
+            List.class
+    );
+
     private final StringRedisTemplate stringRedisTemplate;
     private final IngestTaskProcessor ingestTaskProcessor;
+    private final IngestWorkerPool workerPool;
     private final MeterRegistry meterRegistry;
     private final String streamKey;
     private final String groupName;
     private final String consumerName;
     private final long minIdleMs;
     private final int batchSize;
+    private final boolean drainEnabled;
+    private final int drainMaxPages;
     private final String dlqStreamKey;
 
     public IngestTaskPendingReclaimer(
             StringRedisTemplate stringRedisTemplate,
             IngestTaskProcessor ingestTaskProcessor,
+            IngestWorkerPool workerPool,
             MeterRegistry meterRegistry,
             @Value("${app.ingest.stream-key:ingest:tasks}") String streamKey,
             @Value("${app.ingest.group:ingest-workers}") String groupName,
             @Value("${app.ingest.redis.reclaim-idle-ms:600000}") long minIdleMs,
             @Value("${app.ingest.redis.reclaim-batch-size:20}") int batchSize,
+            @Value("${app.ingest.redis.reclaim-drain-enabled:true}") boolean drainEnabled,
+            @Value("${app.ingest.redis.reclaim-drain-max-pages:50}") int drainMaxPages,
             @Value("${app.ingest.redis.dlq-stream-key:ingest:tasks:dlq}") String dlqStreamKey
     ) {
         this.stringRedisTemplate = stringRedisTemplate;
         this.ingestTaskProcessor = ingestTaskProcessor;
+        this.workerPool = workerPool;
         this.meterRegistry = meterRegistry;
         this.streamKey = streamKey;
         this.groupName = groupName;
         this.consumerName = "reclaimer-" + UUID.randomUUID();
         this.minIdleMs = Math.max(0, minIdleMs);
         this.batchSize = Math.max(1, batchSize);
+        this.drainEnabled = drainEnabled;
+        this.drainMaxPages = Math.max(1, drainMaxPages);
         this.dlqStreamKey = dlqStreamKey;
     }
 
     @Scheduled(fixedDelayString = "${app.ingest.redis.reclaim-interval-ms:5000}")
-    public void reclaimOnce() {
-        StreamOperations<String, String, String> ops = stringRedisTemplate.opsForStream();
-        PendingMessages pending;
-        try {
-            pending = ops.pending(
-                    Objects.requireNonNull(streamKey),
-                    Objects.requireNonNull(groupName),
-                    org.springframework.data.domain.Range.unbounded(),
-                    (long) batchSize
-            );
-        } catch (Exception e) {
-            return;
-        }
-
-        if (pending == null || pending.isEmpty()) {
-            return;
+    public synchronized void reclaimOnce() {
+        for (IngestLane lane : IngestLane.values()) {
+            reclaimLane(lane);
         }
+    }
 
-        List<RecordId> ids = new ArrayList<>();
-        for (PendingMessage p : pending) {
-            if (p == null) {
-                continue;
+    private void reclaimLane(IngestLane lane) {
+        String laneStreamKey = lane.streamKey(Objects.requireNonNull(streamKey));
+        int maxPages = drainEnabled ? drainMaxPages : 1;
+        for (int page = 0; page < maxPages; page++) {
+            int remaining = workerPool.remainingCapacity(lane);
+            if (page == 0 && remaining == 0) {
+                return;
             }
-            if (p.getElapsedTimeSinceLastDelivery() != null && p.getElapsedTimeSinceLastDelivery().toMillis() >= minIdleMs) {
-                ids.add(p.getId());
+            int count = Math.min(batchSize, Math.max(1, remaining));
+            Page claimed;
+            try {
+                claimed = autoclaim(laneStreamKey, count);
+            } catch (Exception e) {
+                log.warn("IngestTaskPendingReclaimer XAUTOCLAIM failed: streamKey={}, group={}", laneStreamKey, groupName, e);
+                return;
+            }
+            if (claimed.deleted() > 0) {
+                Counter.builder("ingest_stream_reclaim_total").tag("result", "deleted").tag("lane", lane.key()).register(meterRegistry).increment(claimed.deleted());
+            }
+            if (!claimed.records().isEmpty()) {
+                Counter.builder("ingest_stream_reclaim_total").tag("result", "claimed").tag("lane", lane.key()).register(meterRegistry).increment(claimed.records().size());
+                Counter.builder("ingest_stream_reclaim_pages_total").tag("mode", page == 0 ? "normal" : "drain").register(meterRegistry).increment();
+            }
+            for (MapRecord<String, String, String> record : claimed.records()) {
+                if (!dispatch(lane, record)) {
+                    return;
+                }
+            }
+            boolean wrapped = START_CURSOR.equals(claimed.nextCursor());
+            if (wrapped || claimed.records().size() + claimed.deleted() < count) {
+                return;
             }
         }
-        if (ids.isEmpty()) {
-            return;
-        }
+    }
 
-        List<MapRecord<String, String, String>> claimed;
-        try {
-            claimed = ops.claim(
-                    Objects.requireNonNull(streamKey),
-                    Objects.requireNonNull(groupName),
-                    Objects.requireNonNull(consumerName),
-                    Objects.requireNonNull(Duration.ofMillis(minIdleMs)),
-                    Objects.requireNonNull(ids.toArray(new RecordId[0]))
-            );
-        } catch (Exception e) {
-            return;
-        }
+    @SuppressWarnings("unchecked")
+    Page autoclaim(String laneStreamKey, int count) {
+        List<Object> reply = stringRedisTemplate.execute(
+                Objects.requireNonNull(AUTOCLAIM_SCRIPT),
+                List.of(laneStreamKey, laneStreamKey + ":reclaim-cursor:" + groupName),
+                Objects.requireNonNull(groupName),
+                consumerName,
+                String.valueOf(minIdleMs),
+                String.valueOf(count)
+        );
+        return parse(laneStreamKey, reply);
+    }
 
-        if (claimed == null || claimed.isEmpty()) {
-            return;
+    @SuppressWarnings("unchecked")
+    static Page parse(String streamKey, List<Object> reply) {
+        if (reply == null || reply.size() < 3) {
+            return new Page(START_CURSOR, List.of(), 0);
         }
+        String nextCursor = String.valueOf(reply.get(1));
+        List<MapRecord<String, String, String>> records = new ArrayList<>();
+        Object entries = reply.get(2);
+        if (entries instanceof List<?> list) {
+            for (Object entry : list) {
+                if (!(entry instanceof List<?> pair) || pair.size() < 2 || !(pair.get(1) instanceof List<?> fields)) {
+                    continue;
+                }
+                Map<String, String> value = new HashMap<>();
+                for (int i = 0; i + 1 < fields.size(); i += 2) {
+                    value.put(String.valueOf(fields.get(i)), String.valueOf(fields.get(i + 1)));
+                }
+                records.add(StreamRecords.newRecord()
+                        .in(streamKey)
+                        .withId(RecordId.of(String.valueOf(pair.get(0))))
+                        .ofMap(value));
+            }
+        }
+        int deleted = reply.size() > 3 && reply.get(3) instanceof List<?> ids ? ids.size() : 0;
+        return new Page(nextCursor, records, deleted);
+    }
 
-        Counter.builder("ingest_stream_reclaim_total").tag("result", "claimed").register(meterRegistry).increment(claimed.size());
+    private boolean dispatch(IngestLane lane, MapRecord<String, String, String> record) {
+        Map<String, String> value = record.getValue();
+        String taskId = value.get("taskId");
+        String userIdRaw = value.get("userId");
+        String documentIdRaw = value.get("documentId");
+        String filePath = value.get("filePath");
 
-        for (MapRecord<String, String, String> record : claimed) {
-            Map<String, String> value = record.getValue();
-            String taskId = value.get("taskId");
-            String userIdRaw = value.get("userId");
-            String documentIdRaw = value.get("documentId");
-            String filePath = value.get("filePath");
+        if (taskId == null || userIdRaw == null || documentIdRaw == null || filePath == null) {
+            acknowledge(record);
+            return true;
+        }
 
-            if (taskId == null || userIdRaw == null || documentIdRaw == null || filePath == null) {
-                acknowledge(record);
-                continue;
-            }
+        Long userId;
+        Long documentId;
+        try {
+            userId = Long.valueOf(userIdRaw);
+            documentId = Long.valueOf(documentIdRaw);
+        } catch (Exception e) {
+            acknowledge(record);
+            return true;
+        }
 
-            Long userId;
-            Long documentId;
-            try {
-                userId = Long.valueOf(userIdRaw);
-                documentId = Long.valueOf(documentIdRaw);
-            } catch (Exception e) {
-                acknowledge(record);
-                continue;
+        try {
+            if (!workerPool.trySubmit(lane, userId, () -> process(record, taskId, userId, documentId, filePath))) {
+                Counter.builder("ingest_stream_reclaim_total").tag("result", "deferred").tag("lane", lane.key()).register(meterRegistry).increment();
+                return false;
             }
+            return true;
+        } catch (Exception e) {
+            log.warn("IngestTaskPendingReclaimer submit failed: streamKey={}, group={}, recordId={}, taskId={}",
+                    record.getStream(), groupName, record.getId(), taskId, e);
+            return false;
+        }
+    }
 
-            IngestTaskProcessingResult result;
-            try {
-                result = ingestTaskProcessor.process(taskId, userId, documentId, filePath);
-            } catch (Exception e) {
-                Counter.builder("ingest_stream_reclaim_total").tag("result", "error").register(meterRegistry).increment();
-                log.warn("IngestTaskPendingReclaimer process failed: streamKey={}, group={}, recordId={}, taskId={}, userId={}, documentId={}",
-                        streamKey, groupName, record.getId(), taskId, userIdRaw, documentIdRaw, e);
-                continue;
-            }
+    private void process(MapRecord<String, String, String> record, String taskId, Long userId, Long documentId, String filePath) {
+        IngestTaskProcessingResult result;
+        try {
+            result = ingestTaskProcessor.process(taskId, userId, documentId, filePath);
+        } catch (Exception e) {
+            Counter.builder("ingest_stream_reclaim_total").tag("result", "error").register(meterRegistry).increment();
+            log.warn("IngestTaskPendingReclaimer process failed: streamKey={}, group={}, recordId={}, taskId={}, userId={}, documentId={}",
+                    record.getStream(), groupName, record.getId(), taskId, userId, documentId, e);
+            return;
+        }
 
-            if (result != null && result.shouldAck()) {
-                if (result == IngestTaskProcessingResult.DEAD) {
-                    writeDlq(record, taskId);
-                    Counter.builder("ingest_task_dlq_total").register(meterRegistry).increment();
-                }
-                acknowledge(record);
+        if (result != null && result.shouldAck()) {
+            if (result == IngestTaskProcessingResult.DEAD) {
+                writeDlq(record, taskId);
+                Counter.builder("ingest_task_dlq_total").register(meterRegistry).increment();
             }
+            acknowledge(record);
         }
     }
 
@@ -162,7 +225,7 @@ public class IngestTaskPendingReclaimer {
             String recordId = record.getId() == null ? "" : String.valueOf(record.getId().getValue());
             Map<String, String> payload = new HashMap<>();
             payload.put("taskId", String.valueOf(taskId));
-            payload.put("sourceStream", String.valueOf(streamKey));
+            payload.put("sourceStream", String.valueOf(record.getStream()));
             payload.put("sourceGroup", String.valueOf(groupName));
             payload.put("sourceRecordId", recordId);
             stringRedisTemplate.opsForStream().add(Objects.requireNonNull(dlqStreamKey), payload);
@@ -173,11 +236,15 @@ public class IngestTaskPendingReclaimer {
     private void acknowledge(MapRecord<String, String, String> record) {
         try {
             stringRedisTemplate.opsForStream().acknowledge(
-                    Objects.requireNonNull(streamKey),
+                    Objects.requireNonNull(record.getStream()),
                     Objects.requireNonNull(groupName),
                     record.getId()
             );
+            stringRedisTemplate.opsForStream().delete(Objects.requireNonNull(record.getStream()), record.getId());
         } catch (Exception ignored) {
         }
     }
+
+    record Page(String nextCursor, List<MapRecord<String, String, String>> records, int deleted) {
+    }
 }
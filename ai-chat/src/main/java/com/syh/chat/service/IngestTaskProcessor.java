@@ -4,23 +4,26 @@ import com.syh.chat.entity.IngestTask;
 import com.syh.chat.entity.KnowledgeDocument;
 import com.syh.chat.repository.IngestTaskRepository;
 import com.syh.chat.repository.KnowledgeDocumentRepository;
+import com.syh.chat.repository.KnowledgeSegmentRepository;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
-import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 public class IngestTaskProcessor {
 
     private final IngestTaskRepository taskRepository;
     private final KnowledgeDocumentRepository documentRepository;
+    private final KnowledgeSegmentRepository segmentRepository;
+    private final IngestProgressStore progressStore;
+    private final IngestTaskEventPublisher eventPublisher;
+    private final UploadBlobStore blobStore;
     private final KnowledgeIngestService knowledgeIngestService;
     private final IngestTaskStateService stateService;
     private final MeterRegistry meterRegistry;
@@ -28,12 +31,20 @@ public class IngestTaskProcessor {
     public IngestTaskProcessor(
             IngestTaskRepository taskRepository,
             KnowledgeDocumentRepository documentRepository,
+            KnowledgeSegmentRepository segmentRepository,
+            IngestProgressStore progressStore,
+            IngestTaskEventPublisher eventPublisher,
+            UploadBlobStore blobStore,
             KnowledgeIngestService knowledgeIngestService,
             IngestTaskStateService stateService,
             MeterRegistry meterRegistry
     ) {
         this.taskRepository = taskRepository;
         this.documentRepository = documentRepository;
+        this.segmentRepository = segmentRepository;
+        this.progressStore = progressStore;
+        this.eventPublisher = eventPublisher;
+        this.blobStore = blobStore;
         this.knowledgeIngestService = knowledgeIngestService;
         this.stateService = stateService;
         this.meterRegistry = meterRegistry;
@@ -75,8 +86,10 @@ public class IngestTaskProcessor {
             sample.stop(Timer.builder("ingest_task_process_seconds").tag("result", "busy").register(meterRegistry));
             return IngestTaskProcessingResult.BUSY;
         }
-        task.setStatus(IngestTaskStateService.STATUS_RUNNING);
-        task.setUpdatedAt(now);
+        String lane = IngestLane.from(task.getLane()).key();
+        if (task.getAttemptCount() == null || task.getAttemptCount() == 0) {
+            recordSinceCreated("ingest_task_queue_latency_seconds", lane, task, now);
+        }
 
         Optional<KnowledgeDocument> docOpt = documentRepository.findById(Objects.requireNonNull(documentId));
         if (docOpt.isPresent()) {
@@ -86,28 +99,29 @@ public class IngestTaskProcessor {
             documentRepository.save(doc);
         }
 
-        AtomicReference<Instant> lastPersistRef = new AtomicReference<>(Instant.EPOCH);
-        try {
-            knowledgeIngestService.ingestExistingDocumentFromFile(userId, documentId, filePath, (processed, total) -> {
+        int resumeFrom = (int) segmentRepository.countByUserIdAndDocumentId(userId, documentId);
+        try (UploadBlobStore.LocalCopy local = blobStore.open(filePath)) {
+            knowledgeIngestService.ingestExistingDocumentFromFile(userId, documentId, local.path().toString(), resumeFrom, (processed, total) -> {
+                int progress = total <= 0 ? 0 : Math.min(99, (processed * 100) / total);
+                LocalDateTime checkpointAt = LocalDateTime.now();
+                progressStore.put(task.getId(), processed, total, progress, checkpointAt);
                 task.setProcessedSegments(processed);
                 task.setTotalSegments(total);
-                int progress = total <= 0 ? 0 : Math.min(99, (processed * 100) / total);
                 task.setProgress(progress);
-                Instant now1 = Instant.now();
-                Instant lastPersist = lastPersistRef.get();
-                if (processed == total || processed % 5 == 0 || Duration.between(lastPersist, now1).toMillis() > 1000) {
-                    task.setUpdatedAt(LocalDateTime.now());
-                    taskRepository.save(task);
-                    lastPersistRef.set(now1);
-                }
+                task.setUpdatedAt(checkpointAt);
+                eventPublisher.publish(task);
             });
 
-            stateService.markSucceeded(task, LocalDateTime.now());
+            LocalDateTime readyAt = LocalDateTime.now();
+            stateService.markSucceeded(task, readyAt);
+            progressStore.delete(task.getId());
+            recordSinceCreated("ingest_task_time_to_ready_seconds", lane, task, readyAt);
             outcome = "succeeded";
             Counter.builder("ingest_task_process_total").tag("result", outcome).register(meterRegistry).increment();
             sample.stop(Timer.builder("ingest_task_process_seconds").tag("result", outcome).register(meterRegistry));
             return IngestTaskProcessingResult.SUCCEEDED;
         } catch (Exception e) {
+            task.setProcessedSegments((int) segmentRepository.countByUserIdAndDocumentId(userId, documentId));
             IngestTaskProcessingResult result = stateService.markFailure(task, e, LocalDateTime.now());
             outcome = (result == IngestTaskProcessingResult.DEAD) ? "dead" : "retry";
             Counter.builder("ingest_task_process_total").tag("result", outcome).register(meterRegistry).increment();
@@ -115,4 +129,19 @@ public class IngestTaskProcessor {
             return result;
         }
     }
+
+    private void recordSinceCreated(String name, String lane, IngestTask task, LocalDateTime at) {
+        if (task.getCreatedAt() == null) {
+            return;
+        }
+        Duration elapsed = Duration.between(task.getCreatedAt(), at);
+        if (elapsed.isNegative()) {
+            return;
+        }
+        Timer.builder(name)
+                .tag("lane", lane)
+                .publishPercentiles(0.5, 0.95)
+                .register(meterRegistry)
+                .record(elapsed);
+    }
 }
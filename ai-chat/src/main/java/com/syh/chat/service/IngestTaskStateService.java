@@ -23,6 +23,7 @@ public class IngestTaskStateService {
 
     private final IngestTaskRepository taskRepository;
     private final IngestTaskTransitionRepository transitionRepository;
+    private final IngestTaskEventPublisher eventPublisher;
     private final int maxAttempts;
     private final Duration baseBackoff;
     private final Duration maxBackoff;
@@ -30,12 +31,14 @@ public class IngestTaskStateService {
     public IngestTaskStateService(
             IngestTaskRepository taskRepository,
             IngestTaskTransitionRepository transitionRepository,
+            IngestTaskEventPublisher eventPublisher,
             @Value("${app.ingest.redis.max-attempts:10}") int maxAttempts,
             @Value("${app.ingest.redis.retry.base-backoff-ms:1000}") long baseBackoffMs,
             @Value("${app.ingest.redis.retry.max-backoff-ms:600000}") long maxBackoffMs
     ) {
         this.taskRepository = taskRepository;
         this.transitionRepository = transitionRepository;
+        this.eventPublisher = eventPublisher;
         this.maxAttempts = maxAttempts;
         this.baseBackoff = Duration.ofMillis(Math.max(0, baseBackoffMs));
         this.maxBackoff = Duration.ofMillis(Math.max(0, maxBackoffMs));
@@ -54,6 +57,9 @@ public class IngestTaskStateService {
             return false;
         }
         recordTransition(task.getId(), from, STATUS_RUNNING, task.getAttemptCount(), null, now);
+        task.setStatus(STATUS_RUNNING);
+        task.setUpdatedAt(now);
+        eventPublisher.publish(task);
         return true;
     }
 
@@ -67,6 +73,7 @@ public class IngestTaskStateService {
         task.setUpdatedAt(now);
         taskRepository.save(task);
         recordTransition(task.getId(), from, STATUS_SUCCEEDED, task.getAttemptCount(), null, now);
+        eventPublisher.publish(task);
     }
 
     @Transactional
@@ -86,6 +93,7 @@ public class IngestTaskStateService {
             task.setUpdatedAt(now);
             taskRepository.save(task);
             recordTransition(task.getId(), from, STATUS_DEAD, nextAttempt, msg, now);
+            eventPublisher.publish(task);
             return IngestTaskProcessingResult.DEAD;
         }
 
@@ -94,6 +102,7 @@ public class IngestTaskStateService {
         task.setUpdatedAt(now);
         taskRepository.save(task);
         recordTransition(task.getId(), from, STATUS_RETRYING, nextAttempt, msg, now);
+        eventPublisher.publish(task);
         return IngestTaskProcessingResult.RETRY;
     }
 
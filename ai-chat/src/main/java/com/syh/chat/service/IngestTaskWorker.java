@@ -16,7 +16,9 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
@@ -30,22 +32,25 @@ public class IngestTaskWorker {
     private final StreamMessageListenerContainer<String, MapRecord<String, String, String>> container;
     private final StringRedisTemplate stringRedisTemplate;
     private final IngestTaskProcessor ingestTaskProcessor;
+    private final IngestWorkerPool workerPool;
     private final String streamKey;
     private final String groupName;
     private final String consumerName;
 
-    private Subscription subscription;
+    private final List<Subscription> subscriptions = new ArrayList<>();
 
     public IngestTaskWorker(
             StreamMessageListenerContainer<String, MapRecord<String, String, String>> container,
             StringRedisTemplate stringRedisTemplate,
             IngestTaskProcessor ingestTaskProcessor,
+            IngestWorkerPool workerPool,
             @Value("${app.ingest.stream-key:ingest:tasks}") String streamKey,
             @Value("${app.ingest.group:ingest-workers}") String groupName
     ) {
         this.container = container;
         this.stringRedisTemplate = stringRedisTemplate;
         this.ingestTaskProcessor = ingestTaskProcessor;
+        this.workerPool = workerPool;
         this.streamKey = streamKey;
         this.groupName = groupName;
         this.consumerName = "c-" + UUID.randomUUID();
@@ -53,36 +58,39 @@ public class IngestTaskWorker {
 
     @PostConstruct
     public void start() {
-        ensureGroup();
-        this.subscription = container.receive(
-                Consumer.from(Objects.requireNonNull(groupName), Objects.requireNonNull(consumerName)),
-                StreamOffset.create(Objects.requireNonNull(streamKey), ReadOffset.lastConsumed()),
-                this::handleMessage
-        );
+        for (IngestLane lane : IngestLane.values()) {
+            String laneStreamKey = lane.streamKey(Objects.requireNonNull(streamKey));
+            ensureGroup(laneStreamKey);
+            subscriptions.add(container.receive(
+                    Consumer.from(Objects.requireNonNull(groupName), Objects.requireNonNull(consumerName)),
+                    StreamOffset.create(laneStreamKey, ReadOffset.lastConsumed()),
+                    record -> handleMessage(lane, record)
+            ));
+        }
         container.start();
     }
 
     @PreDestroy
     public void stop() {
-        if (subscription != null) {
+        for (Subscription subscription : subscriptions) {
             subscription.cancel();
         }
         container.stop();
     }
 
-    private void ensureGroup() {
-        Boolean exists = stringRedisTemplate.hasKey(Objects.requireNonNull(streamKey));
+    private void ensureGroup(String laneStreamKey) {
+        Boolean exists = stringRedisTemplate.hasKey(laneStreamKey);
         if (exists == null || !exists) {
             Map<String, String> init = new HashMap<>();
             init.put("init", "1");
-            RecordId rid = stringRedisTemplate.opsForStream().add(Objects.requireNonNull(streamKey), init);
+            RecordId rid = stringRedisTemplate.opsForStream().add(laneStreamKey, init);
             if (rid != null) {
-                stringRedisTemplate.opsForStream().delete(Objects.requireNonNull(streamKey), rid);
+                stringRedisTemplate.opsForStream().delete(laneStreamKey, rid);
             }
         }
         try {
             stringRedisTemplate.opsForStream().createGroup(
-                    Objects.requireNonNull(streamKey),
+                    laneStreamKey,
                     ReadOffset.from("0-0"),
                     Objects.requireNonNull(groupName)
             );
@@ -90,7 +98,7 @@ public class IngestTaskWorker {
         }
     }
 
-    private void handleMessage(MapRecord<String, String, String> record) {
+    private void handleMessage(IngestLane lane, MapRecord<String, String, String> record) {
         Map<String, String> value = record.getValue();
         String taskId = value.get("taskId");
         String userIdRaw = value.get("userId");
@@ -112,6 +120,17 @@ public class IngestTaskWorker {
             return;
         }
 
+        try {
+            workerPool.submit(lane, userId, () -> process(record, taskId, userId, documentId, filePath));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("IngestTaskWorker submit failed: streamKey={}, group={}, recordId={}, taskId={}",
+                    record.getStream(), groupName, record.getId(), taskId, e);
+        }
+    }
+
+    private void process(MapRecord<String, String, String> record, String taskId, Long userId, Long documentId, String filePath) {
         try {
             IngestTaskProcessingResult result = ingestTaskProcessor.process(taskId, userId, documentId, filePath);
             if (result != null && result.shouldAck()) {
@@ -119,17 +138,18 @@ public class IngestTaskWorker {
             }
         } catch (Exception e) {
             log.warn("IngestTaskWorker failed: streamKey={}, group={}, recordId={}, taskId={}, userId={}, documentId={}",
-                    streamKey, groupName, record.getId(), taskId, userIdRaw, documentIdRaw, e);
+                    record.getStream(), groupName, record.getId(), taskId, userId, documentId, e);
         }
     }
 
     private void acknowledge(MapRecord<String, String, String> record) {
         try {
             stringRedisTemplate.opsForStream().acknowledge(
-                    Objects.requireNonNull(streamKey),
+                    Objects.requireNonNull(record.getStream()),
                     Objects.requireNonNull(groupName),
                     record.getId()
             );
+            stringRedisTemplate.opsForStream().delete(Objects.requireNonNull(record.getStream()), record.getId());
         } catch (Exception ignored) {
         }
     }
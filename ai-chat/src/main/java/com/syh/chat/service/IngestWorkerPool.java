@@ -0,0 +1,304 @@
+package com.syh.chat.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Component
+@ConditionalOnProperty(name = "app.ingest.queue", havingValue = "redis", matchIfMissing = true)
+public class IngestWorkerPool {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestWorkerPool.class);
+
+    private final MeterRegistry meterRegistry;
+    private final int concurrency;
+    private final int queueCapacity;
+    private final int perUserMaxInFlight;
+    private final ExecutorService workers;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Map<IngestLane, Lane> lanes = new EnumMap<>(IngestLane.class);
+    private final Map<Long, Integer> inFlightByUser = new HashMap<>();
+    private int queued;
+    private int inFlight;
+    private boolean stopping;
+
+    public IngestWorkerPool(
+            MeterRegistry meterRegistry,
+            @Value("${app.ingest.workers.concurrency:2}") int concurrency,
+            @Value("${app.ingest.workers.queue-capacity:16}") int queueCapacity,
+            @Value("${app.ingest.workers.per-user-max-in-flight:0}") int perUserMaxInFlight,
+            @Value("${app.ingest.lanes.small.workers:0}") int smallWorkers,
+            @Value("${app.ingest.lanes.medium.workers:1}") int mediumWorkers,
+            @Value("${app.ingest.lanes.large.workers:1}") int largeWorkers
+    ) {
+        this.meterRegistry = meterRegistry;
+        this.concurrency = Math.max(1, concurrency);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.perUserMaxInFlight = Math.max(0, perUserMaxInFlight);
+        lanes.put(IngestLane.SMALL, new Lane(share(smallWorkers)));
+        lanes.put(IngestLane.MEDIUM, new Lane(share(mediumWorkers)));
+        lanes.put(IngestLane.LARGE, new Lane(share(largeWorkers)));
+        AtomicInteger seq = new AtomicInteger();
+        ThreadFactory threadFactory = r -> {
+            Thread t = new Thread(r, "ingest-worker-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        this.workers = Executors.newFixedThreadPool(this.concurrency, threadFactory);
+        for (int i = 0; i < this.concurrency; i++) {
+            workers.execute(this::workLoop);
+        }
+        Gauge.builder("ingest_worker_in_flight", this, p -> p.snapshot(true)).register(meterRegistry);
+        Gauge.builder("ingest_worker_queued", this, p -> p.snapshot(false)).register(meterRegistry);
+        Gauge.builder("ingest_worker_concurrency", this, p -> p.concurrency).register(meterRegistry);
+        for (Map.Entry<IngestLane, Lane> entry : lanes.entrySet()) {
+            Lane lane = entry.getValue();
+            Gauge.builder("ingest_worker_lane_queued", this, p -> p.laneSnapshot(lane, false)).tag("lane", entry.getKey().key()).register(meterRegistry);
+            Gauge.builder("ingest_worker_lane_in_flight", this, p -> p.laneSnapshot(lane, true)).tag("lane", entry.getKey().key()).register(meterRegistry);
+            Gauge.builder("ingest_worker_lane_share", lane, l -> l.share).tag("lane", entry.getKey().key()).register(meterRegistry);
+        }
+    }
+
+    public void submit(Long userId, Runnable task) throws InterruptedException {
+        submit(IngestLane.SMALL, userId, task);
+    }
+
+    public void submit(IngestLane lane, Long userId, Runnable task) throws InterruptedException {
+        IngestLane l = lane == null ? IngestLane.SMALL : lane;
+        Job job = new Job(l, userId == null ? 0L : userId, task, System.nanoTime());
+        Lane target = lanes.get(l);
+        lock.lockInterruptibly();
+        try {
+            while (target.queued >= queueCapacity && !stopping) {
+                notFull.await();
+            }
+            if (stopping) {
+                throw new IllegalStateException("入库线程池已关闭");
+            }
+            enqueue(target, job);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean trySubmit(IngestLane lane, Long userId, Runnable task) {
+        IngestLane l = lane == null ? IngestLane.SMALL : lane;
+        Job job = new Job(l, userId == null ? 0L : userId, task, System.nanoTime());
+        Lane target = lanes.get(l);
+        lock.lock();
+        try {
+            if (stopping || target.queued >= queueCapacity) {
+                return false;
+            }
+            enqueue(target, job);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void enqueue(Lane target, Job job) {
+        target.queues.computeIfAbsent(job.userId(), k -> new ArrayDeque<>()).addLast(job);
+        target.queued++;
+        queued++;
+        notEmpty.signal();
+    }
+
+    public int remainingCapacity(IngestLane lane) {
+        Lane target = lanes.get(lane == null ? IngestLane.SMALL : lane);
+        lock.lock();
+        try {
+            return stopping ? 0 : Math.max(0, queueCapacity - target.queued);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lock.lock();
+        try {
+            stopping = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(30, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void workLoop() {
+        while (true) {
+            Job job;
+            try {
+                job = take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (job == null) {
+                return;
+            }
+            Timer.builder("ingest_worker_queue_wait_seconds").tag("lane", job.lane().key()).register(meterRegistry)
+                    .record(System.nanoTime() - job.enqueuedAt(), TimeUnit.NANOSECONDS);
+            String result = "ok";
+            try {
+                job.task().run();
+            } catch (RuntimeException e) {
+                result = "error";
+                log.warn("Ingest worker task failed: userId={}", job.userId(), e);
+            } finally {
+                complete(job);
+                Counter.builder("ingest_worker_tasks_total").tag("result", result).register(meterRegistry).increment();
+            }
+        }
+    }
+
+    private Job take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (true) {
+                if (stopping) {
+                    return null;
+                }
+                Job job = pollFair();
+                if (job != null) {
+                    return job;
+                }
+                notEmpty.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Job pollFair() {
+        List<Lane> tried = new ArrayList<>(lanes.size());
+        while (true) {
+            Lane best = null;
+            for (Lane lane : lanes.values()) {
+                if (tried.contains(lane) || lane.queued == 0 || lane.inFlight >= lane.share) {
+                    continue;
+                }
+                if (best == null || (long) lane.inFlight * best.share < (long) best.inFlight * lane.share) {
+                    best = lane;
+                }
+            }
+            if (best == null) {
+                return null;
+            }
+            Job job = pollFair(best);
+            if (job == null) {
+                tried.add(best);
+                continue;
+            }
+            queued--;
+            inFlight++;
+            best.inFlight++;
+            inFlightByUser.merge(job.userId(), 1, Integer::sum);
+            notFull.signalAll();
+            return job;
+        }
+    }
+
+    private Job pollFair(Lane lane) {
+        Iterator<Map.Entry<Long, ArrayDeque<Job>>> it = lane.queues.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, ArrayDeque<Job>> entry = it.next();
+            Long userId = entry.getKey();
+            if (perUserMaxInFlight > 0 && inFlightByUser.getOrDefault(userId, 0) >= perUserMaxInFlight) {
+                continue;
+            }
+            ArrayDeque<Job> userQueue = entry.getValue();
+            Job job = userQueue.pollFirst();
+            it.remove();
+            if (!userQueue.isEmpty()) {
+                lane.queues.put(userId, userQueue);
+            }
+            lane.queued--;
+            return job;
+        }
+        return null;
+    }
+
+    private void complete(Job job) {
+        lock.lock();
+        try {
+            inFlight--;
+            lanes.get(job.lane()).inFlight--;
+            inFlightByUser.computeIfPresent(job.userId(), (k, v) -> v <= 1 ? null : v - 1);
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private double snapshot(boolean running) {
+        lock.lock();
+        try {
+            return running ? inFlight : queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private double laneSnapshot(Lane lane, boolean running) {
+        lock.lock();
+        try {
+            return running ? lane.inFlight : lane.queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int share(int workers) {
+        return workers <= 0 ? concurrency : Math.min(workers, concurrency);
+    }
+
+    private static final class Lane {
+        private final int share;
+        private final LinkedHashMap<Long, ArrayDeque<Job>> queues = new LinkedHashMap<>();
+        private int queued;
+        private int inFlight;
+
+        private Lane(int share) {
+            this.share = share;
+        }
+    }
+
+    private record Job(IngestLane lane, Long userId, Runnable task, long enqueuedAt) {
+    }
+}
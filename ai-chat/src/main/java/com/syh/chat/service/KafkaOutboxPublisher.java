@@ -7,15 +7,25 @@ import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Component
 @ConditionalOnProperty(name = "app.ingest.queue", havingValue = "kafka")
@@ -24,83 +34,160 @@ public class KafkaOutboxPublisher {
     private final OutboxEventRepository outboxEventRepository;
     private final KafkaTemplate<String, String> kafkaTemplate;
     private final MeterRegistry meterRegistry;
+    private final TransactionTemplate transactionTemplate;
     private final int maxAttempts;
     private final Duration baseBackoff;
     private final Duration maxBackoff;
     private final int batchSize;
+    private final Duration lease;
+    private final Duration sendTimeout;
+    private final String owner;
 
     public KafkaOutboxPublisher(
             OutboxEventRepository outboxEventRepository,
             KafkaTemplate<String, String> kafkaTemplate,
             MeterRegistry meterRegistry,
+            PlatformTransactionManager transactionManager,
             @Value("${app.ingest.kafka.max-attempts:10}") int maxAttempts,
             @Value("${app.ingest.kafka.retry.base-backoff-ms:1000}") long baseBackoffMs,
             @Value("${app.ingest.kafka.retry.max-backoff-ms:600000}") long maxBackoffMs,
-            @Value("${app.ingest.kafka.publish-batch-size:20}") int batchSize
+            @Value("${app.ingest.kafka.publish-batch-size:20}") int batchSize,
+            @Value("${app.ingest.kafka.publish-lease-ms:60000}") long leaseMs,
+            @Value("${app.ingest.kafka.publish-timeout-ms:30000}") long sendTimeoutMs
     ) {
         this.outboxEventRepository = outboxEventRepository;
         this.kafkaTemplate = kafkaTemplate;
         this.meterRegistry = meterRegistry;
+        this.transactionTemplate = new TransactionTemplate(Objects.requireNonNull(transactionManager, "transactionManager"));
         this.maxAttempts = maxAttempts;
         this.baseBackoff = Duration.ofMillis(Math.max(0, baseBackoffMs));
         this.maxBackoff = Duration.ofMillis(Math.max(0, maxBackoffMs));
         this.batchSize = Math.max(1, batchSize);
+        this.sendTimeout = Duration.ofMillis(Math.max(1, sendTimeoutMs));
+        this.lease = Duration.ofMillis(Math.max(leaseMs, this.sendTimeout.toMillis() * 2));
+        this.owner = "outbox-" + UUID.randomUUID();
     }
 
     @Scheduled(fixedDelayString = "${app.ingest.kafka.publish-interval-ms:1000}")
     public void publishPending() {
+        List<OutboxEvent> claimed;
+        do {
+            claimed = claim(LocalDateTime.now());
+            if (!claimed.isEmpty()) {
+                publish(claimed);
+            }
+        } while (claimed.size() >= batchSize);
+    }
+
+    private List<OutboxEvent> claim(LocalDateTime now) {
+        List<OutboxEvent> claimed = transactionTemplate.execute(status -> {
+            List<String> ids = outboxEventRepository.lockDueIds(now, batchSize);
+            if (ids == null || ids.isEmpty()) {
+                return List.of();
+            }
+            outboxEventRepository.lease(ids, owner, now.plus(lease));
+            List<OutboxEvent> events = new ArrayList<>(outboxEventRepository.findAllById(ids));
+            events.sort(Comparator.comparing(OutboxEvent::getCreatedAt, Comparator.nullsFirst(Comparator.naturalOrder())));
+            return events;
+        });
+        return claimed == null ? List.of() : claimed;
+    }
+
+    private void publish(List<OutboxEvent> events) {
+        Timer.Sample sample = Timer.start(meterRegistry);
         LocalDateTime now = LocalDateTime.now();
-        List<OutboxEvent> due = outboxEventRepository.findDue(now, PageRequest.of(0, batchSize));
-        for (OutboxEvent evt : due) {
-            Timer.Sample sample = Timer.start(meterRegistry);
+        Map<OutboxEvent, CompletableFuture<?>> inFlight = new LinkedHashMap<>();
+        Map<Failure, List<String>> failures = new LinkedHashMap<>();
+        for (OutboxEvent evt : events) {
+            int attempts = evt.getAttemptCount() == null ? 0 : evt.getAttemptCount();
+            if (attempts >= maxAttempts) {
+                failures.computeIfAbsent(new Failure("DEAD", attempts, null, truncate("exceeded maxAttempts=" + maxAttempts, 2000)),
+                        k -> new ArrayList<>()).add(evt.getId());
+                continue;
+            }
+            String topic = evt.getTopic();
+            String key = evt.getMessageKey();
+            String payload = evt.getPayload();
+            if (topic == null || key == null || payload == null) {
+                failures.computeIfAbsent(failure(attempts, now, "outbox event missing topic/key/payload"), k -> new ArrayList<>()).add(evt.getId());
+                continue;
+            }
             try {
-                if (evt.getAttemptCount() != null && evt.getAttemptCount() >= maxAttempts) {
-                    markDead(evt, now, "exceeded maxAttempts=" + maxAttempts);
-                    Counter.builder("outbox_publish_total").tag("result", "dead").register(meterRegistry).increment();
-                    sample.stop(Timer.builder("outbox_publish_seconds").tag("result", "dead").register(meterRegistry));
-                    continue;
-                }
-                String topic = evt.getTopic();
-                String key = evt.getMessageKey();
-                String payload = evt.getPayload();
-                if (topic == null || key == null || payload == null) {
-                    throw new IllegalStateException("outbox event missing topic/key/payload");
-                }
-                kafkaTemplate.send(Objects.requireNonNull(topic), Objects.requireNonNull(key), Objects.requireNonNull(payload)).get();
-                evt.setStatus("SENT");
-                evt.setSentAt(LocalDateTime.now());
-                evt.setNextRetryAt(null);
-                evt.setLastError(null);
-                outboxEventRepository.save(evt);
-                Counter.builder("outbox_publish_total").tag("result", "success").register(meterRegistry).increment();
+                inFlight.put(evt, kafkaTemplate.send(topic, key, payload));
+            } catch (RuntimeException e) {
+                failures.computeIfAbsent(failure(attempts, now, String.valueOf(e.getMessage())), k -> new ArrayList<>()).add(evt.getId());
+            }
+        }
+
+        awaitAll(inFlight.values());
+        LocalDateTime sentAt = LocalDateTime.now();
+        List<String> sent = new ArrayList<>();
+        List<OutboxEvent> sentEvents = new ArrayList<>();
+        for (Map.Entry<OutboxEvent, CompletableFuture<?>> entry : inFlight.entrySet()) {
+            OutboxEvent evt = entry.getKey();
+            String error = errorOf(entry.getValue());
+            if (error == null) {
+                sent.add(evt.getId());
+                sentEvents.add(evt);
+            } else {
+                int attempts = evt.getAttemptCount() == null ? 0 : evt.getAttemptCount();
+                failures.computeIfAbsent(failure(attempts, now, error), k -> new ArrayList<>()).add(evt.getId());
+            }
+        }
+
+        if (!sent.isEmpty()) {
+            outboxEventRepository.markSent(sent, owner, sentAt);
+            for (OutboxEvent evt : sentEvents) {
+                evt.setSentAt(sentAt);
                 recordDelay(evt);
-                sample.stop(Timer.builder("outbox_publish_seconds").tag("result", "success").register(meterRegistry));
-            } catch (Exception e) {
-                int currentAttempt = evt.getAttemptCount() == null ? 0 : evt.getAttemptCount();
-                int nextAttempt = currentAttempt + 1;
-                evt.setAttemptCount(nextAttempt);
-                evt.setLastError(truncate(String.valueOf(e.getMessage()), 2000));
-
-                if (nextAttempt >= maxAttempts) {
-                    markDead(evt, now, evt.getLastError());
-                    Counter.builder("outbox_publish_total").tag("result", "dead").register(meterRegistry).increment();
-                    sample.stop(Timer.builder("outbox_publish_seconds").tag("result", "dead").register(meterRegistry));
-                } else {
-                    evt.setStatus("RETRYING");
-                    evt.setNextRetryAt(now.plus(computeBackoff(nextAttempt)));
-                    outboxEventRepository.save(evt);
-                    Counter.builder("outbox_publish_total").tag("result", "failure").register(meterRegistry).increment();
-                    sample.stop(Timer.builder("outbox_publish_seconds").tag("result", "failure").register(meterRegistry));
-                }
+            }
+            count("success", sent.size(), sample);
+        }
+        for (Map.Entry<Failure, List<String>> entry : failures.entrySet()) {
+            Failure f = entry.getKey();
+            outboxEventRepository.markFailed(entry.getValue(), owner, f.status(), f.attemptCount(), f.nextRetryAt(), f.lastError());
+            count("DEAD".equals(f.status()) ? "dead" : "failure", entry.getValue().size(), sample);
+        }
+    }
+
+    private Failure failure(int currentAttempt, LocalDateTime now, String error) {
+        int nextAttempt = currentAttempt + 1;
+        String lastError = truncate(error, 2000);
+        if (nextAttempt >= maxAttempts) {
+            return new Failure("DEAD", nextAttempt, null, lastError);
+        }
+        return new Failure("RETRYING", nextAttempt, now.plus(computeBackoff(nextAttempt)), lastError);
+    }
+
+    private void awaitAll(Iterable<CompletableFuture<?>> futures) {
+        long deadline = System.nanoTime() + sendTimeout.toNanos();
+        for (CompletableFuture<?> future : futures) {
+            try {
+                future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException | TimeoutException ignored) {
             }
         }
     }
 
-    private void markDead(OutboxEvent evt, LocalDateTime now, String reason) {
-        evt.setStatus("DEAD");
-        evt.setNextRetryAt(null);
-        evt.setLastError(truncate(reason, 2000));
-        outboxEventRepository.save(evt);
+    private String errorOf(CompletableFuture<?> future) {
+        if (!future.isDone()) {
+            return "send timeout after " + sendTimeout.toMillis() + " ms";
+        }
+        try {
+            future.join();
+            return null;
+        } catch (RuntimeException e) {
+            Throwable cause = e.getCause() == null ? e : e.getCause();
+            return String.valueOf(cause.getMessage());
+        }
+    }
+
+    private void count(String result, int amount, Timer.Sample sample) {
+        Counter.builder("outbox_publish_total").tag("result", result).register(meterRegistry).increment(amount);
+        sample.stop(Timer.builder("outbox_publish_seconds").tag("result", result).register(meterRegistry));
     }
 
     private void recordDelay(OutboxEvent evt) {
@@ -142,4 +229,7 @@ public class KafkaOutboxPublisher {
         if (s.length() <= maxLen) return s;
         return s.substring(0, maxLen);
     }
+
+    private record Failure(String status, int attemptCount, LocalDateTime nextRetryAt, String lastError) {
+    }
 }
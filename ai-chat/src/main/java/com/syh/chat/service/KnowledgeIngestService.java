@@ -5,40 +5,62 @@ import com.syh.chat.entity.KnowledgeSegment;
 import com.syh.chat.repository.KnowledgeDocumentRepository;
 import com.syh.chat.repository.KnowledgeSegmentRepository;
 import com.syh.chat.model.Message;
+import com.syh.chat.rag.Chunker;
+import com.syh.chat.rag.EmbeddingGovernorTimeoutException;
+import com.syh.chat.rag.EmbeddingThrottledException;
+import com.syh.chat.util.ContentHash;
 import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.text.PDFTextStripper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.beans.factory.annotation.Value;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.UUID;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
 
 @Service
 public class KnowledgeIngestService {
 
+    private static final Logger log = LoggerFactory.getLogger(KnowledgeIngestService.class);
+
     private final KnowledgeDocumentRepository documentRepository;
     private final KnowledgeSegmentRepository segmentRepository;
     private final EmbeddingModel embeddingModel;
@@ -49,6 +71,20 @@ public class KnowledgeIngestService {
     private final MeterRegistry meterRegistry;
     private final StringRedisTemplate redisTemplate;
     private final ObjectMapper objectMapper;
+    private final PdfTextExtractor pdfTextExtractor;
+    private final int embeddingBatchSize;
+    private final int embeddingBatchMaxChars;
+    private final int pipelineQueueCapacity;
+    private final int embedConcurrency;
+    private final int vectorConcurrency;
+    private final String embeddingModelName;
+    private final TransactionTemplate transactionTemplate;
+    private final VectorGarbageCollector vectorGarbageCollector;
+    private final Chunker chunker;
+    private final Scheduler parseScheduler;
+    private final Scheduler embedScheduler;
+    private final Scheduler vectorScheduler;
+    private final Set<StageDepth> activeStages = ConcurrentHashMap.newKeySet();
 
     public KnowledgeIngestService(
             KnowledgeDocumentRepository documentRepository,
@@ -60,7 +96,18 @@ public class KnowledgeIngestService {
             @Value("${knowledge.summary-model:Auto}") String summaryModelName,
             MeterRegistry meterRegistry,
             StringRedisTemplate redisTemplate,
-            ObjectMapper objectMapper
+            ObjectMapper objectMapper,
+            PdfTextExtractor pdfTextExtractor,
+            @Value("${app.ingest.embedding.batch-size:16}") int embeddingBatchSize,
+            @Value("${app.ingest.embedding.batch-max-chars:12000}") int embeddingBatchMaxChars,
+            @Value("${app.ingest.pipeline.queue-capacity:4}") int pipelineQueueCapacity,
+            @Value("${app.ingest.pipeline.parse-concurrency:2}") int parseConcurrency,
+            @Value("${app.ingest.pipeline.embed-concurrency:2}") int embedConcurrency,
+            @Value("${app.ingest.pipeline.vector-concurrency:2}") int vectorConcurrency,
+            @Value("${siliconflow.embedding-model:BAAI/bge-m3}") String embeddingModelName,
+            PlatformTransactionManager transactionManager,
+            VectorGarbageCollector vectorGarbageCollector,
+            Chunker chunker
     ) {
         this.documentRepository = documentRepository;
         this.segmentRepository = segmentRepository;
@@ -72,81 +119,143 @@ public class KnowledgeIngestService {
         this.meterRegistry = meterRegistry;
         this.redisTemplate = redisTemplate;
         this.objectMapper = objectMapper;
+        this.pdfTextExtractor = pdfTextExtractor;
+        this.embeddingBatchSize = Math.max(1, embeddingBatchSize);
+        this.embeddingBatchMaxChars = Math.max(1, embeddingBatchMaxChars);
+        this.pipelineQueueCapacity = Math.max(1, pipelineQueueCapacity);
+        this.embedConcurrency = Math.max(1, embedConcurrency);
+        this.vectorConcurrency = Math.max(1, vectorConcurrency);
+        this.embeddingModelName = embeddingModelName;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.vectorGarbageCollector = vectorGarbageCollector;
+        this.chunker = chunker;
+        this.parseScheduler = Schedulers.newBoundedElastic(Math.max(1, parseConcurrency),
+                Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE, "ingest-parse", 60, true);
+        this.embedScheduler = Schedulers.newBoundedElastic(this.embedConcurrency * 4,
+                Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE, "ingest-embed", 60, true);
+        this.vectorScheduler = Schedulers.newBoundedElastic(this.vectorConcurrency * 4,
+                Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE, "ingest-vector", 60, true);
+        Gauge.builder("knowledge_ingest_stage_queue_depth", () -> stageDepth(d -> d.embed.get()))
+                .tag("stage", "embed")
+                .register(meterRegistry);
+        Gauge.builder("knowledge_ingest_stage_queue_depth", () -> stageDepth(d -> d.vector.get()))
+                .tag("stage", "vector")
+                .register(meterRegistry);
+        Gauge.builder("knowledge_ingest_stage_queue_depth", () -> stageDepth(d -> d.persist.get()))
+                .tag("stage", "persist")
+                .register(meterRegistry);
     }
 
-    @Transactional
     public KnowledgeDocument ingestExistingDocumentFromFile(Long userId, Long documentId, String filePath, BiConsumer<Integer, Integer> progress) {
+        return ingestExistingDocumentFromFile(userId, documentId, filePath, 0, progress);
+    }
+
+    public KnowledgeDocument ingestExistingDocumentFromFile(Long userId, Long documentId, String filePath, int resumeFrom,
+                                                            BiConsumer<Integer, Integer> progress) {
         if (filePath == null || filePath.isBlank()) {
             throw new IllegalArgumentException("文件路径为空");
         }
-        try {
-            byte[] bytes = Files.readAllBytes(Path.of(filePath));
-            return ingestExistingDocument(userId, documentId, bytes, progress);
-        } catch (Exception e) {
+        Path path = Path.of(filePath);
+        if (!Files.isRegularFile(path)) {
             throw new IllegalArgumentException("读取文件失败");
         }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        ResumePoint resume = Objects.requireNonNull(transactionTemplate.execute(status -> prepareIngest(userId, documentId, resumeFrom)));
+        KnowledgeDocument doc = resume.document();
+        if (resume.startIndex() > 0) {
+            Counter.builder("knowledge_ingest_resumed_total").register(meterRegistry).increment();
+            Counter.builder("knowledge_ingest_resumed_segments_total").register(meterRegistry).increment(resume.startIndex());
+            return ingestPdf(userId, doc, () -> pdfTextExtractor.open(path), resume.startIndex(), progress, sample);
+        }
+
+        String contentHash = doc.getContentHash();
+        if (contentHash == null || contentHash.isBlank()) {
+            try {
+                contentHash = ContentHash.sha256Hex(path);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("读取文件失败");
+            }
+        }
+        String hash = contentHash;
+        KnowledgeDocument reused = transactionTemplate.execute(status -> reuseIngested(doc, hash, sample));
+        if (reused != null) {
+            if (progress != null) {
+                progress.accept(reused.getSegmentCount(), reused.getSegmentCount());
+            }
+            return reused;
+        }
+        return ingestPdf(userId, doc, () -> pdfTextExtractor.open(path), 0, progress, sample);
     }
 
-    @Transactional
-    public KnowledgeDocument ingestExistingDocument(Long userId, Long documentId, byte[] pdfBytes, BiConsumer<Integer, Integer> progress) {
+    private ResumePoint prepareIngest(Long userId, Long documentId, int resumeFrom) {
         KnowledgeDocument doc = documentRepository.findByIdAndUserId(documentId, userId)
                 .orElseThrow(() -> new IllegalArgumentException("文档不存在"));
-
-        Timer.Sample sample = Timer.start(meterRegistry);
-        String result = "error";
+        int start = Math.max(0, resumeFrom);
+        if (start > 0 && segmentRepository.countByUserIdAndDocumentIdAndSegmentIndexLessThan(userId, documentId, start) != start) {
+            log.warn("Ingest checkpoint does not match persisted segments, restarting: documentId={}, checkpoint={}", documentId, start);
+            start = 0;
+        }
+        if (start == 0) {
+            segmentRepository.deleteByUserIdAndDocumentId(userId, documentId);
+        } else {
+            segmentRepository.deleteFromSegmentIndex(userId, documentId, start);
+        }
         doc.setStatus("PROCESSING");
-        doc.setSegmentCount(0);
+        doc.setSegmentCount(start);
         doc.setUpdatedAt(LocalDateTime.now());
-        documentRepository.save(doc);
-        segmentRepository.deleteByUserIdAndDocumentId(userId, documentId);
+        return new ResumePoint(documentRepository.save(doc), start);
+    }
 
-        String text = extractPdfText(pdfBytes);
-        List<String> chunksRaw = chunkText(text, 900, 120);
-        List<String> chunks = new ArrayList<>();
-        for (String chunk : chunksRaw) {
-            String cleaned = normalizeWhitespace(chunk);
-            if (!cleaned.isBlank()) {
-                chunks.add(cleaned);
-            }
+    private record ResumePoint(KnowledgeDocument document, int startIndex) {
+    }
+
+    private KnowledgeDocument reuseIngested(KnowledgeDocument doc, String contentHash, Timer.Sample sample) {
+        doc.setContentHash(contentHash);
+        doc.setEmbeddingModel(embeddingModelName);
+        doc.setVectorDocumentId(null);
+        KnowledgeDocument source = documentRepository
+                .findFirstByContentHashAndEmbeddingModelAndStatusAndIdNotOrderByIdAsc(contentHash, embeddingModelName, "READY", doc.getId())
+                .orElse(null);
+        List<KnowledgeSegment> sourceSegments = source == null
+                ? List.of()
+                : segmentRepository.findByUserIdAndDocumentIdOrderBySegmentIndexAsc(source.getUserId(), source.getId());
+        if (sourceSegments.isEmpty()) {
+            Counter.builder("knowledge_ingest_dedup_total").tag("result", "miss").register(meterRegistry).increment();
+            return null;
         }
-        int total = chunks.size();
-        if (progress != null) {
-            progress.accept(0, total);
+
+        List<KnowledgeSegment> copies = new ArrayList<>(sourceSegments.size());
+        for (KnowledgeSegment seg : sourceSegments) {
+            KnowledgeSegment ks = new KnowledgeSegment();
+            ks.setUserId(doc.getUserId());
+            ks.setDocumentId(doc.getId());
+            ks.setSegmentIndex(seg.getSegmentIndex());
+            ks.setContent(seg.getContent());
+            ks.setChromaId(seg.getChromaId());
+            ks.setCreatedAt(LocalDateTime.now());
+            copies.add(ks);
         }
+        segmentRepository.saveAll(copies);
 
-        try {
-            int idx = 0;
-            for (String cleaned : chunks) {
-                String chromaId = buildChromaId(doc.getId(), idx);
-                TextSegment segment = TextSegment.from(cleaned);
-                Embedding embedding = embeddingModel.embed(segment).content();
-                chromaVectorStoreService.upsert(
-                        doc.getId(),
-                        chromaId,
-                        embedding,
-                        cleaned,
-                        java.util.Map.of(
-                                "userId", userId,
-                                "documentId", doc.getId(),
-                                "segmentIndex", idx
-                        )
-                );
-
-                KnowledgeSegment ks = new KnowledgeSegment();
-                ks.setUserId(userId);
-                ks.setDocumentId(doc.getId());
-                ks.setSegmentIndex(idx);
-                ks.setContent(truncate(cleaned, 2000));
-                ks.setChromaId(chromaId);
-                ks.setCreatedAt(LocalDateTime.now());
-                segmentRepository.save(ks);
-                idx++;
+        doc.setVectorDocumentId(source.getVectorDocumentId() != null ? source.getVectorDocumentId() : source.getId());
+        if (doc.getSummary() == null || doc.getSummary().isBlank()) {
+            doc.setSummary(source.getSummary());
+        }
+        doc.setStatus("READY");
+        doc.setSegmentCount(copies.size());
+        doc.setUpdatedAt(LocalDateTime.now());
+        Counter.builder("knowledge_ingest_dedup_total").tag("result", "hit").register(meterRegistry).increment();
+        sample.stop(Timer.builder("knowledge_ingest_seconds").tag("result", "dedup").register(meterRegistry));
+        return documentRepository.save(doc);
+    }
 
-                if (progress != null) {
-                    progress.accept(idx, total);
-                }
-            }
+    private KnowledgeDocument ingestPdf(Long userId, KnowledgeDocument doc, Supplier<PdfTextExtractor.PageWindowReader> source,
+                                        int startIndex, BiConsumer<Integer, Integer> progress, Timer.Sample sample) {
+        String result = "error";
+        try {
+            int total = runPipeline(userId, doc.getId(), source, startIndex, progress);
 
+            pruneStaleVectors(doc.getId(), total);
             doc.setStatus("READY");
             doc.setSegmentCount(total);
             doc.setUpdatedAt(LocalDateTime.now());
@@ -167,87 +276,249 @@ public class KnowledgeIngestService {
         }
     }
 
-    @Transactional
-    public KnowledgeDocument uploadAndIngest(Long userId, MultipartFile file, String titleOverride) {
-        Timer.Sample sample = Timer.start(meterRegistry);
-        if (file == null || file.isEmpty()) {
-            sample.stop(Timer.builder("knowledge_ingest_seconds").tag("result", "invalid").register(meterRegistry));
-            throw new IllegalArgumentException("文件为空");
+    private void pruneStaleVectors(Long documentId, int total) {
+        Set<String> keep = new HashSet<>();
+        for (int i = 0; i < total; i++) {
+            keep.add(buildChromaId(documentId, i));
         }
-        String originalName = file.getOriginalFilename() == null ? "document.pdf" : file.getOriginalFilename();
-        String title = (titleOverride == null || titleOverride.isBlank()) ? originalName : titleOverride.trim();
+        try {
+            int pruned = vectorGarbageCollector.pruneDocument(documentId, keep);
+            if (pruned > 0) {
+                log.info("Pruned stale vectors after ingest: documentId={}, count={}", documentId, pruned);
+            }
+        } catch (Exception e) {
+            log.warn("Prune stale vectors failed: documentId={}, error={}", documentId, e.getMessage());
+        }
+    }
 
-        KnowledgeDocument doc = new KnowledgeDocument();
-        doc.setUserId(userId);
-        doc.setTitle(title);
-        doc.setStatus("PROCESSING");
-        doc.setSegmentCount(0);
-        doc.setCreatedAt(LocalDateTime.now());
-        doc.setUpdatedAt(LocalDateTime.now());
-        doc = documentRepository.save(doc);
+    private int runPipeline(Long userId, Long documentId, Supplier<PdfTextExtractor.PageWindowReader> source,
+                            int startIndex, BiConsumer<Integer, Integer> progress) {
+        StageDepth depth = new StageDepth();
+        activeStages.add(depth);
+        Flux<StoredBatch> pipeline = Flux.using(
+                        source::get,
+                        reader -> {
+                            ChunkBatcher batcher = new ChunkBatcher(reader, startIndex);
+                            return Flux.<ChunkBatch>generate(sink -> {
+                                ChunkBatch batch = batcher.next();
+                                if (batch == null) {
+                                    sink.complete();
+                                } else {
+                                    sink.next(batch);
+                                }
+                            });
+                        },
+                        PdfTextExtractor.PageWindowReader::close
+                )
+                .subscribeOn(parseScheduler)
+                .doOnNext(batch -> depth.embed.incrementAndGet())
+                .publishOn(embedScheduler, pipelineQueueCapacity)
+                .flatMapSequential(batch -> Mono.fromCallable(() -> {
+                    depth.embed.decrementAndGet();
+                    return new EmbeddedBatch(batch, embedBatch(batch.texts()));
+                }).subscribeOn(embedScheduler), embedConcurrency, 1)
+                .doOnNext(batch -> depth.vector.incrementAndGet())
+                .publishOn(vectorScheduler, pipelineQueueCapacity)
+                .flatMapSequential(batch -> Mono.fromCallable(() -> {
+                    depth.vector.decrementAndGet();
+                    return upsertVectors(userId, documentId, batch);
+                }).subscribeOn(vectorScheduler), vectorConcurrency, 1)
+                .doOnNext(batch -> depth.persist.incrementAndGet());
+
+        int written = startIndex;
+        try (Stream<StoredBatch> stream = pipeline.toStream(pipelineQueueCapacity)) {
+            Iterator<StoredBatch> it = stream.iterator();
+            while (it.hasNext()) {
+                StoredBatch batch = it.next();
+                depth.persist.decrementAndGet();
+                int checkpoint = written + batch.segments().size();
+                transactionTemplate.executeWithoutResult(status -> segmentRepository.saveAll(batch.segments()));
+                written = checkpoint;
+                if (progress != null) {
+                    progress.accept(checkpoint, Math.max(checkpoint, batch.estimatedTotal()));
+                }
+            }
+        } finally {
+            activeStages.remove(depth);
+        }
+        if (progress != null) {
+            progress.accept(written, written);
+        }
+        return written;
+    }
 
-        String text = extractPdfText(file);
-        List<String> chunks = chunkText(text, 900, 120);
+    @PreDestroy
+    public void shutdownPipeline() {
+        parseScheduler.dispose();
+        embedScheduler.dispose();
+        vectorScheduler.dispose();
+    }
 
-        String result = "error";
-        try {
-            int idx = 0;
-            for (String chunk : chunks) {
-                String cleaned = normalizeWhitespace(chunk);
-                if (cleaned.isBlank()) {
-                    continue;
+    private double stageDepth(ToIntFunction<StageDepth> stage) {
+        int sum = 0;
+        for (StageDepth depth : activeStages) {
+            sum += stage.applyAsInt(depth);
+        }
+        return sum;
+    }
+
+    private static final class StageDepth {
+        private final AtomicInteger embed = new AtomicInteger();
+        private final AtomicInteger vector = new AtomicInteger();
+        private final AtomicInteger persist = new AtomicInteger();
+    }
+
+    private record ChunkBatch(int firstIndex, List<String> texts, int estimatedTotal) {
+    }
+
+    private record EmbeddedBatch(ChunkBatch chunks, List<Embedding> embeddings) {
+    }
+
+    private record StoredBatch(List<KnowledgeSegment> segments, int estimatedTotal) {
+    }
+
+    private final class ChunkBatcher {
+        private final PdfTextExtractor.PageWindowReader reader;
+        private final int skip;
+        private final Chunker.Session chunker;
+        private final ArrayDeque<ChunkBatch> ready = new ArrayDeque<>();
+        private List<String> pending = new ArrayList<>();
+        private int pendingChars;
+        private int nextIndex;
+        private int chunked;
+        private int pagesRead;
+        private boolean exhausted;
+
+        private ChunkBatcher(PdfTextExtractor.PageWindowReader reader, int skip) {
+            this.reader = reader;
+            this.skip = skip;
+            this.chunker = KnowledgeIngestService.this.chunker.open(this::accept);
+        }
+
+        ChunkBatch next() {
+            while (ready.isEmpty() && !exhausted) {
+                PdfTextExtractor.PageWindow window = reader.next();
+                if (window == null) {
+                    chunker.finish();
+                    flush();
+                    exhausted = true;
+                } else {
+                    pagesRead = window.endPage();
+                    chunker.append(window.text());
                 }
-                String chromaId = buildChromaId(doc.getId(), idx);
-                TextSegment segment = TextSegment.from(cleaned);
-                Embedding embedding = embeddingModel.embed(segment).content();
-                chromaVectorStoreService.upsert(
-                        doc.getId(),
-                        chromaId,
-                        embedding,
-                        cleaned,
-                        java.util.Map.of(
-                                "userId", userId,
-                                "documentId", doc.getId(),
-                                "segmentIndex", idx
-                        )
-                );
-
-                KnowledgeSegment ks = new KnowledgeSegment();
-                ks.setUserId(userId);
-                ks.setDocumentId(doc.getId());
-                ks.setSegmentIndex(idx);
-                ks.setContent(truncate(cleaned, 2000));
-                ks.setChromaId(chromaId);
-                ks.setCreatedAt(LocalDateTime.now());
-                segmentRepository.save(ks);
-
-                idx++;
             }
+            return ready.poll();
+        }
 
-            doc.setStatus("READY");
-            doc.setSegmentCount(idx);
-            doc.setUpdatedAt(LocalDateTime.now());
-            result = "ok";
-            return documentRepository.save(doc);
-        } catch (RuntimeException e) {
-            Counter.builder("knowledge_ingest_failures_total").register(meterRegistry).increment();
-            doc.setStatus("FAILED");
-            doc.setUpdatedAt(LocalDateTime.now());
-            documentRepository.save(doc);
-            RuntimeException mapped = mapIngestRuntimeException(e);
-            if (mapped != null) {
-                throw mapped;
+        private void accept(String chunk) {
+            if (chunked < skip) {
+                chunked++;
+                nextIndex++;
+                return;
             }
-            throw e;
+            boolean full = pending.size() >= embeddingBatchSize || pendingChars + chunk.length() > embeddingBatchMaxChars;
+            if (!pending.isEmpty() && full) {
+                flush();
+            }
+            pending.add(chunk);
+            pendingChars += chunk.length();
+            chunked++;
+        }
+
+        private void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            ready.add(new ChunkBatch(nextIndex, pending, estimatedTotal()));
+            nextIndex += pending.size();
+            pending = new ArrayList<>();
+            pendingChars = 0;
+        }
+
+        private int estimatedTotal() {
+            int totalPages = reader.getTotalPages();
+            if (pagesRead <= 0 || totalPages <= pagesRead) {
+                return chunked;
+            }
+            long projected = Math.round((double) chunked * totalPages / pagesRead);
+            return (int) Math.max(chunked, Math.min(Integer.MAX_VALUE, projected));
+        }
+    }
+
+    private StoredBatch upsertVectors(Long userId, Long documentId, EmbeddedBatch batch) {
+        List<String> texts = batch.chunks().texts();
+        List<ChromaVectorStoreService.VectorRecord> records = new ArrayList<>(texts.size());
+        List<KnowledgeSegment> segments = new ArrayList<>(texts.size());
+        for (int i = 0; i < texts.size(); i++) {
+            String cleaned = texts.get(i);
+            int segmentIndex = batch.chunks().firstIndex() + i;
+            String chromaId = buildChromaId(documentId, segmentIndex);
+            records.add(new ChromaVectorStoreService.VectorRecord(
+                    chromaId,
+                    batch.embeddings().get(i),
+                    cleaned,
+                    java.util.Map.of(
+                            "userId", userId,
+                            "documentId", documentId,
+                            "segmentIndex", segmentIndex
+                    )
+            ));
+
+            KnowledgeSegment ks = new KnowledgeSegment();
+            ks.setUserId(userId);
+            ks.setDocumentId(documentId);
+            ks.setSegmentIndex(segmentIndex);
+            ks.setContent(truncate(cleaned, 2000));
+            ks.setChromaId(chromaId);
+            ks.setCreatedAt(LocalDateTime.now());
+            segments.add(ks);
+        }
+
+        ChromaVectorStoreService.UpsertResult upserted = chromaVectorStoreService.upsertBatch(documentId, records);
+        if (upserted.hasFailures()) {
+            List<String> failedIds = upserted.failedIds();
+            log.warn("Chroma upsert partially failed: documentId={}, failed={}/{}, failedIds={}",
+                    documentId, failedIds.size(), records.size(), failedIds);
+            throw new IllegalStateException("Chroma upsert 部分失败: 未写入 " + failedIds.size() + "/" + records.size()
+                    + " 条, ids=" + previewIds(failedIds) + " 原因: " + upserted.lastError());
+        }
+        return new StoredBatch(segments, batch.chunks().estimatedTotal());
+    }
+
+    private List<Embedding> embedBatch(List<String> texts) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String result = "error";
+        try {
+            List<TextSegment> segments = new ArrayList<>(texts.size());
+            for (String text : texts) {
+                segments.add(TextSegment.from(text));
+            }
+            List<Embedding> embeddings = embeddingModel.embedAll(segments).content();
+            if (embeddings == null || embeddings.size() != texts.size()) {
+                throw new IllegalStateException("SiliconFlow embeddings 返回数量不匹配: expected=" + texts.size()
+                        + ", actual=" + (embeddings == null ? 0 : embeddings.size()));
+            }
+            result = "ok";
+            return embeddings;
         } finally {
-            sample.stop(Timer.builder("knowledge_ingest_seconds").tag("result", result).register(meterRegistry));
+            sample.stop(Timer.builder("knowledge_ingest_embedding_batch_seconds").tag("result", result).register(meterRegistry));
+            DistributionSummary.builder("knowledge_ingest_embedding_batch_size").register(meterRegistry).record(texts.size());
         }
+    }
 
+    private String previewIds(List<String> ids) {
+        if (ids.size() <= 5) {
+            return String.valueOf(ids);
+        }
+        return ids.subList(0, 5) + "...(+" + (ids.size() - 5) + ")";
     }
 
     private RuntimeException mapIngestRuntimeException(RuntimeException e) {
         String msg = (e == null || e.getMessage() == null) ? "" : e.getMessage().trim();
         String lower = msg.toLowerCase();
+        if (hasCause(e, EmbeddingGovernorTimeoutException.class)) {
+            return new IllegalArgumentException("向量化失败：向量化请求排队超时，当前入库任务较多，请稍后重试。");
+        }
         if (lower.contains("siliconflow")) {
             String detail = extractSiliconFlowDetail(msg);
             if (lower.contains("failed to resolve") || lower.contains("unknownhost") || lower.contains("unknown host") || lower.contains("name or service not known")) {
@@ -259,7 +530,7 @@ public class KnowledgeIngestService {
             if (lower.contains("http 401") || lower.contains("http 403")) {
                 return new IllegalArgumentException("向量化失败：SiliconFlow 鉴权失败，请检查 SILICONFLOW_API_KEY 是否正确。" + detail);
             }
-            if (lower.contains("http 429")) {
+            if (hasCause(e, EmbeddingThrottledException.class)) {
                 return new IllegalArgumentException("向量化失败：SiliconFlow 请求过于频繁（HTTP 429）。请稍后重试。" + detail);
             }
             if (lower.contains("http 400")) {
@@ -267,12 +538,24 @@ public class KnowledgeIngestService {
             }
             return new IllegalArgumentException("向量化失败：SiliconFlow Embeddings 调用失败。" + detail);
         }
+        if (lower.startsWith("chroma upsert")) {
+            return new IllegalArgumentException("向量写入失败：" + msg);
+        }
         if (msg.contains(":8000") || lower.contains("chroma")) {
             return new IllegalArgumentException("无法连接 Chroma(8000)。请确认 chroma-db 容器已启动且端口已映射到本机 8000");
         }
         return null;
     }
 
+    private static boolean hasCause(Throwable e, Class<? extends Throwable> type) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (type.isInstance(t)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private String extractSiliconFlowDetail(String msg) {
         if (msg == null || msg.isBlank()) {
             return "";
@@ -288,6 +571,11 @@ public class KnowledgeIngestService {
         return s.isBlank() ? "" : " 详情: " + s;
     }
 
+    public KnowledgeDocument getDocument(Long userId, Long documentId) {
+        return documentRepository.findByIdAndUserId(documentId, userId)
+                .orElseThrow(() -> new IllegalArgumentException("文档不存在"));
+    }
+
     public List<KnowledgeDocument> listDocuments(Long userId) {
         return documentRepository.findByUserIdOrderByUpdatedAtDesc(userId);
     }
@@ -296,11 +584,35 @@ public class KnowledgeIngestService {
     public void deleteDocument(Long userId, Long documentId) {
         KnowledgeDocument doc = documentRepository.findByIdAndUserId(documentId, userId)
                 .orElseThrow(() -> new IllegalArgumentException("文档不存在"));
+        Long vectorDocumentId = doc.getVectorDocumentId() != null ? doc.getVectorDocumentId() : doc.getId();
         segmentRepository.deleteByUserIdAndDocumentId(userId, documentId);
         documentRepository.delete(Objects.requireNonNull(doc));
+        documentRepository.flush();
+        if (documentRepository.countVectorReferences(vectorDocumentId) == 0) {
+            deleteVectorsAfterCommit(vectorDocumentId);
+        }
+    }
+
+    private void deleteVectorsAfterCommit(Long vectorDocumentId) {
+        Runnable delete = () -> {
+            try {
+                chromaVectorStoreService.deleteCollection(vectorDocumentId);
+            } catch (Exception e) {
+                log.warn("Chroma collection delete failed: vectorDocumentId={}", vectorDocumentId, e);
+            }
+        };
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            delete.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                delete.run();
+            }
+        });
     }
 
-    @Transactional
     public String getOrGenerateSummary(Long userId, Long documentId) {
         KnowledgeDocument doc = documentRepository.findByIdAndUserId(documentId, userId)
                 .orElseThrow(() -> new IllegalArgumentException("文档不存在"));
@@ -466,55 +778,9 @@ public class KnowledgeIngestService {
         return "";
     }
 
-    private String extractPdfText(MultipartFile file) {
-        try (PDDocument pdf = PDDocument.load(file.getBytes())) {
-            PDFTextStripper stripper = new PDFTextStripper();
-            String text = stripper.getText(pdf);
-            return new String(text.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
-        } catch (Exception e) {
-            throw new IllegalArgumentException("PDF解析失败");
-        }
-    }
-
-    private String extractPdfText(byte[] pdfBytes) {
-        if (pdfBytes == null || pdfBytes.length == 0) {
-            throw new IllegalArgumentException("PDF解析失败");
-        }
-        try (PDDocument pdf = PDDocument.load(pdfBytes)) {
-            PDFTextStripper stripper = new PDFTextStripper();
-            String text = stripper.getText(pdf);
-            return new String(text.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
-        } catch (Exception e) {
-            throw new IllegalArgumentException("PDF解析失败");
-        }
-    }
-
-    private List<String> chunkText(String text, int maxChars, int overlap) {
-        String normalized = normalizeWhitespace(text);
-        List<String> chunks = new ArrayList<>();
-        if (normalized.isBlank()) {
-            return chunks;
-        }
-        int start = 0;
-        while (start < normalized.length()) {
-            int end = Math.min(normalized.length(), start + maxChars);
-            String chunk = normalized.substring(start, end);
-            chunks.add(chunk);
-            if (end == normalized.length()) {
-                break;
-            }
-            start = Math.max(0, end - overlap);
-        }
-        return chunks;
-    }
-
-    private String normalizeWhitespace(String s) {
-        if (s == null) return "";
-        return s.replaceAll("\\s+", " ").trim();
-    }
 
     private String buildChromaId(Long documentId, int index) {
-        return "doc-" + documentId + "-seg-" + index + "-" + UUID.randomUUID().toString().substring(0, 8);
+        return "doc-" + documentId + "-seg-" + index;
     }
 
     private String truncate(String s, int maxLen) {
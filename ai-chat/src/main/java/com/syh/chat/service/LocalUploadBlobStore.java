@@ -0,0 +1,241 @@
+package com.syh.chat.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+@Component
+public class LocalUploadBlobStore implements UploadBlobStore {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalUploadBlobStore.class);
+
+    private static final String NONE = "none";
+    private static final String GZIP = "gzip";
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate cleanupTemplate;
+    private final Path blobDir;
+    private final Path tmpDir;
+    private final String compression;
+
+    public LocalUploadBlobStore(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.storage.upload-dir:./data/uploads}") String uploadDir,
+            @Value("${app.storage.blob.compression:none}") String compression
+    ) {
+        this.jdbcTemplate = Objects.requireNonNull(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(Objects.requireNonNull(transactionManager, "transactionManager"));
+        this.cleanupTemplate = new TransactionTemplate(transactionManager);
+        this.cleanupTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        Path root = Path.of(uploadDir).toAbsolutePath();
+        this.blobDir = root.resolve("blobs");
+        this.tmpDir = root.resolve("tmp");
+        this.compression = compression(compression);
+    }
+
+    @Override
+    public Blob store(Path source, String sha256, long sizeBytes) {
+        String hash = sha256.toLowerCase(Locale.ROOT);
+        Path target = blobDir.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4))
+                .resolve(hash + (GZIP.equals(compression) ? ".pdf.gz" : ".pdf"));
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.update(
+                    "INSERT INTO upload_blob (sha256, location, compression, size_bytes, stored_bytes, ref_count, created_at, released_at)"
+                            + " VALUES (?, ?, ?, ?, 0, 1, ?, NULL)"
+                            + " ON DUPLICATE KEY UPDATE ref_count = ref_count + 1, released_at = NULL",
+                    hash, target.toString(), compression, sizeBytes, Timestamp.valueOf(LocalDateTime.now())
+            );
+            List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                    "SELECT location, compression FROM upload_blob WHERE sha256 = ?", hash);
+            if (rows.isEmpty()) {
+                throw new IllegalStateException("文件保存失败");
+            }
+            String location = String.valueOf(rows.get(0).get("location"));
+            Path stored = Path.of(location);
+            if (!Files.isRegularFile(stored)) {
+                long storedBytes = write(source, stored, String.valueOf(rows.get(0).get("compression")));
+                discardOnRollback(hash, stored);
+                jdbcTemplate.update("UPDATE upload_blob SET stored_bytes = ? WHERE sha256 = ?", storedBytes, hash);
+            }
+            return new Blob(hash, location);
+        });
+    }
+
+    private void discardOnRollback(String hash, Path stored) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    discardIfUnreferenced(hash, stored);
+                }
+            }
+        });
+    }
+
+    void discardIfUnreferenced(String hash, Path stored) {
+        try {
+            cleanupTemplate.executeWithoutResult(status -> {
+                List<String> rows = jdbcTemplate.queryForList(
+                        "SELECT sha256 FROM upload_blob WHERE sha256 = ? FOR UPDATE", String.class, hash);
+                if (rows.isEmpty()) {
+                    deleteQuietly(stored);
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn("Failed to discard blob after rollback: sha256={}", hash, e);
+        }
+    }
+
+    @Override
+    public LocalCopy open(String location) {
+        Path path = Path.of(location);
+        if (!Files.isRegularFile(path)) {
+            throw new IllegalArgumentException("读取文件失败");
+        }
+        if (!location.endsWith(".gz")) {
+            return new Copy(path, false);
+        }
+        Path copy = null;
+        try {
+            Files.createDirectories(tmpDir);
+            copy = Files.createTempFile(tmpDir, "blob-", ".pdf");
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(path), BUFFER_BYTES)) {
+                Files.copy(in, copy, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return new Copy(copy, true);
+        } catch (IOException e) {
+            deleteQuietly(copy);
+            throw new IllegalArgumentException("读取文件失败");
+        }
+    }
+
+    @Override
+    public void release(String sha256) {
+        jdbcTemplate.update(
+                "UPDATE upload_blob SET ref_count = GREATEST(ref_count - 1, 0), released_at = ? WHERE sha256 = ?",
+                Timestamp.valueOf(LocalDateTime.now()), sha256
+        );
+    }
+
+    @Override
+    public Sweep deleteUnreferenced(LocalDateTime releasedBefore, int limit) {
+        List<String> candidates = jdbcTemplate.queryForList(
+                "SELECT sha256 FROM upload_blob WHERE ref_count = 0 AND released_at < ? ORDER BY released_at LIMIT ?",
+                String.class, Timestamp.valueOf(releasedBefore), limit
+        );
+        int blobs = 0;
+        long bytes = 0;
+        for (String hash : candidates) {
+            Long freed = transactionTemplate.execute(status -> {
+                List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                        "SELECT location, stored_bytes FROM upload_blob WHERE sha256 = ? AND ref_count = 0 FOR UPDATE", hash);
+                if (rows.isEmpty()) {
+                    return null;
+                }
+                try {
+                    Files.deleteIfExists(Path.of(String.valueOf(rows.get(0).get("location"))));
+                } catch (IOException e) {
+                    throw new IllegalStateException("删除文件失败: " + hash, e);
+                }
+                jdbcTemplate.update("DELETE FROM upload_blob WHERE sha256 = ?", hash);
+                Object stored = rows.get(0).get("stored_bytes");
+                return stored instanceof Number n ? n.longValue() : 0L;
+            });
+            if (freed != null) {
+                blobs++;
+                bytes += freed;
+            }
+        }
+        return new Sweep(blobs, bytes);
+    }
+
+    @Override
+    public Usage usage() {
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT COUNT(*) AS blobs, COALESCE(SUM(size_bytes), 0) AS size_bytes, COALESCE(SUM(stored_bytes), 0) AS stored_bytes FROM upload_blob");
+        return new Usage(number(row.get("blobs")), number(row.get("size_bytes")), number(row.get("stored_bytes")));
+    }
+
+    private long write(Path source, Path target, String mode) {
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp-" + UUID.randomUUID());
+        try {
+            Files.createDirectories(target.getParent());
+            if (GZIP.equals(mode)) {
+                try (InputStream in = Files.newInputStream(source);
+                     OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp), BUFFER_BYTES)) {
+                    in.transferTo(out);
+                }
+            } else {
+                Files.move(source, tmp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return Files.size(target);
+        } catch (IOException e) {
+            deleteQuietly(tmp);
+            throw new IllegalStateException("文件保存失败");
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.debug("Failed to delete temp file: {}", path, e);
+        }
+    }
+
+    private static long number(Object value) {
+        return value instanceof Number n ? n.longValue() : 0L;
+    }
+
+    private static String compression(String value) {
+        String m = value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+        return switch (m) {
+            case NONE, "" -> NONE;
+            case GZIP -> GZIP;
+            default -> throw new IllegalArgumentException("未知的压缩方式: " + value);
+        };
+    }
+
+    private record Copy(Path path, boolean temporary) implements LocalCopy {
+
+        @Override
+        public void close() {
+            if (temporary) {
+                deleteQuietly(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.syh.chat.service;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+@Component
+public class PdfTextExtractor {
+
+    private final int pageWindow;
+    private final long maxMainMemoryBytes;
+    private final String tempDir;
+    private final int parallelism;
+    private final ForkJoinPool pool;
+
+    public PdfTextExtractor(
+            @Value("${app.ingest.pdf.page-window:20}") int pageWindow,
+            @Value("${app.ingest.pdf.max-main-memory-bytes:16777216}") long maxMainMemoryBytes,
+            @Value("${app.ingest.pdf.temp-dir:}") String tempDir,
+            @Value("${app.ingest.pdf.parallelism:1}") int parallelism
+    ) {
+        this.pageWindow = Math.max(1, pageWindow);
+        this.maxMainMemoryBytes = Math.max(0, maxMainMemoryBytes);
+        this.tempDir = tempDir;
+        this.parallelism = Math.max(1, parallelism);
+        this.pool = this.parallelism > 1 ? new ForkJoinPool(this.parallelism) : null;
+    }
+
+    public int getPageWindow() {
+        return pageWindow;
+    }
+
+    public PageWindowReader open(Path file) {
+        if (pool == null) {
+            try {
+                return new SequentialReader(load(file), pageWindow);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("PDF解析失败");
+            }
+        }
+        int totalPages;
+        try (PDDocument pdf = load(file)) {
+            totalPages = pdf.getNumberOfPages();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("PDF解析失败");
+        }
+        return new ParallelReader(this, file, totalPages, pageWindow, pool, parallelism);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    private PDDocument load(Path file) throws IOException {
+        return PDDocument.load(file.toFile(), memoryUsageSetting());
+    }
+
+    MemoryUsageSetting memoryUsageSetting() {
+        MemoryUsageSetting setting = maxMainMemoryBytes <= 0
+                ? MemoryUsageSetting.setupTempFileOnly()
+                : MemoryUsageSetting.setupMixed(maxMainMemoryBytes);
+        if (tempDir != null && !tempDir.isBlank()) {
+            setting.setTempDir(new File(tempDir));
+        }
+        return setting;
+    }
+
+    public record PageWindow(int startPage, int endPage, int totalPages, String text) {
+    }
+
+    public interface PageWindowReader extends Closeable {
+
+        int getTotalPages();
+
+        PageWindow next();
+
+        @Override
+        void close();
+    }
+
+    private static final class SequentialReader implements PageWindowReader {
+        private final PDDocument pdf;
+        private final PDFTextStripper stripper;
+        private final int pageWindow;
+        private final int totalPages;
+        private int nextPage = 1;
+        private boolean closed;
+
+        private SequentialReader(PDDocument pdf, int pageWindow) throws IOException {
+            this.pdf = pdf;
+            this.pageWindow = pageWindow;
+            this.totalPages = pdf.getNumberOfPages();
+            try {
+                this.stripper = new PDFTextStripper();
+            } catch (IOException e) {
+                pdf.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public int getTotalPages() {
+            return totalPages;
+        }
+
+        @Override
+        public synchronized PageWindow next() {
+            if (closed || nextPage > totalPages) {
+                return null;
+            }
+            int start = nextPage;
+            int end = Math.min(totalPages, start + pageWindow - 1);
+            try {
+                String text = extractRange(pdf, stripper, start, end);
+                nextPage = end + 1;
+                return new PageWindow(start, end, totalPages, text);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("PDF解析失败");
+            }
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            closeQuietly(pdf);
+        }
+    }
+
+    private static final class ParallelReader implements PageWindowReader {
+        private final PdfTextExtractor extractor;
+        private final Path file;
+        private final int totalPages;
+        private final int pageWindow;
+        private final ForkJoinPool pool;
+        private final int lookahead;
+        private final ArrayDeque<ForkJoinTask<PageWindow>> inFlight = new ArrayDeque<>();
+        private final Map<Thread, WorkerDocument> workers = new ConcurrentHashMap<>();
+        private int nextPage = 1;
+        private boolean closed;
+
+        private ParallelReader(PdfTextExtractor extractor, Path file, int totalPages, int pageWindow,
+                               ForkJoinPool pool, int lookahead) {
+            this.extractor = extractor;
+            this.file = file;
+            this.totalPages = totalPages;
+            this.pageWindow = pageWindow;
+            this.pool = pool;
+            this.lookahead = lookahead;
+        }
+
+        @Override
+        public int getTotalPages() {
+            return totalPages;
+        }
+
+        @Override
+        public synchronized PageWindow next() {
+            if (closed) {
+                return null;
+            }
+            while (inFlight.size() < lookahead && nextPage <= totalPages) {
+                int start = nextPage;
+                int end = Math.min(totalPages, start + pageWindow - 1);
+                inFlight.add(pool.submit(() -> extractWindow(start, end)));
+                nextPage = end + 1;
+            }
+            ForkJoinTask<PageWindow> head = inFlight.poll();
+            if (head == null) {
+                return null;
+            }
+            try {
+                return head.join();
+            } catch (IllegalArgumentException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("PDF解析失败");
+            }
+        }
+
+        private PageWindow extractWindow(int start, int end) {
+            WorkerDocument worker = workers.computeIfAbsent(Thread.currentThread(), t -> {
+                try {
+                    return new WorkerDocument(extractor.load(file));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            try {
+                return new PageWindow(start, end, totalPages, extractRange(worker.pdf, worker.stripper, start, end));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (ForkJoinTask<PageWindow> task : inFlight) {
+                task.cancel(false);
+            }
+            for (ForkJoinTask<PageWindow> task : inFlight) {
+                task.quietlyJoin();
+            }
+            inFlight.clear();
+            for (WorkerDocument worker : workers.values()) {
+                closeQuietly(worker.pdf);
+            }
+            workers.clear();
+        }
+    }
+
+    private static final class WorkerDocument {
+        private final PDDocument pdf;
+        private final PDFTextStripper stripper;
+
+        private WorkerDocument(PDDocument pdf) throws IOException {
+            this.pdf = pdf;
+            try {
+                this.stripper = new PDFTextStripper();
+            } catch (IOException e) {
+                pdf.close();
+                throw e;
+            }
+        }
+    }
+
+    private static String extractRange(PDDocument pdf, PDFTextStripper stripper, int start, int end) throws IOException {
+        stripper.setStartPage(start);
+        stripper.setEndPage(end);
+        return stripper.getText(pdf);
+    }
+
+    private static void closeQuietly(PDDocument pdf) {
+        try {
+            pdf.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
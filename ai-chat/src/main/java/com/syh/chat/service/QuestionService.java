@@ -108,8 +108,9 @@ public class QuestionService {
             String raw = reply == null ? "" : reply.getContent();
             ArrayNode arr = parseArray(raw);
 
+            List<GeneratedQuestion> pending = new ArrayList<>();
             for (JsonNode node : arr) {
-                if (out.size() >= n) break;
+                if (out.size() + pending.size() >= n) break;
                 String type = normalizeType(node.path("type").asText(""));
                 if (!allowedTypes.contains(type)) {
                     continue;
@@ -147,9 +148,11 @@ public class QuestionService {
                 q.setAnswer(normalizeAnswerByType(type, answer));
                 q.setExplanation(truncate(explanation.isBlank() ? "无" : explanation, 2000));
                 q.setCreatedAt(LocalDateTime.now());
-                q = questionRepository.save(q);
+                pending.add(q);
                 dedupe.add(dedupeKey);
-                out.add(toResponse(q));
+            }
+            for (GeneratedQuestion saved : questionRepository.saveAll(pending)) {
+                out.add(toResponse(saved));
             }
             attempts++;
         }
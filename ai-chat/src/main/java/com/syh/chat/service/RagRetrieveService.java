@@ -2,6 +2,7 @@ package com.syh.chat.service;
 
 import com.syh.chat.dto.RagContextResponse;
 import com.syh.chat.entity.KnowledgeSegment;
+import com.syh.chat.repository.KnowledgeDocumentRepository;
 import com.syh.chat.repository.KnowledgeSegmentRepository;
 import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.model.embedding.EmbeddingModel;
@@ -21,17 +22,20 @@ public class RagRetrieveService {
     private final EmbeddingModel embeddingModel;
     private final ChromaVectorStoreService chromaVectorStoreService;
     private final KnowledgeSegmentRepository segmentRepository;
+    private final KnowledgeDocumentRepository documentRepository;
     private final MeterRegistry meterRegistry;
 
     public RagRetrieveService(
             @Lazy EmbeddingModel embeddingModel,
             ChromaVectorStoreService chromaVectorStoreService,
             KnowledgeSegmentRepository segmentRepository,
+            KnowledgeDocumentRepository documentRepository,
             MeterRegistry meterRegistry
     ) {
         this.embeddingModel = embeddingModel;
         this.chromaVectorStoreService = chromaVectorStoreService;
         this.segmentRepository = segmentRepository;
+        this.documentRepository = documentRepository;
         this.meterRegistry = meterRegistry;
     }
 
@@ -55,7 +59,7 @@ public class RagRetrieveService {
         List<String> docs;
         try {
             Timer.Sample chromaSample = Timer.start(meterRegistry);
-            docs = chromaVectorStoreService.queryDocuments(documentId, queryEmbedding, topK);
+            docs = chromaVectorStoreService.queryDocuments(resolveVectorDocumentId(userId, documentId), queryEmbedding, topK);
             chromaSample.stop(Timer.builder("rag_chroma_query_seconds").register(meterRegistry));
         } catch (Exception e) {
             Counter.builder("rag_retrieve_failures_total").tag("stage", "chroma_query").register(meterRegistry).increment();
@@ -78,6 +82,12 @@ public class RagRetrieveService {
         return new RagContextResponse(snippets);
     }
 
+    private Long resolveVectorDocumentId(Long userId, Long documentId) {
+        return documentRepository.findByIdAndUserId(documentId, userId)
+                .map(doc -> doc.getVectorDocumentId() != null ? doc.getVectorDocumentId() : doc.getId())
+                .orElse(documentId);
+    }
+
     private KnowledgeSegment findSegmentByContentPrefix(Long userId, String content) {
         String prefix = content.length() > 80 ? content.substring(0, 80) : content;
         return segmentRepository.findTop1ByUserIdAndContentStartingWith(userId, prefix);
@@ -0,0 +1,235 @@
+package com.syh.chat.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class RetentionService {
+
+    private static final Logger log = LoggerFactory.getLogger(RetentionService.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long batchPauseMs;
+    private final int maxBatchesPerRun;
+    private final List<Policy> policies;
+    private final Map<String, AtomicLong> tableRows = new LinkedHashMap<>();
+
+    public RetentionService(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${app.retention.enabled:true}") boolean enabled,
+            @Value("${app.retention.batch-size:500}") int batchSize,
+            @Value("${app.retention.batch-pause-ms:100}") long batchPauseMs,
+            @Value("${app.retention.max-batches-per-run:100}") int maxBatchesPerRun,
+            @Value("${app.retention.ingest-task-transition.max-age-days:14}") int transitionMaxAgeDays,
+            @Value("${app.retention.ingest-task-transition.mode:delete}") String transitionMode,
+            @Value("${app.retention.ingest-task.max-age-days:30}") int taskMaxAgeDays,
+            @Value("${app.retention.ingest-task.mode:delete}") String taskMode,
+            @Value("${app.retention.outbox.max-age-days:7}") int outboxMaxAgeDays,
+            @Value("${app.retention.outbox.mode:delete}") String outboxMode,
+            @Value("${app.retention.embedding-cache.max-age-days:30}") int embeddingCacheMaxAgeDays
+    ) {
+        this.jdbcTemplate = Objects.requireNonNull(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(Objects.requireNonNull(transactionManager, "transactionManager"));
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.batchPauseMs = Math.max(0, batchPauseMs);
+        this.maxBatchesPerRun = Math.max(1, maxBatchesPerRun);
+        this.policies = List.of(
+                new Policy("ingest_task_transition", "id", "created_at",
+                        "EXISTS (SELECT 1 FROM ingest_task t WHERE t.id = ingest_task_transition.task_id AND t.status IN ('SUCCEEDED', 'DEAD'))",
+                        Duration.ofDays(transitionMaxAgeDays), archive(transitionMode), List.of()),
+                new Policy("ingest_task", "id", "updated_at", "status IN ('SUCCEEDED', 'DEAD') AND blob_hash IS NULL",
+                        Duration.ofDays(taskMaxAgeDays), archive(taskMode), List.of(new Child("ingest_task_transition", "task_id"))),
+                new Policy("outbox_event", "id", "created_at", "status IN ('SENT', 'DEAD')",
+                        Duration.ofDays(outboxMaxAgeDays), archive(outboxMode), List.of()),
+                new Policy("embedding_cache", "cache_key", "created_at", "1 = 1",
+                        Duration.ofDays(embeddingCacheMaxAgeDays), false, List.of())
+        );
+        for (Policy policy : policies) {
+            AtomicLong rows = new AtomicLong();
+            tableRows.put(policy.table(), rows);
+            Gauge.builder("retention_table_rows", rows, AtomicLong::get).tag("table", policy.table()).register(meterRegistry);
+        }
+    }
+
+    @Scheduled(
+            initialDelayString = "${app.retention.initial-delay-ms:300000}",
+            fixedDelayString = "${app.retention.interval-ms:3600000}"
+    )
+    public synchronized void purge() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        int batches = 0;
+        for (Policy policy : policies) {
+            if (policy.maxAge().isZero() || policy.maxAge().isNegative()) {
+                continue;
+            }
+            Timestamp cutoff = Timestamp.valueOf(now.minus(policy.maxAge()));
+            try {
+                while (batches < maxBatchesPerRun) {
+                    int purged = purgeBatch(policy, cutoff);
+                    if (purged == 0) {
+                        break;
+                    }
+                    batches++;
+                    Counter.builder("retention_purged_rows_total")
+                            .tag("table", policy.table())
+                            .tag("mode", policy.archive() ? "archive" : "delete")
+                            .register(meterRegistry)
+                            .increment(purged);
+                    if (purged < batchSize) {
+                        break;
+                    }
+                    pause();
+                }
+            } catch (Exception e) {
+                log.warn("Retention purge failed: table={}", policy.table(), e);
+            }
+        }
+        refreshTableRows();
+    }
+
+    int purgeBatch(Policy policy, Timestamp cutoff) {
+        Integer purged = transactionTemplate.execute(status -> {
+            List<Object> ids = jdbcTemplate.queryForList(
+                    "SELECT " + policy.idColumn() + " FROM " + policy.table() + " WHERE " + policy.condition() + " AND " + policy.ageColumn() + " < ?"
+                            + " ORDER BY " + policy.ageColumn() + " LIMIT ?",
+                    Object.class,
+                    cutoff,
+                    batchSize
+            );
+            if (ids.isEmpty()) {
+                return 0;
+            }
+            String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+            Object[] args = ids.toArray();
+            if (policy.archive()) {
+                for (Child child : policy.children()) {
+                    copyToArchive(child.table(), child.foreignKey(), placeholders, args);
+                }
+                copyToArchive(policy.table(), policy.idColumn(), placeholders, args);
+            }
+            return jdbcTemplate.update("DELETE FROM " + policy.table() + " WHERE " + policy.idColumn() + " IN (" + placeholders + ")", args);
+        });
+        return purged == null ? 0 : purged;
+    }
+
+    private void copyToArchive(String table, String keyColumn, String placeholders, Object[] args) {
+        String columns = String.join(", ", archiveColumns(table));
+        jdbcTemplate.update(
+                "INSERT IGNORE INTO " + table + "_archive (" + columns + ") SELECT " + columns + " FROM " + table
+                        + " WHERE " + keyColumn + " IN (" + placeholders + ")",
+                args
+        );
+    }
+
+    List<String> archiveColumns(String table) {
+        List<String> source = columns(table);
+        if (source.isEmpty()) {
+            throw new IllegalStateException("无法读取表结构: " + table);
+        }
+        List<String> target = columns(table + "_archive");
+        List<String> missing = new ArrayList<>();
+        for (String column : source) {
+            if (!target.contains(column)) {
+                missing.add(column);
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("归档表 " + table + "_archive 缺少列: " + missing);
+        }
+        List<String> quoted = new ArrayList<>(source.size());
+        for (String column : source) {
+            quoted.add("`" + column + "`");
+        }
+        return quoted;
+    }
+
+    private List<String> columns(String table) {
+        List<String> columns = jdbcTemplate.queryForList(
+                "SELECT COLUMN_NAME FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? ORDER BY ORDINAL_POSITION",
+                String.class,
+                table
+        );
+        List<String> out = new ArrayList<>(columns.size());
+        for (String column : columns) {
+            out.add(column.toLowerCase(Locale.ROOT));
+        }
+        return out;
+    }
+
+    private void refreshTableRows() {
+        try {
+            List<String> tables = new ArrayList<>(tableRows.keySet());
+            String placeholders = String.join(",", Collections.nCopies(tables.size(), "?"));
+            jdbcTemplate.query(
+                    "SELECT TABLE_NAME, TABLE_ROWS FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME IN (" + placeholders + ")",
+                    rs -> {
+                        AtomicLong rows = tableRows.get(rs.getString(1).toLowerCase(Locale.ROOT));
+                        if (rows != null) {
+                            rows.set(rs.getLong(2));
+                        }
+                    },
+                    tables.toArray()
+            );
+        } catch (Exception e) {
+            log.debug("Failed to read table sizes", e);
+        }
+    }
+
+    private void pause() {
+        if (batchPauseMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(batchPauseMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean archive(String mode) {
+        String m = mode == null ? "" : mode.trim().toLowerCase(Locale.ROOT);
+        return switch (m) {
+            case "archive" -> true;
+            case "delete", "" -> false;
+            default -> throw new IllegalArgumentException("未知的数据保留模式: " + mode);
+        };
+    }
+
+    record Policy(String table, String idColumn, String ageColumn, String condition, Duration maxAge, boolean archive, List<Child> children) {
+    }
+
+    record Child(String table, String foreignKey) {
+    }
+}
@@ -402,9 +402,7 @@ public class UnifiedConversationService {
 
     public void syncToDatabase(Long userId, String sessionId) {
         List<Message> memoryMessages = getConversation(userId, sessionId);
-        for (Message message : memoryMessages) {
-            databaseConversationService.saveMessage(userId, sessionId, message);
-        }
+        databaseConversationService.saveMessages(userId, sessionId, memoryMessages);
     }
 
     public void syncToRedis(Long userId, String sessionId) {
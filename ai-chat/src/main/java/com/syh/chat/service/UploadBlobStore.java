@@ -0,0 +1,34 @@
+package com.syh.chat.service;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+public interface UploadBlobStore {
+
+    Blob store(Path source, String sha256, long sizeBytes);
+
+    LocalCopy open(String location);
+
+    void release(String sha256);
+
+    Sweep deleteUnreferenced(LocalDateTime releasedBefore, int limit);
+
+    Usage usage();
+
+    record Blob(String sha256, String location) {
+    }
+
+    record Sweep(int blobs, long storedBytes) {
+    }
+
+    record Usage(long blobs, long sizeBytes, long storedBytes) {
+    }
+
+    interface LocalCopy extends AutoCloseable {
+
+        Path path();
+
+        @Override
+        void close();
+    }
+}
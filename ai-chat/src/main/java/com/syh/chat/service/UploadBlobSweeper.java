@@ -0,0 +1,126 @@
+package com.syh.chat.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class UploadBlobSweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadBlobSweeper.class);
+
+    private final UploadBlobStore blobStore;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Duration succeededRetention;
+    private final Duration deadRetention;
+    private final Duration unreferencedGrace;
+    private final AtomicLong blobs = new AtomicLong();
+    private final AtomicLong sizeBytes = new AtomicLong();
+    private final AtomicLong storedBytes = new AtomicLong();
+
+    public UploadBlobSweeper(
+            UploadBlobStore blobStore,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${app.storage.blob.sweep.enabled:true}") boolean enabled,
+            @Value("${app.storage.blob.sweep.batch-size:200}") int batchSize,
+            @Value("${app.storage.blob.succeeded-retention-minutes:60}") long succeededRetentionMinutes,
+            @Value("${app.storage.blob.dead-retention-minutes:10080}") long deadRetentionMinutes,
+            @Value("${app.storage.blob.unreferenced-grace-minutes:10}") long unreferencedGraceMinutes
+    ) {
+        this.blobStore = blobStore;
+        this.jdbcTemplate = Objects.requireNonNull(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(Objects.requireNonNull(transactionManager, "transactionManager"));
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.succeededRetention = Duration.ofMinutes(Math.max(0, succeededRetentionMinutes));
+        this.deadRetention = Duration.ofMinutes(Math.max(0, deadRetentionMinutes));
+        this.unreferencedGrace = Duration.ofMinutes(Math.max(0, unreferencedGraceMinutes));
+        Gauge.builder("upload_blob_count", blobs, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("upload_blob_bytes", sizeBytes, AtomicLong::get).tag("kind", "logical").register(meterRegistry);
+        Gauge.builder("upload_blob_bytes", storedBytes, AtomicLong::get).tag("kind", "stored").register(meterRegistry);
+    }
+
+    @Scheduled(
+            initialDelayString = "${app.storage.blob.sweep.initial-delay-ms:60000}",
+            fixedDelayString = "${app.storage.blob.sweep.interval-ms:300000}"
+    )
+    public synchronized void sweep() {
+        if (!enabled) {
+            return;
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            int released = releaseTerminal(IngestTaskStateService.STATUS_SUCCEEDED, now.minus(succeededRetention))
+                    + releaseTerminal(IngestTaskStateService.STATUS_DEAD, now.minus(deadRetention));
+            Counter.builder("upload_blob_sweep_total").tag("action", "released").register(meterRegistry).increment(released);
+            UploadBlobStore.Sweep deleted = blobStore.deleteUnreferenced(now.minus(unreferencedGrace), batchSize);
+            Counter.builder("upload_blob_sweep_total").tag("action", "deleted").register(meterRegistry).increment(deleted.blobs());
+            Counter.builder("upload_blob_sweep_bytes_total").register(meterRegistry).increment(deleted.storedBytes());
+        } catch (Exception e) {
+            log.warn("Upload blob sweep failed", e);
+        } finally {
+            sample.stop(Timer.builder("upload_blob_sweep_seconds").register(meterRegistry));
+        }
+        refreshUsage();
+    }
+
+    int releaseTerminal(String status, LocalDateTime updatedBefore) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT id, blob_hash FROM ingest_task WHERE status = ? AND blob_hash IS NOT NULL AND updated_at < ?"
+                        + " ORDER BY updated_at LIMIT ?",
+                status, Timestamp.valueOf(updatedBefore), batchSize
+        );
+        int released = 0;
+        for (Map<String, Object> row : rows) {
+            String id = String.valueOf(row.get("id"));
+            String hash = String.valueOf(row.get("blob_hash"));
+            Boolean done = transactionTemplate.execute(tx -> {
+                if (jdbcTemplate.update("UPDATE ingest_task SET blob_hash = NULL WHERE id = ? AND blob_hash = ?", id, hash) != 1) {
+                    return false;
+                }
+                blobStore.release(hash);
+                return true;
+            });
+            if (Boolean.TRUE.equals(done)) {
+                released++;
+            }
+        }
+        return released;
+    }
+
+    private void refreshUsage() {
+        try {
+            UploadBlobStore.Usage usage = blobStore.usage();
+            blobs.set(usage.blobs());
+            sizeBytes.set(usage.sizeBytes());
+            storedBytes.set(usage.storedBytes());
+        } catch (Exception e) {
+            log.debug("Failed to read upload blob usage", e);
+        }
+    }
+}
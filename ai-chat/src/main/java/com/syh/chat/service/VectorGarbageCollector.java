@@ -0,0 +1,152 @@
+package com.syh.chat.service;
+
+import com.syh.chat.repository.KnowledgeDocumentRepository;
+import com.syh.chat.repository.KnowledgeSegmentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+public class VectorGarbageCollector {
+
+    private static final Logger log = LoggerFactory.getLogger(VectorGarbageCollector.class);
+
+    private final ChromaVectorStoreService chromaVectorStoreService;
+    private final KnowledgeDocumentRepository documentRepository;
+    private final KnowledgeSegmentRepository segmentRepository;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxDeletesPerRun;
+    private final long batchPauseMs;
+    private final Set<Long> suspectCollections = new HashSet<>();
+    private final Set<String> suspectIds = new HashSet<>();
+
+    public VectorGarbageCollector(
+            ChromaVectorStoreService chromaVectorStoreService,
+            KnowledgeDocumentRepository documentRepository,
+            KnowledgeSegmentRepository segmentRepository,
+            MeterRegistry meterRegistry,
+            @Value("${app.vector-gc.enabled:true}") boolean enabled,
+            @Value("${app.vector-gc.batch-size:100}") int batchSize,
+            @Value("${app.vector-gc.max-deletes-per-run:2000}") int maxDeletesPerRun,
+            @Value("${app.vector-gc.batch-pause-ms:200}") long batchPauseMs
+    ) {
+        this.chromaVectorStoreService = chromaVectorStoreService;
+        this.documentRepository = documentRepository;
+        this.segmentRepository = segmentRepository;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxDeletesPerRun = Math.max(1, maxDeletesPerRun);
+        this.batchPauseMs = Math.max(0, batchPauseMs);
+    }
+
+    public int pruneDocument(Long vectorDocumentId, Set<String> keepIds) {
+        List<String> stale = new ArrayList<>();
+        for (String id : listAllIds(vectorDocumentId)) {
+            if (!keepIds.contains(id)) {
+                stale.add(id);
+            }
+        }
+        return deleteIds(vectorDocumentId, stale, new AtomicInteger(Integer.MAX_VALUE));
+    }
+
+    @Scheduled(
+            initialDelayString = "${app.vector-gc.initial-delay-ms:120000}",
+            fixedDelayString = "${app.vector-gc.interval-ms:600000}"
+    )
+    public synchronized void reconcile() {
+        if (!enabled) {
+            return;
+        }
+        AtomicInteger budget = new AtomicInteger(maxDeletesPerRun);
+        Set<Long> nextSuspectCollections = new HashSet<>();
+        Set<String> nextSuspectIds = new HashSet<>();
+        try {
+            for (Long vectorDocumentId : chromaVectorStoreService.listDocumentCollections(batchSize)) {
+                if (budget.get() <= 0) {
+                    break;
+                }
+                if (documentRepository.countInFlightVectorReferences(vectorDocumentId) > 0) {
+                    continue;
+                }
+                if (documentRepository.countVectorReferences(vectorDocumentId) == 0) {
+                    if (suspectCollections.contains(vectorDocumentId)) {
+                        chromaVectorStoreService.deleteCollection(vectorDocumentId);
+                        budget.decrementAndGet();
+                        Counter.builder("vector_gc_deleted_total").tag("kind", "collection").register(meterRegistry).increment();
+                        log.info("Removed orphan Chroma collection: documentId={}", vectorDocumentId);
+                    } else {
+                        nextSuspectCollections.add(vectorDocumentId);
+                    }
+                    continue;
+                }
+                Set<String> live = new HashSet<>(segmentRepository.findChromaIdsByVectorDocumentId(vectorDocumentId));
+                List<String> orphans = new ArrayList<>();
+                for (String id : listAllIds(vectorDocumentId)) {
+                    if (live.contains(id)) {
+                        continue;
+                    }
+                    String key = vectorDocumentId + "/" + id;
+                    if (suspectIds.contains(key)) {
+                        orphans.add(id);
+                    } else {
+                        nextSuspectIds.add(key);
+                    }
+                }
+                deleteIds(vectorDocumentId, orphans, budget);
+            }
+        } catch (Exception e) {
+            Counter.builder("vector_gc_runs_total").tag("result", "error").register(meterRegistry).increment();
+            log.warn("Vector reconcile failed: {}", e.getMessage());
+            return;
+        }
+        suspectCollections.clear();
+        suspectCollections.addAll(nextSuspectCollections);
+        suspectIds.clear();
+        suspectIds.addAll(nextSuspectIds);
+        Counter.builder("vector_gc_runs_total").tag("result", "ok").register(meterRegistry).increment();
+    }
+
+    private List<String> listAllIds(Long vectorDocumentId) {
+        List<String> ids = new ArrayList<>();
+        for (int offset = 0; ; offset += batchSize) {
+            List<String> page = chromaVectorStoreService.listIds(vectorDocumentId, offset, batchSize);
+            ids.addAll(page);
+            if (page.size() < batchSize) {
+                return ids;
+            }
+        }
+    }
+
+    private int deleteIds(Long vectorDocumentId, List<String> ids, AtomicInteger budget) {
+        int deleted = 0;
+        for (int from = 0; from < ids.size() && budget.get() > 0; from += batchSize) {
+            int size = Math.min(Math.min(batchSize, ids.size() - from), budget.get());
+            chromaVectorStoreService.deleteIds(vectorDocumentId, ids.subList(from, from + size));
+            budget.addAndGet(-size);
+            deleted += size;
+            Counter.builder("vector_gc_deleted_total").tag("kind", "id").register(meterRegistry).increment(size);
+            if (from + size < ids.size() && batchPauseMs > 0) {
+                try {
+                    Thread.sleep(batchPauseMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        return deleted;
+    }
+}
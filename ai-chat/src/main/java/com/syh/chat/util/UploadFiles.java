@@ -0,0 +1,59 @@
+package com.syh.chat.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+public final class UploadFiles {
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final byte[] PDF_MAGIC = "%PDF-".getBytes(StandardCharsets.US_ASCII);
+
+    private UploadFiles() {
+    }
+
+    public static Persisted persistPdf(InputStream in, Path target, long maxBytes) throws IOException {
+        MessageDigest digest = ContentHash.newSha256();
+        byte[] buffer = new byte[BUFFER_BYTES];
+        long total = 0;
+        boolean ok = false;
+        try (OutputStream out = Files.newOutputStream(target)) {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                if (total < PDF_MAGIC.length) {
+                    checkMagic(buffer, n, (int) total);
+                }
+                total += n;
+                if (maxBytes > 0 && total > maxBytes) {
+                    throw new IllegalArgumentException("文件超过大小限制");
+                }
+                digest.update(buffer, 0, n);
+                out.write(buffer, 0, n);
+            }
+            if (total < PDF_MAGIC.length) {
+                throw new IllegalArgumentException("仅支持PDF文件");
+            }
+            ok = true;
+        } finally {
+            if (!ok) {
+                Files.deleteIfExists(target);
+            }
+        }
+        return new Persisted(target, total, ContentHash.toHex(digest));
+    }
+
+    private static void checkMagic(byte[] buffer, int length, int offset) {
+        int end = Math.min(PDF_MAGIC.length - offset, length);
+        if (!Arrays.equals(buffer, 0, end, PDF_MAGIC, offset, offset + end)) {
+            throw new IllegalArgumentException("仅支持PDF文件");
+        }
+    }
+
+    public record Persisted(Path path, long bytes, String sha256) {
+    }
+}
@@ -0,0 +1,9 @@
+CREATE INDEX idx_ingest_task_status_updated_at ON ingest_task(status, updated_at);
+
+CREATE INDEX idx_ingest_task_transition_created_at ON ingest_task_transition(created_at);
+
+CREATE TABLE IF NOT EXISTS outbox_event_archive LIKE outbox_event;
+
+CREATE TABLE IF NOT EXISTS ingest_task_archive LIKE ingest_task;
+
+CREATE TABLE IF NOT EXISTS ingest_task_transition_archive LIKE ingest_task_transition;
@@ -0,0 +1,7 @@
+ALTER TABLE ingest_task
+    ADD COLUMN lane VARCHAR(16) NULL,
+    ADD COLUMN estimated_pages INT NULL;
+
+ALTER TABLE ingest_task_archive
+    ADD COLUMN lane VARCHAR(16) NULL,
+    ADD COLUMN estimated_pages INT NULL;
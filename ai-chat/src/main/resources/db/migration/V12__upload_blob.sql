@@ -0,0 +1,19 @@
+CREATE TABLE IF NOT EXISTS upload_blob (
+    sha256 VARCHAR(64) NOT NULL PRIMARY KEY,
+    location VARCHAR(1024) NOT NULL,
+    compression VARCHAR(16) NOT NULL,
+    size_bytes BIGINT NOT NULL,
+    stored_bytes BIGINT NOT NULL,
+    ref_count INT NOT NULL,
+    created_at DATETIME NOT NULL,
+    released_at DATETIME NULL,
+    INDEX idx_upload_blob_unreferenced (ref_count, released_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+ALTER TABLE ingest_task
+    ADD COLUMN blob_hash VARCHAR(64) NULL;
+
+ALTER TABLE ingest_task_archive
+    ADD COLUMN blob_hash VARCHAR(64) NULL;
+
+CREATE INDEX idx_ingest_task_blob_hash ON ingest_task(blob_hash);
@@ -0,0 +1 @@
+CREATE INDEX idx_ingest_task_user_status ON ingest_task(user_id, status);
@@ -0,0 +1,16 @@
+CREATE TABLE IF NOT EXISTS id_generator (
+    gen_name VARCHAR(255) NOT NULL PRIMARY KEY,
+    gen_value BIGINT NOT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+INSERT INTO id_generator (gen_name, gen_value)
+SELECT 'knowledge_segment', COALESCE(MAX(id), 0) + 100 FROM knowledge_segment;
+
+INSERT INTO id_generator (gen_name, gen_value)
+SELECT 'generated_question', COALESCE(MAX(id), 0) + 100 FROM generated_question;
+
+INSERT INTO id_generator (gen_name, gen_value)
+SELECT 'message', COALESCE(MAX(id), 0) + 100 FROM message;
+
+INSERT INTO id_generator (gen_name, gen_value)
+SELECT 'ingest_task_transition', COALESCE(MAX(id), 0) + 100 FROM ingest_task_transition;
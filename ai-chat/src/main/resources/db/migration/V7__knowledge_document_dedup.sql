@@ -0,0 +1,7 @@
+ALTER TABLE knowledge_document
+    ADD COLUMN content_hash VARCHAR(64) NULL,
+    ADD COLUMN embedding_model VARCHAR(100) NULL,
+    ADD COLUMN vector_document_id BIGINT NULL;
+
+CREATE INDEX idx_knowledge_document_content_hash ON knowledge_document(content_hash, embedding_model, status);
+CREATE INDEX idx_knowledge_document_vector_document_id ON knowledge_document(vector_document_id);
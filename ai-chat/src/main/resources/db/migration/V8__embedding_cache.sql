@@ -0,0 +1,8 @@
+CREATE TABLE IF NOT EXISTS embedding_cache (
+    cache_key VARCHAR(64) NOT NULL PRIMARY KEY,
+    model VARCHAR(100) NOT NULL,
+    dimension INT NOT NULL,
+    vector MEDIUMBLOB NOT NULL,
+    created_at DATETIME NOT NULL,
+    INDEX idx_embedding_cache_created_at (created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
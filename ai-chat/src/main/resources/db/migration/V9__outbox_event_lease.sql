@@ -0,0 +1,5 @@
+ALTER TABLE outbox_event
+    ADD COLUMN lease_owner VARCHAR(64) NULL,
+    ADD COLUMN lease_until DATETIME NULL;
+
+CREATE INDEX idx_outbox_event_lease_owner ON outbox_event(lease_owner);
@@ -0,0 +1,44 @@
+package com.syh.chat.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class IdBlockAllocatorTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final IdBlockAllocator allocator = new IdBlockAllocator(null, jdbcTemplate,
+            new TransactionTemplate(mock(PlatformTransactionManager.class)), new SimpleMeterRegistry());
+
+    @Test
+    void handsOutIdsAboveTheStoredValueAndAllocatesOncePerBlock() {
+        when(jdbcTemplate.queryForObject(contains("FOR UPDATE"), eq(Long.class), eq("message")))
+                .thenReturn(100L, 150L);
+
+        assertEquals(101L, allocator.next("message", 50));
+        for (long expected = 102; expected <= 150; expected++) {
+            assertEquals(expected, allocator.next("message", 50));
+        }
+        assertEquals(151L, allocator.next("message", 50));
+
+        verify(jdbcTemplate).update("UPDATE id_generator SET gen_value = ? WHERE gen_name = ?", 150L, "message");
+        verify(jdbcTemplate).update("UPDATE id_generator SET gen_value = ? WHERE gen_name = ?", 200L, "message");
+        verify(jdbcTemplate, times(2)).queryForObject(anyString(), eq(Long.class), any(Object[].class));
+    }
+
+    @Test
+    void keepsSeparateBlocksPerName() {
+        when(jdbcTemplate.queryForObject(contains("FOR UPDATE"), eq(Long.class), eq("message"))).thenReturn(0L);
+        when(jdbcTemplate.queryForObject(contains("FOR UPDATE"), eq(Long.class), eq("knowledge_segment"))).thenReturn(1000L);
+
+        assertEquals(1L, allocator.next("message", 50));
+        assertEquals(1001L, allocator.next("knowledge_segment", 50));
+        assertEquals(2L, allocator.next("message", 50));
+    }
+}
@@ -0,0 +1,91 @@
+package com.syh.chat.rag;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class CachingEmbeddingModelTest {
+
+    @Test
+    void embedAll_onlySendsMissesAndServesRepeatsFromL1() {
+        EmbeddingModel delegate = mock(EmbeddingModel.class);
+        List<List<String>> requested = new ArrayList<>();
+        when(delegate.embedAll(anyList())).thenAnswer(inv -> {
+            List<TextSegment> segments = inv.getArgument(0);
+            List<String> texts = segments.stream().map(TextSegment::text).toList();
+            requested.add(texts);
+            return Response.from(texts.stream().map(t -> Embedding.from(new float[]{t.length(), 1f})).toList());
+        });
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CachingEmbeddingModel model = new CachingEmbeddingModel(delegate, "BAAI/bge-m3", null, 100, registry);
+
+        List<Embedding> first = model.embedAll(List.of(TextSegment.from("alpha"), TextSegment.from("beta"), TextSegment.from("alpha"))).content();
+        List<Embedding> second = model.embedAll(List.of(TextSegment.from("beta  "), TextSegment.from("gamma"))).content();
+
+        assertEquals(List.of(List.of("alpha", "beta"), List.of("gamma")), requested);
+        assertEquals(3, first.size());
+        assertArrayEquals(first.get(0).vector(), first.get(2).vector());
+        assertArrayEquals(first.get(1).vector(), second.get(0).vector());
+        assertEquals(1.0, registry.get("embedding_cache_lookups_total").tag("result", "l1_hit").counter().count());
+        assertEquals(4.0, registry.get("embedding_cache_lookups_total").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void embedAll_readsThroughL2AndWritesCompactVectors() {
+        EmbeddingModel delegate = mock(EmbeddingModel.class);
+        EmbeddingCacheStore l2 = mock(EmbeddingCacheStore.class);
+        CachingEmbeddingModel model = new CachingEmbeddingModel(delegate, "BAAI/bge-m3", l2, 100, new SimpleMeterRegistry());
+        String key = model.cacheKey("chunk text");
+        when(l2.getAll(anyCollection())).thenReturn(Map.of(key, new float[]{0.5f, 0.25f}));
+
+        Embedding embedding = model.embedAll(List.of(TextSegment.from("chunk   text"))).content().get(0);
+        model.embedAll(List.of(TextSegment.from("chunk text")));
+
+        assertArrayEquals(new float[]{0.5f, 0.25f}, embedding.vector());
+        verify(l2, times(1)).getAll(anyCollection());
+        verify(delegate, times(0)).embedAll(anyList());
+        verify(l2, times(0)).putAll(eq("BAAI/bge-m3"), anyMap());
+    }
+
+    @Test
+    void embed_keepsQueryVectorsInL1Only() {
+        EmbeddingModel delegate = mock(EmbeddingModel.class);
+        EmbeddingCacheStore l2 = mock(EmbeddingCacheStore.class);
+        when(delegate.embed("query text")).thenReturn(Response.from(Embedding.from(new float[]{0.5f, 0.25f})));
+        CachingEmbeddingModel model = new CachingEmbeddingModel(delegate, "BAAI/bge-m3", l2, 100, new SimpleMeterRegistry());
+
+        model.embed("query text");
+        Embedding cached = model.embed("query   text").content();
+
+        assertArrayEquals(new float[]{0.5f, 0.25f}, cached.vector());
+        verify(delegate, times(1)).embed("query text");
+        verifyNoInteractions(l2);
+    }
+
+    @Test
+    void floatBytesRoundTrip() {
+        float[] vector = {0.1f, -2.5f, Float.MIN_VALUE, 3.4e38f};
+        byte[] bytes = EmbeddingCacheStore.encode(vector);
+        assertEquals(vector.length * Float.BYTES, bytes.length);
+        assertArrayEquals(vector, EmbeddingCacheStore.decode(bytes));
+    }
+}
@@ -0,0 +1,113 @@
+package com.syh.chat.rag;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChunkerBenchmark {
+
+    private static final int TEXT_BYTES = 1024 * 1024;
+    private static final int PIECE_CHARS = 16 * 1024;
+
+    @Param({"regex", "fixed", "sentence", "token"})
+    public String strategy;
+
+    private List<String> pieces;
+    private String text;
+    private Chunker chunker;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        String[] sentences = {
+                "检索增强生成会先召回与问题相关的知识片段。",
+                "模型只需要在较短的上下文中作答！",
+                "Retrieval augmented generation keeps the prompt small and focused. ",
+                "Does the answer cite the right page? ",
+                "Version 3.14 of the syllabus adds two chapters.\n\n",
+                "  表格\t列1\t列2\n"
+        };
+        StringBuilder sb = new StringBuilder(TEXT_BYTES);
+        int bytes = 0;
+        while (bytes < TEXT_BYTES) {
+            String sentence = sentences[random.nextInt(sentences.length)];
+            sb.append(sentence);
+            bytes += sentence.getBytes(StandardCharsets.UTF_8).length;
+        }
+        text = sb.toString();
+        pieces = new ArrayList<>();
+        for (int i = 0; i < text.length(); i += PIECE_CHARS) {
+            pieces.add(text.substring(i, Math.min(text.length(), i + PIECE_CHARS)));
+        }
+        chunker = switch (strategy) {
+            case "fixed" -> new FixedWindowChunker(900, 120);
+            case "sentence" -> new SentenceChunker(900, 120, SentenceChunker.Budget.CHARS);
+            case "token" -> new SentenceChunker(512, 64, SentenceChunker.Budget.TOKENS);
+            default -> null;
+        };
+    }
+
+    @Benchmark
+    public void chunkOneMegabyte(Blackhole bh) {
+        if (chunker == null) {
+            for (String chunk : regexChunks(text)) {
+                bh.consume(chunk);
+            }
+            return;
+        }
+        Chunker.Session session = chunker.open(bh::consume);
+        for (String piece : pieces) {
+            session.append(piece);
+        }
+        session.finish();
+    }
+
+    private static List<String> regexChunks(String text) {
+        String normalized = text.replaceAll("\\s+", " ").trim();
+        List<String> chunks = new ArrayList<>();
+        int start = 0;
+        while (start < normalized.length()) {
+            int end = Math.min(normalized.length(), start + 900);
+            String chunk = normalized.substring(start, end).replaceAll("\\s+", " ").trim();
+            if (!chunk.isBlank()) {
+                chunks.add(chunk);
+            }
+            if (end == normalized.length()) {
+                break;
+            }
+            start = Math.max(0, end - 120);
+        }
+        return chunks;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(ChunkerBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
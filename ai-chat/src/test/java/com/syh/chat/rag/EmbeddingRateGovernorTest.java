@@ -0,0 +1,189 @@
+package com.syh.chat.rag;
+
+import com.syh.chat.config.EmbeddingGovernorProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class EmbeddingRateGovernorTest {
+
+    @Test
+    void retriesThrottledCallsAndCutsConcurrencyLimit() {
+        EmbeddingGovernorProperties props = props(8);
+        EmbeddingRateGovernor governor = new EmbeddingRateGovernor(null, props, new SimpleMeterRegistry());
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = governor.call(EmbeddingRateGovernor.Priority.BULK, () -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new EmbeddingThrottledException("SiliconFlow embeddings 调用失败: HTTP 429 rate limited");
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(2, calls.get());
+        assertTrue(governor.snapshot(true) < 8);
+        assertEquals(0, governor.snapshot(false));
+    }
+
+    @Test
+    void givesUpAfterMaxAttemptsAndKeepsNonThrottlingErrors() {
+        EmbeddingRateGovernor governor = new EmbeddingRateGovernor(null, props(4), new SimpleMeterRegistry());
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () -> governor.call(EmbeddingRateGovernor.Priority.BULK, () -> {
+            calls.incrementAndGet();
+            throw new EmbeddingThrottledException("SiliconFlow embeddings 调用失败: HTTP 429");
+        }));
+        assertEquals(3, calls.get());
+
+        calls.set(0);
+        assertThrows(IllegalStateException.class, () -> governor.call(EmbeddingRateGovernor.Priority.BULK, () -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("SiliconFlow embeddings 调用失败: HTTP 400");
+        }));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void successesGrowConcurrencyLimitAdditively() {
+        EmbeddingGovernorProperties props = props(2);
+        EmbeddingRateGovernor governor = new EmbeddingRateGovernor(null, props, new SimpleMeterRegistry());
+
+        for (int i = 0; i < 4; i++) {
+            governor.call(EmbeddingRateGovernor.Priority.BULK, () -> "ok");
+        }
+
+        double limit = governor.snapshot(true);
+        assertTrue(limit > 3 && limit < 4, "limit " + limit);
+    }
+
+    @Test
+    void interactiveCallsUseReservedSlotWhileBulkWaits() throws Exception {
+        EmbeddingGovernorProperties props = props(2);
+        props.setMaxConcurrency(2);
+        props.setBulkMaxWaitMs(300);
+        EmbeddingRateGovernor governor = new EmbeddingRateGovernor(null, props, new SimpleMeterRegistry());
+        CountDownLatch bulkRunning = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread bulk = new Thread(() -> governor.call(EmbeddingRateGovernor.Priority.BULK, () -> {
+            bulkRunning.countDown();
+            await(release);
+            return "bulk";
+        }));
+        bulk.start();
+        try {
+            assertTrue(bulkRunning.await(5, TimeUnit.SECONDS));
+            assertThrows(EmbeddingGovernorTimeoutException.class, () -> governor.call(EmbeddingRateGovernor.Priority.BULK, () -> "second"));
+            assertEquals("query", governor.call(EmbeddingRateGovernor.Priority.INTERACTIVE, () -> "query"));
+        } finally {
+            release.countDown();
+            bulk.join(5000);
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void waitsForClusterTokenAndReportsThrottlingToRedis() {
+        StringRedisTemplate redis = mock(StringRedisTemplate.class);
+        AtomicInteger acquires = new AtomicInteger();
+        AtomicInteger feedbacks = new AtomicInteger();
+        when(redis.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenAnswer(inv -> {
+            RedisScript<?> script = inv.getArgument(0);
+            if (script.getResultType() == Long.class) {
+                feedbacks.incrementAndGet();
+                return 5000L;
+            }
+            return List.of(acquires.incrementAndGet() == 1 ? 20L : 0L, 10000L);
+        });
+        EmbeddingRateGovernor governor = new EmbeddingRateGovernor(redis, props(4), new SimpleMeterRegistry());
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () -> governor.call(EmbeddingRateGovernor.Priority.INTERACTIVE, () -> {
+            calls.incrementAndGet();
+            throw new EmbeddingThrottledException("SiliconFlow embeddings 调用失败: HTTP 429");
+        }));
+
+        assertEquals(3, calls.get());
+        assertEquals(4, acquires.get());
+        assertEquals(3, feedbacks.get());
+        verify(redis, atLeastOnce()).execute(any(RedisScript.class), eq(List.of("embedding:governor:test")), any(Object[].class));
+    }
+
+    @Test
+    void slowBulkBatchesDoNotCutTheConcurrencyLimit() {
+        EmbeddingGovernorProperties props = props(4);
+        props.setLatencyTargetMs(1);
+        EmbeddingRateGovernor governor = new EmbeddingRateGovernor(null, props, new SimpleMeterRegistry());
+
+        governor.call(EmbeddingRateGovernor.Priority.BULK, 16, () -> sleep(20));
+        assertTrue(governor.snapshot(true) > 4);
+
+        governor.call(EmbeddingRateGovernor.Priority.INTERACTIVE, () -> sleep(20));
+        assertTrue(governor.snapshot(true) < 4);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void chargesClusterTokensPerInput() {
+        StringRedisTemplate redis = mock(StringRedisTemplate.class);
+        when(redis.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenAnswer(inv -> {
+            RedisScript<?> script = inv.getArgument(0);
+            return script.getResultType() == Long.class ? 50000L : List.of(0L, 50000L);
+        });
+        EmbeddingRateGovernor governor = new EmbeddingRateGovernor(redis, props(4), new SimpleMeterRegistry());
+
+        governor.call(EmbeddingRateGovernor.Priority.BULK, 16, () -> "ok");
+
+        verify(redis).execute(any(RedisScript.class), anyList(),
+                eq("50.0"), eq("5.0"), eq("100.0"), eq("2.0"), eq("2.0"), eq("16"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void fallsBackToLocalLimitWhenRedisFails() {
+        StringRedisTemplate redis = mock(StringRedisTemplate.class);
+        when(redis.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenThrow(new IllegalStateException("redis down"));
+        EmbeddingRateGovernor governor = new EmbeddingRateGovernor(redis, props(4), new SimpleMeterRegistry());
+
+        assertEquals("ok", governor.call(EmbeddingRateGovernor.Priority.INTERACTIVE, () -> "ok"));
+    }
+
+    private static EmbeddingGovernorProperties props(int concurrency) {
+        EmbeddingGovernorProperties props = new EmbeddingGovernorProperties();
+        props.setKey("embedding:governor:test");
+        props.setInitialConcurrency(concurrency);
+        props.setMaxConcurrency(16);
+        props.setDecreaseCooldownMs(0);
+        props.setInteractiveMaxWaitMs(2000);
+        props.setBulkMaxWaitMs(2000);
+        return props;
+    }
+
+    private static String sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "ok";
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.syh.chat.rag;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SentenceChunkerTest {
+
+    @Test
+    void chunksEndOnSentenceBoundariesWithinBudget() {
+        String text = "检索增强生成先召回相关片段。然后把片段交给模型！这样回答更可靠吗？"
+                + "Chunks should end at a full stop. Pi is 3.14 and stays intact. Does it work? Yes!";
+        List<String> chunks = chunk(new SentenceChunker(40, 0, SentenceChunker.Budget.CHARS), text);
+
+        assertTrue(chunks.size() > 1);
+        for (String chunk : chunks) {
+            assertTrue(chunk.length() <= 40, chunk);
+            assertTrue(SentenceChunker.isSentenceEnd(chunk.charAt(chunk.length() - 1)) || chunk.endsWith("."), chunk);
+        }
+        assertTrue(chunks.stream().anyMatch(c -> c.contains("3.14")));
+    }
+
+    @Test
+    void overlapCarriesTrailingSentences() {
+        String text = "第一句。第二句。第三句。第四句。第五句。第六句。";
+        List<String> chunks = chunk(new SentenceChunker(12, 4, SentenceChunker.Budget.CHARS), text);
+
+        assertEquals(List.of("第一句。第二句。第三句。", "第三句。第四句。第五句。", "第五句。第六句。"), chunks);
+    }
+
+    @Test
+    void streamingPiecesMatchSingleAppend() {
+        Random random = new Random(7);
+        String alphabet = "知识库检索。！？abc XYZ 12.5.!?\n\t ";
+        for (SentenceChunker.Budget budget : SentenceChunker.Budget.values()) {
+            SentenceChunker chunker = new SentenceChunker(200, 40, budget);
+            for (int round = 0; round < 30; round++) {
+                StringBuilder text = new StringBuilder();
+                int length = random.nextInt(4000);
+                for (int i = 0; i < length; i++) {
+                    text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+                }
+                List<String> streamed = new ArrayList<>();
+                Chunker.Session session = chunker.open(streamed::add);
+                int pos = 0;
+                while (pos < text.length()) {
+                    int end = Math.min(text.length(), pos + 1 + random.nextInt(300));
+                    session.append(text.subSequence(pos, end));
+                    pos = end;
+                }
+                session.finish();
+
+                assertEquals(chunk(chunker, text.toString()), streamed);
+            }
+        }
+    }
+
+    @Test
+    void tokenBudgetNeverSplitsWords() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            text.append("retrieval augmented generation keeps prompts compact ");
+        }
+        Set<String> words = new HashSet<>(Arrays.asList("retrieval", "augmented", "generation", "keeps", "prompts", "compact"));
+        List<String> chunks = chunk(new SentenceChunker(64, 8, SentenceChunker.Budget.TOKENS), text.toString());
+
+        assertTrue(chunks.size() > 10);
+        for (String chunk : chunks) {
+            for (String word : chunk.split(" ")) {
+                assertTrue(words.contains(word), word);
+            }
+        }
+    }
+
+    @Test
+    void blankInputProducesNoChunks() {
+        assertTrue(chunk(new SentenceChunker(100, 10, SentenceChunker.Budget.CHARS), " \n\t ").isEmpty());
+        assertFalse(chunk(new FixedWindowChunker(100, 10), "a").isEmpty());
+    }
+
+    private List<String> chunk(Chunker chunker, String text) {
+        List<String> out = new ArrayList<>();
+        Chunker.Session session = chunker.open(out::add);
+        session.append(text);
+        session.finish();
+        return out;
+    }
+}
@@ -0,0 +1,66 @@
+package com.syh.chat.rag;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamingTextChunkerTest {
+
+    @Test
+    void matchesWholeTextChunkingAcrossArbitraryPieces() {
+        Random random = new Random(42);
+        String alphabet = "知识库检索增强abcXYZ0123 .。!\n\t\r  ";
+        for (int round = 0; round < 50; round++) {
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt(6000);
+            for (int i = 0; i < length; i++) {
+                text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+
+            List<String> streamed = new ArrayList<>();
+            StreamingTextChunker chunker = new StreamingTextChunker(900, 120, streamed::add);
+            int pos = 0;
+            while (pos < text.length()) {
+                int end = Math.min(text.length(), pos + 1 + random.nextInt(700));
+                chunker.append(text.subSequence(pos, end));
+                pos = end;
+            }
+            chunker.finish();
+
+            assertEquals(referenceChunks(text.toString(), 900, 120), streamed);
+        }
+    }
+
+    @Test
+    void blankInputProducesNoChunks() {
+        List<String> out = new ArrayList<>();
+        StreamingTextChunker chunker = new StreamingTextChunker(900, 120, out::add);
+        chunker.append(" \n\t ");
+        chunker.append(null);
+        chunker.finish();
+        assertTrue(out.isEmpty());
+    }
+
+    private List<String> referenceChunks(String text, int maxChars, int overlap) {
+        String normalized = text.replaceAll("\\s+", " ").trim();
+        List<String> chunks = new ArrayList<>();
+        int start = 0;
+        while (start < normalized.length()) {
+            int end = Math.min(normalized.length(), start + maxChars);
+            String chunk = normalized.substring(start, end).replaceAll("\\s+", " ").trim();
+            if (!chunk.isBlank()) {
+                chunks.add(chunk);
+            }
+            if (end == normalized.length()) {
+                break;
+            }
+            start = Math.max(0, end - overlap);
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,97 @@
+package com.syh.chat.service;
+
+import dev.langchain4j.data.embedding.Embedding;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChromaVectorStoreServiceTest {
+
+    private static final String COLLECTIONS = "/api/v2/tenants/default_tenant/databases/default_database/collections";
+
+    private DisposableServer server;
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.disposeNow();
+        }
+    }
+
+    @Test
+    void upsertBatch_splitsRequestsAndReportsFailedIds() {
+        AtomicInteger upserts = new AtomicInteger();
+        server = HttpServer.create()
+                .port(0)
+                .route(routes -> routes
+                        .get(COLLECTIONS, (req, resp) -> resp
+                                .header("Content-Type", "application/json")
+                                .sendString(Mono.just("[{\"name\":\"doc_1\",\"id\":\"c1\"}]")))
+                        .post(COLLECTIONS + "/c1/upsert", (req, resp) -> {
+                            int n = upserts.incrementAndGet();
+                            if (n == 2) {
+                                return resp.status(HttpResponseStatus.INTERNAL_SERVER_ERROR).sendString(Mono.just("boom"));
+                            }
+                            return resp.header("Content-Type", "application/json").sendString(Mono.just("{}"));
+                        }))
+                .bindNow();
+
+        ChromaVectorStoreService service = new ChromaVectorStoreService(
+                WebClient.builder(),
+                "http://127.0.0.1:" + server.port(),
+                "default_tenant",
+                "default_database",
+                "doc",
+                2,
+                4194304
+        );
+
+        List<ChromaVectorStoreService.VectorRecord> records = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            records.add(new ChromaVectorStoreService.VectorRecord(
+                    "id-" + i,
+                    Embedding.from(new float[]{0.1f, 0.2f}),
+                    "text " + i,
+                    Map.of("segmentIndex", i)
+            ));
+        }
+
+        ChromaVectorStoreService.UpsertResult result = service.upsertBatch(1L, records);
+
+        assertEquals(3, upserts.get());
+        assertTrue(result.hasFailures());
+        assertEquals(List.of("id-2", "id-3"), result.failedIds());
+        assertEquals(List.of("id-0", "id-1", "id-4"), result.writtenIds());
+    }
+
+    @Test
+    void upsertBatch_emptyInputSendsNothing() {
+        ChromaVectorStoreService service = new ChromaVectorStoreService(
+                WebClient.builder(),
+                "http://127.0.0.1:1",
+                "default_tenant",
+                "default_database",
+                "doc",
+                2,
+                4194304
+        );
+
+        ChromaVectorStoreService.UpsertResult result = service.upsertBatch(1L, List.of());
+
+        assertFalse(result.hasFailures());
+        assertTrue(result.writtenIds().isEmpty());
+    }
+}
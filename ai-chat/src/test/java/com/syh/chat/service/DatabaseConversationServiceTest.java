@@ -6,6 +6,7 @@ import com.syh.chat.model.Message;
 import com.syh.chat.repository.ConversationRepository;
 import com.syh.chat.repository.MessageRepository;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 
 import java.util.List;
 import java.util.Optional;
@@ -42,6 +43,33 @@ public class DatabaseConversationServiceTest {
 
         verify(messageRepository).save(notNull());
     }
-}
 
+    @SuppressWarnings({"null", "unchecked"})
+    @Test
+    void saveMessages_shouldContinueOrderAndMapLikeSaveMessage() {
+        ConversationRepository conversationRepository = mock(ConversationRepository.class);
+        MessageRepository messageRepository = mock(MessageRepository.class);
+        DatabaseConversationService service = new DatabaseConversationService(conversationRepository, messageRepository);
 
+        Conversation conversation = new Conversation();
+        conversation.setId(1L);
+        conversation.setUserId(10L);
+        conversation.setSessionId("s1");
+
+        when(conversationRepository.findBySessionId("s1")).thenReturn(Optional.of(conversation));
+        when(messageRepository.findByConversationIdOrderByMessageOrderAsc(1L)).thenReturn(List.of(new MessageEntity(), new MessageEntity()));
+        Message question = new Message("user", "hi");
+        question.setImages(List.of("data:image/png;base64,AAAA"));
+        Message answer = new Message("assistant", "hello");
+
+        service.saveMessages(10L, "s1", List.of(question, answer));
+
+        ArgumentCaptor<List<MessageEntity>> saved = ArgumentCaptor.forClass(List.class);
+        verify(messageRepository).saveAll(saved.capture());
+        assertEquals(2, saved.getValue().get(0).getMessageOrder());
+        assertEquals("data:image/png;base64,AAAA", saved.getValue().get(0).getImageUrl());
+        assertEquals(3, saved.getValue().get(1).getMessageOrder());
+        assertEquals("assistant", saved.getValue().get(1).getRole());
+        assertEquals(10L, saved.getValue().get(1).getUserId());
+    }
+}
@@ -0,0 +1,82 @@
+package com.syh.chat.service;
+
+import com.syh.chat.repository.IngestTaskRepository;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class IngestAdmissionServiceTest {
+
+    private final IngestTaskRepository taskRepository = mock(IngestTaskRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final IngestAdmissionService service = new IngestAdmissionService(
+            mock(StringRedisTemplate.class), taskRepository, meterRegistry,
+            true, "redis", "ingest:tasks", "ingest-workers",
+            100, 50, 600, 0.85, 3, 1000, 30, 2, 60, 3600);
+
+    @Test
+    void admitsWhenQueueIsHealthyAndUserUnderQuota() {
+        when(taskRepository.countByUserIdAndStatusIn(eq(1L), anyCollection())).thenReturn(2L);
+
+        IngestAdmissionService.Decision decision = service.decide(1L, snapshot(10, 2, 30, 10, 100));
+
+        assertTrue(decision.admitted());
+    }
+
+    @Test
+    void rejectsWithServiceUnavailableWhenRedisMemoryIsNearlyFull() {
+        IngestAdmissionService.Decision decision = service.decide(1L, snapshot(0, 0, 0, 90, 100));
+
+        assertFalse(decision.admitted());
+        assertEquals(503, decision.status());
+        assertEquals("memory", decision.reason());
+        assertEquals(60, decision.retryAfterSeconds());
+        verifyNoInteractions(taskRepository);
+    }
+
+    @Test
+    void backlogRetryAfterScalesWithExcessAndObservedTaskTime() {
+        IngestAdmissionService.Decision decision = service.decide(1L, snapshot(119, 0, 0, 0, 0));
+        assertEquals(503, decision.status());
+        assertEquals("backlog", decision.reason());
+        assertEquals(20 * 30 / 2, decision.retryAfterSeconds());
+
+        Timer.builder("ingest_task_process_seconds").tag("result", "succeeded").register(meterRegistry).record(Duration.ofSeconds(4));
+        assertEquals(20 * 4 / 2, service.decide(1L, snapshot(119, 0, 0, 0, 0)).retryAfterSeconds());
+    }
+
+    @Test
+    void rejectsOnPendingAndOldestAge() {
+        assertEquals("pending", service.decide(1L, snapshot(60, 50, 0, 0, 0)).reason());
+        assertEquals("age", service.decide(1L, snapshot(5, 0, 601, 0, 0)).reason());
+    }
+
+    @Test
+    void rejectsWithTooManyRequestsWhenUserQuotaIsExhausted() {
+        when(taskRepository.countByUserIdAndStatusIn(eq(1L), anyCollection())).thenReturn(3L);
+
+        IngestAdmissionService.Decision decision = service.decide(1L, snapshot(0, 0, 0, 0, 0));
+
+        assertEquals(429, decision.status());
+        assertEquals("quota", decision.reason());
+        assertEquals(15, decision.retryAfterSeconds());
+    }
+
+    @Test
+    void unavailableSnapshotFailsOpenButStillAppliesQuota() {
+        when(taskRepository.countByUserIdAndStatusIn(eq(1L), anyCollection())).thenReturn(0L);
+
+        assertTrue(service.decide(1L, IngestAdmissionService.QueueSnapshot.unavailable(0)).admitted());
+    }
+
+    private static IngestAdmissionService.QueueSnapshot snapshot(long backlog, long pending, long ageSeconds, long used, long max) {
+        return new IngestAdmissionService.QueueSnapshot(true, backlog, pending, ageSeconds, used, max, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,152 @@
+package com.syh.chat.service;
+
+import com.syh.chat.entity.KnowledgeDocument;
+import com.syh.chat.repository.KnowledgeDocumentRepository;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+
+@Testcontainers(disabledWithoutDocker = true)
+@SpringBootTest
+@SuppressWarnings("resource")
+public class IngestConnectionPoolIT {
+
+    private static final int CONCURRENT_INGESTS = 6;
+    private static final long P95_TARGET_MS = 200;
+
+    @Container
+    static MySQLContainer<?> mysql = new MySQLContainer<>("mysql:8.0.36")
+            .withDatabaseName("ollama_chat")
+            .withUsername("root")
+            .withPassword("1234");
+
+    @Container
+    static GenericContainer<?> redis = new GenericContainer<>("redis:7.2-alpine").withExposedPorts(6379);
+
+    @DynamicPropertySource
+    static void registerProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", mysql::getJdbcUrl);
+        registry.add("spring.datasource.username", mysql::getUsername);
+        registry.add("spring.datasource.password", mysql::getPassword);
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> "5");
+        registry.add("spring.datasource.hikari.connection-timeout", () -> "2000");
+        registry.add("spring.data.redis.host", redis::getHost);
+        registry.add("spring.data.redis.port", () -> redis.getMappedPort(6379));
+
+        registry.add("jwt.secret", () -> "test-secret-key-must-be-at-least-256-bits-long-for-hs256-please-change-this");
+        registry.add("bigmodel.api-key", () -> "dummy");
+        registry.add("siliconflow.api-key", () -> "dummy");
+        registry.add("chroma.base-url", () -> "http://127.0.0.1:8000");
+        registry.add("app.ingest.queue", () -> "redis");
+        registry.add("app.ingest.stream-key", () -> "ingest:tasks:pool-test");
+        registry.add("app.embedding.cache.enabled", () -> "false");
+        registry.add("app.vector-gc.enabled", () -> "false");
+    }
+
+    @TempDir
+    Path tempDir;
+
+    @Autowired
+    KnowledgeIngestService ingestService;
+
+    @Autowired
+    KnowledgeDocumentRepository documentRepository;
+
+    @MockBean
+    @SuppressWarnings("removal")
+    EmbeddingModel embeddingModel;
+
+    @MockBean
+    @SuppressWarnings("removal")
+    ChromaVectorStoreService chromaVectorStoreService;
+
+    @Test
+    void interactiveQueriesStayFastWhileIngestsRun() throws Exception {
+        Mockito.when(embeddingModel.embedAll(anyList())).thenAnswer(inv -> {
+            List<TextSegment> segments = inv.getArgument(0);
+            Thread.sleep(300);
+            List<Embedding> out = new ArrayList<>();
+            for (TextSegment segment : segments) {
+                out.add(Embedding.from(new float[]{segment.text().length()}));
+            }
+            return Response.from(out);
+        });
+        Mockito.when(chromaVectorStoreService.upsertBatch(anyLong(), anyList())).thenAnswer(inv -> {
+            List<ChromaVectorStoreService.VectorRecord> records = inv.getArgument(1);
+            return new ChromaVectorStoreService.UpsertResult(
+                    records.stream().map(ChromaVectorStoreService.VectorRecord::id).toList(), List.of(), null);
+        });
+
+        Long userId = 1L;
+        List<Path> pdfs = new ArrayList<>();
+        List<Long> documentIds = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_INGESTS; i++) {
+            pdfs.add(KnowledgeIngestPipelineTest.writePdf(tempDir.resolve("doc-" + i + ".pdf"), 20 + i));
+            KnowledgeDocument doc = new KnowledgeDocument();
+            doc.setUserId(userId);
+            doc.setTitle("doc-" + i);
+            doc.setStatus("QUEUED");
+            doc.setSegmentCount(0);
+            doc.setCreatedAt(LocalDateTime.now());
+            doc.setUpdatedAt(LocalDateTime.now());
+            documentIds.add(documentRepository.save(doc).getId());
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(CONCURRENT_INGESTS);
+        List<Future<KnowledgeDocument>> ingests = new ArrayList<>();
+        List<Long> latenciesMs = Collections.synchronizedList(new ArrayList<>());
+        try {
+            for (int i = 0; i < CONCURRENT_INGESTS; i++) {
+                Long documentId = documentIds.get(i);
+                String file = pdfs.get(i).toString();
+                ingests.add(pool.submit(() -> ingestService.ingestExistingDocumentFromFile(userId, documentId, file, null)));
+            }
+            while (ingests.stream().anyMatch(f -> !f.isDone())) {
+                long start = System.nanoTime();
+                assertEquals(CONCURRENT_INGESTS, ingestService.listDocuments(userId).size());
+                latenciesMs.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                Thread.sleep(50);
+            }
+            for (Future<KnowledgeDocument> ingest : ingests) {
+                assertEquals("READY", ingest.get().getStatus());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        List<Long> sorted = new ArrayList<>(latenciesMs);
+        Collections.sort(sorted);
+        assertTrue(sorted.size() >= 20, "ingest finished before enough probes ran: " + sorted.size());
+        long p50 = sorted.get(sorted.size() / 2);
+        long p95 = sorted.get((int) Math.ceil(sorted.size() * 0.95) - 1);
+        System.out.printf("interactive query under %d concurrent ingests (pool=5): samples=%d p50=%d ms p95=%d ms max=%d ms%n",
+                CONCURRENT_INGESTS, sorted.size(), p50, p95, sorted.get(sorted.size() - 1));
+        assertTrue(p95 < P95_TARGET_MS, "p95 " + p95 + " ms");
+    }
+}
@@ -0,0 +1,202 @@
+package com.syh.chat.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.syh.chat.config.IngestKafkaConfig;
+import com.syh.chat.dto.IngestTaskEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.AcknowledgingMessageListener;
+import org.springframework.kafka.listener.BatchAcknowledgingMessageListener;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.*;
+
+public class IngestKafkaThroughputIT {
+
+    private static final int DOCS = 80;
+    private static final long DOC_MS = 25;
+    private static final int[] PARTITIONS = {1, 4, 8};
+
+    private static EmbeddedKafkaBroker broker;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeAll
+    static void startBroker() {
+        broker = new EmbeddedKafkaKraftBroker(1, 1);
+        broker.afterPropertiesSet();
+        for (int partitions : PARTITIONS) {
+            broker.addTopics(new NewTopic(topic("record", partitions), partitions, (short) 1),
+                    new NewTopic(topic("batch", partitions), partitions, (short) 1));
+        }
+    }
+
+    @AfterAll
+    static void stopBroker() {
+        if (broker != null) {
+            broker.destroy();
+        }
+    }
+
+    @Test
+    void throughputScalesWithPartitionsAndConcurrency() throws Exception {
+        Map<String, Double> docsPerSec = new LinkedHashMap<>();
+        for (String mode : new String[]{"record", "batch"}) {
+            for (int partitions : PARTITIONS) {
+                double rate = run(mode, partitions);
+                docsPerSec.put(mode + "@" + partitions, rate);
+                System.out.printf("kafka ingest mode=%s partitions=%d concurrency=%d docs=%d -> %.1f docs/sec%n",
+                        mode, partitions, partitions, DOCS, rate);
+            }
+        }
+        assertTrue(docsPerSec.get("record@8") > docsPerSec.get("record@1") * 3, docsPerSec.toString());
+        assertTrue(docsPerSec.get("batch@8") > docsPerSec.get("batch@1") * 3, docsPerSec.toString());
+    }
+
+    @Test
+    void batchModeRedeliversOnlyFromTheFailedRecord() throws Exception {
+        String topic = topic("batch", 1);
+        Set<String> processed = ConcurrentHashMap.newKeySet();
+        AtomicBoolean failedOnce = new AtomicBoolean();
+        CountDownLatch done = new CountDownLatch(DOCS);
+        Map<String, Integer> deliveries = new ConcurrentHashMap<>();
+        IngestTaskProcessor processor = Mockito.mock(IngestTaskProcessor.class);
+        Mockito.when(processor.process(anyString(), anyLong(), anyLong(), anyString())).thenAnswer(inv -> {
+            String taskId = inv.getArgument(0);
+            deliveries.merge(taskId, 1, Integer::sum);
+            if (taskId.endsWith("-10") && failedOnce.compareAndSet(false, true)) {
+                return IngestTaskProcessingResult.RETRY;
+            }
+            if (processed.add(taskId)) {
+                done.countDown();
+            }
+            return IngestTaskProcessingResult.SUCCEEDED;
+        });
+
+        String runId = "retry-" + UUID.randomUUID();
+        ConcurrentMessageListenerContainer<String, String> container = startContainer("batch", topic, 1, processor, runId);
+        try {
+            publish(topic, runId);
+            assertTrue(done.await(30, TimeUnit.SECONDS));
+        } finally {
+            container.stop();
+        }
+        assertEquals(2, deliveries.get(runId + "-10"));
+        for (int i = 0; i < 10; i++) {
+            assertEquals(1, deliveries.get(runId + "-" + i), "offset " + i + " was redelivered");
+        }
+    }
+
+    private double run(String mode, int partitions) throws Exception {
+        String topic = topic(mode, partitions);
+        String runId = UUID.randomUUID().toString();
+        CountDownLatch done = new CountDownLatch(DOCS);
+        IngestTaskProcessor processor = Mockito.mock(IngestTaskProcessor.class);
+        Mockito.when(processor.process(anyString(), anyLong(), anyLong(), anyString())).thenAnswer(inv -> {
+            Thread.sleep(DOC_MS);
+            done.countDown();
+            return IngestTaskProcessingResult.SUCCEEDED;
+        });
+        ConcurrentMessageListenerContainer<String, String> container = startContainer(mode, topic, partitions, processor, runId);
+        try {
+            long start = System.nanoTime();
+            publish(topic, runId);
+            assertTrue(done.await(60, TimeUnit.SECONDS), "timed out: " + mode + "@" + partitions);
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+            return DOCS / seconds;
+        } finally {
+            container.stop();
+        }
+    }
+
+    private ConcurrentMessageListenerContainer<String, String> startContainer(
+            String mode, String topic, int concurrency, IngestTaskProcessor processor, String groupId) throws InterruptedException {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        boolean batch = "batch".equals(mode);
+        ConcurrentKafkaListenerContainerFactory<String, String> factory = IngestKafkaConfig.ingestListenerContainerFactory(
+                new DefaultKafkaConsumerFactory<>(props), concurrency, 10, batch);
+        ConcurrentMessageListenerContainer<String, String> container = factory.createContainer(topic);
+        container.getContainerProperties().setGroupId(groupId);
+        if (batch) {
+            IngestTaskKafkaBatchConsumer consumer = new IngestTaskKafkaBatchConsumer(objectMapper, processor, new SimpleMeterRegistry(), 100);
+            container.setupMessageListener((BatchAcknowledgingMessageListener<String, String>) consumer::onMessages);
+        } else {
+            IngestTaskKafkaConsumer consumer = new IngestTaskKafkaConsumer(objectMapper, processor);
+            container.setupMessageListener((AcknowledgingMessageListener<String, String>) (record, ack) -> consumer.onMessage(record.value(), ack));
+        }
+        container.start();
+        waitForAssignment(container, partitionsOf(topic));
+        return container;
+    }
+
+    private void publish(String topic, String runId) throws Exception {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.LINGER_MS_CONFIG, 5);
+        DefaultKafkaProducerFactory<String, String> producerFactory = new DefaultKafkaProducerFactory<>(props);
+        try {
+            KafkaTemplate<String, String> template = new KafkaTemplate<>(producerFactory);
+            for (int i = 0; i < DOCS; i++) {
+                String taskId = runId + "-" + i;
+                String payload = objectMapper.writeValueAsString(new IngestTaskEvent(taskId, 1L, (long) i, "/tmp/" + taskId + ".pdf"));
+                template.send(topic, taskId, payload);
+            }
+            template.flush();
+        } finally {
+            producerFactory.destroy();
+        }
+    }
+
+    private static void waitForAssignment(ConcurrentMessageListenerContainer<String, String> container, int partitions) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (System.currentTimeMillis() < deadline) {
+            if (container.getAssignedPartitions() != null && container.getAssignedPartitions().size() == partitions) {
+                return;
+            }
+            Thread.sleep(50);
+        }
+        throw new IllegalStateException("partitions not assigned: " + container.getAssignedPartitions());
+    }
+
+    private static int partitionsOf(String topic) {
+        return Integer.parseInt(topic.substring(topic.lastIndexOf("-p") + 2));
+    }
+
+    private static String topic(String mode, int partitions) {
+        return "ingest-" + mode + "-p" + partitions;
+    }
+}
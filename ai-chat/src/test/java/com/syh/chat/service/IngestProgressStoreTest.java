@@ -0,0 +1,56 @@
+package com.syh.chat.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings({"unchecked", "rawtypes"})
+public class IngestProgressStoreTest {
+
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    private final HashOperations<String, Object, Object> hashOps = mock(HashOperations.class);
+    private final IngestProgressStore store = new IngestProgressStore(redisTemplate, "p:", 600);
+
+    @Test
+    void putWritesHashWithTtl() {
+        when(redisTemplate.opsForHash()).thenReturn((HashOperations) hashOps);
+        LocalDateTime at = LocalDateTime.of(2026, 1, 2, 3, 4, 5);
+
+        store.put("t1", 40, 100, 40, at);
+
+        verify(hashOps).putAll("p:t1", Map.of("processed", "40", "total", "100", "progress", "40", "updatedAt", at.toString()));
+        verify(redisTemplate).expire("p:t1", Duration.ofSeconds(600));
+    }
+
+    @Test
+    void getParsesLiveProgress() {
+        when(redisTemplate.opsForHash()).thenReturn((HashOperations) hashOps);
+        LocalDateTime at = LocalDateTime.of(2026, 1, 2, 3, 4, 5);
+        when(hashOps.multiGet(eq("p:t1"), anyCollection())).thenReturn(List.of("40", "100", "40", at.toString()));
+
+        Optional<IngestProgressStore.Progress> progress = store.get("t1");
+
+        assertEquals(Optional.of(new IngestProgressStore.Progress(40, 100, 40, at)), progress);
+    }
+
+    @Test
+    void missingOrFailingRedisFallsBackToEmpty() {
+        when(redisTemplate.opsForHash()).thenReturn((HashOperations) hashOps);
+        when(hashOps.multiGet(eq("p:none"), anyCollection())).thenReturn(Arrays.asList(null, null, null, null));
+        when(hashOps.multiGet(eq("p:down"), anyCollection())).thenThrow(new IllegalStateException("redis down"));
+
+        assertTrue(store.get("none").isEmpty());
+        assertTrue(store.get("down").isEmpty());
+    }
+}
@@ -83,7 +83,7 @@ public class IngestRedisStreamReliabilityIT {
 
     @Test
     void failureLeadsToRetryThenDeadAndDlq() throws Exception {
-        Mockito.when(knowledgeIngestService.ingestExistingDocumentFromFile(anyLong(), anyLong(), anyString(), any()))
+        Mockito.when(knowledgeIngestService.ingestExistingDocumentFromFile(anyLong(), anyLong(), anyString(), anyInt(), any()))
                 .thenThrow(new RuntimeException("boom"));
 
         Long userId = 1L;
@@ -0,0 +1,121 @@
+package com.syh.chat.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.syh.chat.dto.IngestTaskResponse;
+import com.syh.chat.dto.IngestTaskStatusEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class IngestTaskEventHubTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private RedisMessageListenerContainer container;
+    private IngestTaskEventHub hub;
+
+    @BeforeEach
+    void setUp() {
+        container = mock(RedisMessageListenerContainer.class);
+        hub = new IngestTaskEventHub(container, objectMapper, meterRegistry, "ingest:task-events", 60000, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        hub.shutdown();
+    }
+
+    @Test
+    void subscribesToChannelOnce() {
+        verify(container).addMessageListener(eq(hub), any(ChannelTopic.class));
+    }
+
+    @Test
+    void pushesEventsToOwnerAndClosesOnTerminalStatus() throws Exception {
+        hub.subscribe(1L, "t1", () -> status("t1", "RUNNING"));
+        assertEquals(1.0, connections());
+        assertEquals(1.0, sent());
+
+        hub.onMessage(message(2L, status("t1", "SUCCEEDED")), null);
+        assertEquals(1.0, sent());
+        assertEquals(1.0, connections());
+
+        hub.onMessage(message(1L, status("t1", "RUNNING")), null);
+        assertEquals(2.0, sent());
+
+        hub.onMessage(message(1L, status("t1", "SUCCEEDED")), null);
+        assertEquals(3.0, sent());
+        assertEquals(0.0, connections());
+
+        hub.onMessage(message(1L, status("t1", "SUCCEEDED")), null);
+        assertEquals(3.0, sent());
+    }
+
+    @Test
+    void terminalSnapshotClosesImmediately() {
+        hub.subscribe(1L, "t2", () -> status("t2", "DEAD"));
+        assertEquals(1.0, sent());
+        assertEquals(0.0, connections());
+    }
+
+    @Test
+    void ignoresUnparseableMessages() {
+        hub.subscribe(1L, "t3", () -> status("t3", "QUEUED"));
+        hub.onMessage(new DefaultMessage("ingest:task-events".getBytes(StandardCharsets.UTF_8), "not-json".getBytes(StandardCharsets.UTF_8)), null);
+        assertEquals(1.0, sent());
+        assertEquals(1.0, connections());
+    }
+
+    @Test
+    void completionWaiterResolvesOnTerminalEventOnly() throws Exception {
+        CompletableFuture<IngestTaskResponse> done = hub.awaitCompletion(1L, "t4", () -> status("t4", "QUEUED"));
+
+        hub.onMessage(message(1L, status("t4", "RUNNING")), null);
+        hub.onMessage(message(2L, status("t4", "SUCCEEDED")), null);
+        assertFalse(done.isDone());
+
+        hub.onMessage(message(1L, status("t4", "SUCCEEDED")), null);
+        assertEquals("SUCCEEDED", done.get(1, TimeUnit.SECONDS).getStatus());
+    }
+
+    @Test
+    void completionWaiterResolvesImmediatelyWhenAlreadyFinished() {
+        CompletableFuture<IngestTaskResponse> done = hub.awaitCompletion(1L, "t5", () -> status("t5", "DEAD"));
+        assertTrue(done.isDone());
+    }
+
+    private DefaultMessage message(Long userId, IngestTaskResponse task) throws Exception {
+        byte[] body = objectMapper.writeValueAsBytes(new IngestTaskStatusEvent(userId, task));
+        return new DefaultMessage("ingest:task-events".getBytes(StandardCharsets.UTF_8), body);
+    }
+
+    private double connections() {
+        return meterRegistry.get("ingest_task_sse_connections").gauge().value();
+    }
+
+    private double sent() {
+        return meterRegistry.find("ingest_task_sse_events_total").tag("result", "sent").counters().stream()
+                .mapToDouble(c -> c.count()).sum();
+    }
+
+    private static IngestTaskResponse status(String taskId, String status) {
+        return new IngestTaskResponse(taskId, 7L, status, 50, 5, 10, null, 0, null, null, LocalDateTime.now());
+    }
+}
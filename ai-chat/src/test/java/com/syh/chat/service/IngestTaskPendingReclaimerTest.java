@@ -0,0 +1,101 @@
+package com.syh.chat.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings({"unchecked", "rawtypes"})
+public class IngestTaskPendingReclaimerTest {
+
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    private final StreamOperations<String, Object, Object> streamOps = mock(StreamOperations.class);
+    private final IngestTaskProcessor processor = mock(IngestTaskProcessor.class);
+    private final IngestWorkerPool workerPool = new IngestWorkerPool(new SimpleMeterRegistry(), 4, 64, 0, 0, 0, 0);
+
+    @AfterEach
+    void tearDown() {
+        workerPool.shutdown();
+    }
+
+    @Test
+    void parseReadsRecordsCursorAndDeletedIds() {
+        List<Object> reply = List.of(
+                "0-0",
+                "1700000000005-0",
+                List.of(
+                        List.of("1700000000001-0", List.of("taskId", "t1", "userId", "1", "documentId", "2", "filePath", "/f")),
+                        List.of("1700000000002-0", List.of("taskId", "t2"))
+                ),
+                List.of("1700000000003-0")
+        );
+
+        IngestTaskPendingReclaimer.Page page = IngestTaskPendingReclaimer.parse("s", reply);
+
+        assertEquals("1700000000005-0", page.nextCursor());
+        assertEquals(2, page.records().size());
+        assertEquals("t1", page.records().get(0).getValue().get("taskId"));
+        assertEquals("1700000000001-0", page.records().get(0).getId().getValue());
+        assertEquals(1, page.deleted());
+    }
+
+    @Test
+    void drainsFullPagesAndProcessesInParallel() throws Exception {
+        when(redisTemplate.opsForStream()).thenReturn((StreamOperations) streamOps);
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenReturn(reply("0-0", "5-0", 0, 2), reply("5-0", "9-0", 2, 2), reply("9-0", "0-0", 4, 1), reply("0-0", "0-0", 0, 0));
+        CountDownLatch running = new CountDownLatch(2);
+        CountDownLatch done = new CountDownLatch(5);
+        when(processor.process(anyString(), anyLong(), anyLong(), anyString())).thenAnswer(inv -> {
+            running.countDown();
+            running.await(5, TimeUnit.SECONDS);
+            done.countDown();
+            return IngestTaskProcessingResult.SUCCEEDED;
+        });
+
+        reclaimer(2, true).reclaimOnce();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        verify(redisTemplate, times(3 + 2)).execute(any(RedisScript.class), anyList(), any(Object[].class));
+        verify(streamOps, timeout(5000).times(5)).acknowledge(anyString(), anyString(), any(RecordId[].class));
+    }
+
+    @Test
+    void withoutDrainOnlyOnePageIsClaimedPerLanePerRun() {
+        when(redisTemplate.opsForStream()).thenReturn((StreamOperations) streamOps);
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenReturn(reply("0-0", "5-0", 0, 2), reply("0-0", "0-0", 0, 0));
+        when(processor.process(anyString(), anyLong(), anyLong(), anyString())).thenReturn(IngestTaskProcessingResult.SUCCEEDED);
+
+        reclaimer(2, false).reclaimOnce();
+
+        verify(redisTemplate, times(IngestLane.values().length)).execute(any(RedisScript.class), anyList(), any(Object[].class));
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("s", "s:reclaim-cursor:g")), any(Object[].class));
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("s:large", "s:large:reclaim-cursor:g")), any(Object[].class));
+    }
+
+    private IngestTaskPendingReclaimer reclaimer(int batchSize, boolean drain) {
+        return new IngestTaskPendingReclaimer(redisTemplate, processor, workerPool, new SimpleMeterRegistry(),
+                "s", "g", 0, batchSize, drain, 10, "");
+    }
+
+    private static List<Object> reply(String cursor, String next, int firstTask, int count) {
+        List<Object> entries = new ArrayList<>();
+        for (int i = firstTask; i < firstTask + count; i++) {
+            entries.add(List.of(i + "-1", List.of("taskId", "t" + i, "userId", String.valueOf(i), "documentId", "1", "filePath", "/f")));
+        }
+        return List.of(cursor, next, entries, List.of());
+    }
+}
@@ -0,0 +1,190 @@
+package com.syh.chat.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IngestWorkerPoolTest {
+
+    @Test
+    void usersAreServedRoundRobin() throws Exception {
+        IngestWorkerPool pool = new IngestWorkerPool(new SimpleMeterRegistry(), 1, 16, 0, 0, 0, 0);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch gate = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(7);
+        try {
+            pool.submit(1L, () -> {
+                firstStarted.countDown();
+                await(gate);
+                order.add("a0");
+                done.countDown();
+            });
+            assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+            for (int i = 1; i <= 4; i++) {
+                String name = "a" + i;
+                pool.submit(1L, () -> {
+                    order.add(name);
+                    done.countDown();
+                });
+            }
+            for (int i = 0; i < 2; i++) {
+                String name = "b" + i;
+                pool.submit(2L, () -> {
+                    order.add(name);
+                    done.countDown();
+                });
+            }
+            gate.countDown();
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(List.of("a0", "a1", "b0", "a2", "b1", "a3", "a4"), order);
+    }
+
+    @Test
+    void runsUpToConcurrencyTasksInParallel() throws Exception {
+        IngestWorkerPool pool = new IngestWorkerPool(new SimpleMeterRegistry(), 3, 16, 0, 0, 0, 0);
+        CountDownLatch started = new CountDownLatch(3);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger peak = new AtomicInteger();
+        AtomicInteger running = new AtomicInteger();
+        try {
+            for (int i = 0; i < 3; i++) {
+                pool.submit((long) i, () -> {
+                    peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    started.countDown();
+                    await(release);
+                    running.decrementAndGet();
+                });
+            }
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            assertEquals(3, peak.get());
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void perUserCapLeavesRoomForOtherUsers() throws Exception {
+        IngestWorkerPool pool = new IngestWorkerPool(new SimpleMeterRegistry(), 2, 16, 1, 0, 0, 0);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch otherUserRan = new CountDownLatch(1);
+        AtomicInteger firstUserRunning = new AtomicInteger();
+        try {
+            for (int i = 0; i < 3; i++) {
+                pool.submit(1L, () -> {
+                    firstUserRunning.incrementAndGet();
+                    await(release);
+                    firstUserRunning.decrementAndGet();
+                });
+            }
+            pool.submit(2L, otherUserRan::countDown);
+            assertTrue(otherUserRan.await(5, TimeUnit.SECONDS));
+            assertEquals(1, firstUserRunning.get());
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void largeLaneShareLeavesWorkersForSmallDocuments() throws Exception {
+        IngestWorkerPool pool = new IngestWorkerPool(new SimpleMeterRegistry(), 2, 16, 0, 0, 0, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch smallRan = new CountDownLatch(1);
+        AtomicInteger largeRunning = new AtomicInteger();
+        try {
+            for (int i = 0; i < 3; i++) {
+                pool.submit(IngestLane.LARGE, (long) i, () -> {
+                    largeRunning.incrementAndGet();
+                    await(release);
+                    largeRunning.decrementAndGet();
+                });
+            }
+            pool.submit(IngestLane.SMALL, 9L, smallRan::countDown);
+            assertTrue(smallRan.await(5, TimeUnit.SECONDS));
+            assertEquals(1, largeRunning.get());
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void submitBlocksWhenQueueIsFull() throws Exception {
+        IngestWorkerPool pool = new IngestWorkerPool(new SimpleMeterRegistry(), 1, 1, 0, 0, 0, 0);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch thirdSubmitted = new CountDownLatch(1);
+        try {
+            pool.submit(1L, () -> await(release));
+            pool.submit(1L, () -> {
+            });
+            Thread producer = new Thread(() -> {
+                try {
+                    pool.submit(1L, () -> {
+                    });
+                    thirdSubmitted.countDown();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            producer.start();
+            assertFalse(thirdSubmitted.await(300, TimeUnit.MILLISECONDS));
+            release.countDown();
+            assertTrue(thirdSubmitted.await(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void trySubmitReturnsFalseInsteadOfBlockingWhenLaneIsFull() throws Exception {
+        IngestWorkerPool pool = new IngestWorkerPool(new SimpleMeterRegistry(), 1, 1, 0, 0, 0, 0);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch retried = new CountDownLatch(1);
+        try {
+            pool.submit(1L, () -> {
+                started.countDown();
+                await(release);
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            assertTrue(pool.trySubmit(IngestLane.SMALL, 1L, () -> {
+            }));
+            assertFalse(pool.trySubmit(IngestLane.SMALL, 2L, retried::countDown));
+            assertTrue(pool.trySubmit(IngestLane.LARGE, 2L, () -> {
+            }));
+            release.countDown();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!pool.trySubmit(IngestLane.SMALL, 2L, retried::countDown) && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(retried.await(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -4,11 +4,11 @@ import com.syh.chat.entity.OutboxEvent;
 import com.syh.chat.repository.OutboxEventRepository;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
-import org.mockito.ArgumentCaptor;
 import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
@@ -19,102 +19,108 @@ import static org.mockito.Mockito.*;
 @SuppressWarnings("null")
 public class KafkaOutboxPublisherTest {
 
+    private final OutboxEventRepository repo = mock(OutboxEventRepository.class);
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, String> kafkaTemplate = (KafkaTemplate<String, String>) mock(KafkaTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @Test
     void publishFailureMovesToRetryingWithNextRetryAt() {
-        OutboxEventRepository repo = mock(OutboxEventRepository.class);
-        @SuppressWarnings("unchecked")
-        KafkaTemplate<String, String> kafkaTemplate = (KafkaTemplate<String, String>) mock(KafkaTemplate.class);
-        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
-
-        OutboxEvent evt = new OutboxEvent();
-        evt.setId("1");
-        evt.setTopic("t");
-        evt.setMessageKey("k");
-        evt.setPayload("{}");
-        evt.setStatus("NEW");
-        evt.setAttemptCount(0);
-        evt.setCreatedAt(LocalDateTime.now().minusSeconds(5));
-        evt.setNextRetryAt(null);
-
-        when(repo.findDue(any(), any(Pageable.class))).thenReturn(List.of(evt));
+        OutboxEvent evt = event("1", "NEW", 0);
+        claimed(evt);
         when(kafkaTemplate.send(anyString(), anyString(), anyString()))
                 .thenReturn(CompletableFuture.failedFuture(new RuntimeException("kafka down")));
 
-        KafkaOutboxPublisher publisher = new KafkaOutboxPublisher(repo, kafkaTemplate, meterRegistry, 3, 1000, 600000, 20);
-        publisher.publishPending();
+        publisher().publishPending();
 
-        ArgumentCaptor<OutboxEvent> captor = ArgumentCaptor.forClass(OutboxEvent.class);
-        verify(repo, atLeastOnce()).save(captor.capture());
-        OutboxEvent saved = captor.getValue();
-        assertEquals("RETRYING", saved.getStatus());
-        assertEquals(1, saved.getAttemptCount());
-        assertNotNull(saved.getNextRetryAt());
-        assertTrue(saved.getLastError() != null && saved.getLastError().contains("kafka down"));
+        verify(repo).markFailed(eq(List.of("1")), anyString(), eq("RETRYING"), eq(1), notNull(), contains("kafka down"));
+        verify(repo, never()).markSent(any(), any(), any());
     }
 
     @Test
     void publishFailureExceedingMaxAttemptsMovesToDead() {
-        OutboxEventRepository repo = mock(OutboxEventRepository.class);
-        @SuppressWarnings("unchecked")
-        KafkaTemplate<String, String> kafkaTemplate = (KafkaTemplate<String, String>) mock(KafkaTemplate.class);
-        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
-
-        OutboxEvent evt = new OutboxEvent();
-        evt.setId("1");
-        evt.setTopic("t");
-        evt.setMessageKey("k");
-        evt.setPayload("{}");
-        evt.setStatus("RETRYING");
-        evt.setAttemptCount(2);
-        evt.setCreatedAt(LocalDateTime.now().minusSeconds(5));
-        evt.setNextRetryAt(LocalDateTime.now().minusSeconds(1));
-
-        when(repo.findDue(any(), any(Pageable.class))).thenReturn(List.of(evt));
+        OutboxEvent evt = event("1", "RETRYING", 2);
+        claimed(evt);
         when(kafkaTemplate.send(anyString(), anyString(), anyString()))
                 .thenReturn(CompletableFuture.failedFuture(new RuntimeException("kafka down")));
 
-        KafkaOutboxPublisher publisher = new KafkaOutboxPublisher(repo, kafkaTemplate, meterRegistry, 3, 1000, 600000, 20);
-        publisher.publishPending();
+        publisher().publishPending();
 
-        ArgumentCaptor<OutboxEvent> captor = ArgumentCaptor.forClass(OutboxEvent.class);
-        verify(repo, atLeastOnce()).save(captor.capture());
-        OutboxEvent saved = captor.getValue();
-        assertEquals("DEAD", saved.getStatus());
-        assertEquals(3, saved.getAttemptCount());
-        assertNull(saved.getNextRetryAt());
+        verify(repo).markFailed(eq(List.of("1")), anyString(), eq("DEAD"), eq(3), isNull(), contains("kafka down"));
     }
 
     @Test
-    void publishSuccessMarksSentAndRecordsSentAt() {
-        OutboxEventRepository repo = mock(OutboxEventRepository.class);
-        @SuppressWarnings("unchecked")
-        KafkaTemplate<String, String> kafkaTemplate = (KafkaTemplate<String, String>) mock(KafkaTemplate.class);
-        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
-
-        OutboxEvent evt = new OutboxEvent();
-        evt.setId("1");
-        evt.setTopic("t");
-        evt.setMessageKey("k");
-        evt.setPayload("{}");
-        evt.setStatus("NEW");
-        evt.setAttemptCount(0);
-        evt.setCreatedAt(LocalDateTime.now().minusSeconds(5));
-        evt.setNextRetryAt(null);
+    void publishSuccessMarksSentAndRecordsDelay() {
+        OutboxEvent evt = event("1", "NEW", 0);
         evt.setLastError("x");
+        claimed(evt);
+        when(kafkaTemplate.send(anyString(), anyString(), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        publisher().publishPending();
 
-        when(repo.findDue(any(), any(Pageable.class))).thenReturn(List.of(evt));
+        verify(repo).markSent(eq(List.of("1")), anyString(), notNull());
+        verify(repo, never()).markFailed(any(), any(), any(), anyInt(), any(), any());
+        assertEquals(1, meterRegistry.get("outbox_publish_delay_seconds").timer().count());
+    }
+
+    @Test
+    void wholeBatchIsSentBeforeWaitingAndResultsAreWrittenInBulk() {
+        OutboxEvent a = event("a", "NEW", 0);
+        OutboxEvent b = event("b", "NEW", 0);
+        OutboxEvent c = event("c", "NEW", 0);
+        OutboxEvent d = event("d", "NEW", 0);
+        claimed(a, b, c, d);
+        CompletableFuture<Object> pendingA = new CompletableFuture<>();
+        doReturn(pendingA).when(kafkaTemplate).send("t", "a", "{}");
+        doAnswer(inv -> {
+            pendingA.complete(null);
+            return CompletableFuture.completedFuture(null);
+        }).when(kafkaTemplate).send("t", "b", "{}");
+        doReturn(CompletableFuture.failedFuture(new RuntimeException("broker busy"))).when(kafkaTemplate).send("t", "c", "{}");
+        doReturn(CompletableFuture.failedFuture(new RuntimeException("broker busy"))).when(kafkaTemplate).send("t", "d", "{}");
+
+        publisher().publishPending();
+
+        verify(repo, times(1)).markSent(eq(List.of("a", "b")), anyString(), notNull());
+        verify(repo, times(1)).markFailed(eq(List.of("c", "d")), anyString(), eq("RETRYING"), eq(1), notNull(), eq("broker busy"));
+    }
+
+    @Test
+    void claimLeasesLockedRowsToThisInstance() {
+        OutboxEvent evt = event("1", "NEW", 0);
+        claimed(evt);
         when(kafkaTemplate.send(anyString(), anyString(), anyString()))
                 .thenReturn(CompletableFuture.completedFuture(null));
 
-        KafkaOutboxPublisher publisher = new KafkaOutboxPublisher(repo, kafkaTemplate, meterRegistry, 3, 1000, 600000, 20);
-        publisher.publishPending();
+        publisher().publishPending();
+
+        verify(repo).lockDueIds(any(LocalDateTime.class), eq(20));
+        verify(repo).lease(eq(List.of("1")), startsWith("outbox-"), any(LocalDateTime.class));
+        verify(repo).markSent(eq(List.of("1")), startsWith("outbox-"), any(LocalDateTime.class));
+    }
+
+    private void claimed(OutboxEvent... events) {
+        List<String> ids = Arrays.stream(events).map(OutboxEvent::getId).toList();
+        when(repo.lockDueIds(any(), anyInt())).thenReturn(ids, List.of());
+        when(repo.findAllById(ids)).thenReturn(List.of(events));
+    }
+
+    private KafkaOutboxPublisher publisher() {
+        return new KafkaOutboxPublisher(repo, kafkaTemplate, meterRegistry, mock(PlatformTransactionManager.class),
+                3, 1000, 600000, 20, 60000, 5000);
+    }
 
-        ArgumentCaptor<OutboxEvent> captor = ArgumentCaptor.forClass(OutboxEvent.class);
-        verify(repo, atLeastOnce()).save(captor.capture());
-        OutboxEvent saved = captor.getValue();
-        assertEquals("SENT", saved.getStatus());
-        assertNotNull(saved.getSentAt());
-        assertNull(saved.getNextRetryAt());
-        assertNull(saved.getLastError());
+    private static OutboxEvent event(String id, String status, int attempts) {
+        OutboxEvent evt = new OutboxEvent();
+        evt.setId(id);
+        evt.setTopic("t");
+        evt.setMessageKey(id);
+        evt.setPayload("{}");
+        evt.setStatus(status);
+        evt.setAttemptCount(attempts);
+        evt.setCreatedAt(LocalDateTime.now().minusSeconds(5));
+        evt.setNextRetryAt("NEW".equals(status) ? null : LocalDateTime.now().minusSeconds(1));
+        return evt;
     }
 }
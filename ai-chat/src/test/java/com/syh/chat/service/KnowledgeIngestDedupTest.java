@@ -0,0 +1,152 @@
+package com.syh.chat.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.syh.chat.entity.KnowledgeDocument;
+import com.syh.chat.entity.KnowledgeSegment;
+import com.syh.chat.rag.FixedWindowChunker;
+import com.syh.chat.repository.KnowledgeDocumentRepository;
+import com.syh.chat.repository.KnowledgeSegmentRepository;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class KnowledgeIngestDedupTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private KnowledgeDocumentRepository documentRepository;
+
+    @Mock
+    private KnowledgeSegmentRepository segmentRepository;
+
+    @Mock
+    private EmbeddingModel embeddingModel;
+
+    @Mock
+    private ChromaVectorStoreService chromaVectorStoreService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private VectorGarbageCollector vectorGarbageCollector;
+
+    private KnowledgeIngestService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new KnowledgeIngestService(
+                documentRepository,
+                segmentRepository,
+                embeddingModel,
+                chromaVectorStoreService,
+                null,
+                null,
+                "Auto",
+                new SimpleMeterRegistry(),
+                null,
+                new ObjectMapper(),
+                new PdfTextExtractor(20, 0, "", 1),
+                16,
+                12000,
+                2,
+                1,
+                1,
+                1,
+                "BAAI/bge-m3",
+                transactionManager,
+                vectorGarbageCollector,
+                new FixedWindowChunker(900, 120)
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdownPipeline();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void matchingFingerprintReusesSegmentsAndVectors() throws Exception {
+        Path file = Files.writeString(tempDir.resolve("a.pdf"), "not parsed on a dedup hit");
+        KnowledgeDocument doc = document(20L, 2L, "abc");
+        KnowledgeDocument source = document(10L, 1L, "abc");
+        source.setStatus("READY");
+        when(documentRepository.findByIdAndUserId(20L, 2L)).thenReturn(Optional.of(doc));
+        when(documentRepository.findFirstByContentHashAndEmbeddingModelAndStatusAndIdNotOrderByIdAsc("abc", "BAAI/bge-m3", "READY", 20L))
+                .thenReturn(Optional.of(source));
+        when(segmentRepository.findByUserIdAndDocumentIdOrderBySegmentIndexAsc(1L, 10L))
+                .thenReturn(List.of(segment(1L, 10L, 0, "doc-10-seg-0"), segment(1L, 10L, 1, "doc-10-seg-1")));
+        when(documentRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        KnowledgeDocument result = service.ingestExistingDocumentFromFile(2L, 20L, file.toString(), null);
+
+        assertEquals("READY", result.getStatus());
+        assertEquals(2, result.getSegmentCount());
+        assertEquals(10L, result.getVectorDocumentId());
+        ArgumentCaptor<List<KnowledgeSegment>> copies = ArgumentCaptor.forClass(List.class);
+        verify(segmentRepository).saveAll(copies.capture());
+        assertEquals(List.of("doc-10-seg-0", "doc-10-seg-1"), copies.getValue().stream().map(KnowledgeSegment::getChromaId).toList());
+        assertEquals(20L, copies.getValue().get(0).getDocumentId());
+        verify(embeddingModel, never()).embedAll(anyList());
+        verify(chromaVectorStoreService, never()).upsertBatch(any(), anyList());
+    }
+
+    @Test
+    void deleteKeepsVectorsWhileReferencedAndDropsThemWithLastReference() {
+        KnowledgeDocument owner = document(10L, 1L, "abc");
+        KnowledgeDocument copy = document(20L, 2L, "abc");
+        copy.setVectorDocumentId(10L);
+        when(documentRepository.findByIdAndUserId(10L, 1L)).thenReturn(Optional.of(owner));
+        when(documentRepository.findByIdAndUserId(20L, 2L)).thenReturn(Optional.of(copy));
+        when(documentRepository.countVectorReferences(10L)).thenReturn(1L, 0L);
+
+        service.deleteDocument(1L, 10L);
+        verify(chromaVectorStoreService, never()).deleteCollection(any());
+
+        service.deleteDocument(2L, 20L);
+        verify(chromaVectorStoreService).deleteCollection(10L);
+    }
+
+    private KnowledgeDocument document(Long id, Long userId, String hash) {
+        KnowledgeDocument doc = new KnowledgeDocument();
+        doc.setId(id);
+        doc.setUserId(userId);
+        doc.setContentHash(hash);
+        doc.setStatus("QUEUED");
+        return doc;
+    }
+
+    private KnowledgeSegment segment(Long userId, Long documentId, int index, String chromaId) {
+        KnowledgeSegment ks = new KnowledgeSegment();
+        ks.setUserId(userId);
+        ks.setDocumentId(documentId);
+        ks.setSegmentIndex(index);
+        ks.setContent("segment " + index);
+        ks.setChromaId(chromaId);
+        return ks;
+    }
+}
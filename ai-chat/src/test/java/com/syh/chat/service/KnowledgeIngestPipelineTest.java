@@ -0,0 +1,222 @@
+package com.syh.chat.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.syh.chat.entity.KnowledgeDocument;
+import com.syh.chat.entity.KnowledgeSegment;
+import com.syh.chat.rag.FixedWindowChunker;
+import com.syh.chat.repository.KnowledgeDocumentRepository;
+import com.syh.chat.repository.KnowledgeSegmentRepository;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class KnowledgeIngestPipelineTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private KnowledgeDocumentRepository documentRepository;
+
+    @Mock
+    private KnowledgeSegmentRepository segmentRepository;
+
+    @Mock
+    private EmbeddingModel embeddingModel;
+
+    @Mock
+    private ChromaVectorStoreService chromaVectorStoreService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private VectorGarbageCollector vectorGarbageCollector;
+
+    @Test
+    void concurrentStagesPreserveSegmentOrder() throws Exception {
+        Path pdf = writePdf(tempDir.resolve("doc.pdf"), 30);
+        KnowledgeDocument doc = new KnowledgeDocument();
+        doc.setId(7L);
+        doc.setUserId(1L);
+        when(documentRepository.findByIdAndUserId(7L, 1L)).thenReturn(Optional.of(doc));
+        when(documentRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+        when(embeddingModel.embedAll(anyList())).thenAnswer(inv -> {
+            List<TextSegment> segments = inv.getArgument(0);
+            Thread.sleep(ThreadLocalRandom.current().nextInt(1, 20));
+            List<Embedding> out = new ArrayList<>();
+            for (TextSegment segment : segments) {
+                out.add(Embedding.from(new float[]{segment.text().length()}));
+            }
+            return Response.from(out);
+        });
+        when(chromaVectorStoreService.upsertBatch(eq(7L), anyList())).thenAnswer(inv -> {
+            List<ChromaVectorStoreService.VectorRecord> records = inv.getArgument(1);
+            Thread.sleep(ThreadLocalRandom.current().nextInt(1, 20));
+            return new ChromaVectorStoreService.UpsertResult(
+                    records.stream().map(ChromaVectorStoreService.VectorRecord::id).toList(), List.of(), null);
+        });
+        List<KnowledgeSegment> saved = Collections.synchronizedList(new ArrayList<>());
+        when(segmentRepository.saveAll(anyList())).thenAnswer(inv -> {
+            List<KnowledgeSegment> batch = inv.getArgument(0);
+            saved.addAll(batch);
+            return batch;
+        });
+
+        List<String> sequential = ingest(pdf, saved, 1, 1);
+        List<String> concurrent = ingest(pdf, saved, 4, 4);
+
+        assertTrue(sequential.size() > 20);
+        assertEquals(sequential, concurrent);
+    }
+
+    @Test
+    void resumeSkipsCommittedSegmentsAndReusesChromaIds() throws Exception {
+        Path pdf = writePdf(tempDir.resolve("resume.pdf"), 12);
+        KnowledgeDocument doc = new KnowledgeDocument();
+        doc.setId(7L);
+        doc.setUserId(1L);
+        when(documentRepository.findByIdAndUserId(7L, 1L)).thenReturn(Optional.of(doc));
+        when(documentRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+        when(embeddingModel.embedAll(anyList())).thenAnswer(inv -> {
+            List<TextSegment> segments = inv.getArgument(0);
+            return Response.from(segments.stream().map(s -> Embedding.from(new float[]{s.text().length()})).toList());
+        });
+        when(chromaVectorStoreService.upsertBatch(eq(7L), anyList())).thenAnswer(inv -> {
+            List<ChromaVectorStoreService.VectorRecord> records = inv.getArgument(1);
+            return new ChromaVectorStoreService.UpsertResult(
+                    records.stream().map(ChromaVectorStoreService.VectorRecord::id).toList(), List.of(), null);
+        });
+        List<KnowledgeSegment> saved = Collections.synchronizedList(new ArrayList<>());
+        when(segmentRepository.saveAll(anyList())).thenAnswer(inv -> {
+            List<KnowledgeSegment> batch = inv.getArgument(0);
+            saved.addAll(batch);
+            return batch;
+        });
+
+        ingest(pdf, saved, 1, 1);
+        List<KnowledgeSegment> full = new ArrayList<>(saved);
+        int checkpoint = full.size() / 2;
+        when(segmentRepository.countByUserIdAndDocumentIdAndSegmentIndexLessThan(1L, 7L, checkpoint)).thenReturn((long) checkpoint);
+
+        saved.clear();
+        List<Integer> checkpoints = new ArrayList<>();
+        KnowledgeIngestService service = newService(2, 2);
+        try {
+            KnowledgeDocument result = service.ingestExistingDocumentFromFile(1L, 7L, pdf.toString(), checkpoint,
+                    (processed, total) -> checkpoints.add(processed));
+            assertEquals(full.size(), result.getSegmentCount());
+        } finally {
+            service.shutdownPipeline();
+        }
+
+        verify(segmentRepository).deleteFromSegmentIndex(1L, 7L, checkpoint);
+        verify(vectorGarbageCollector, times(2)).pruneDocument(eq(7L), argThat(keep -> keep.size() == full.size()
+                && keep.contains("doc-7-seg-" + (full.size() - 1)) && !keep.contains("doc-7-seg-" + full.size())));
+        assertEquals(full.size() - checkpoint, saved.size());
+        for (int i = 0; i < saved.size(); i++) {
+            KnowledgeSegment expected = full.get(checkpoint + i);
+            assertEquals(expected.getSegmentIndex(), saved.get(i).getSegmentIndex());
+            assertEquals(expected.getContent(), saved.get(i).getContent());
+            assertEquals(expected.getChromaId(), saved.get(i).getChromaId());
+        }
+        assertTrue(checkpoints.get(0) > checkpoint);
+        assertEquals(full.size(), checkpoints.get(checkpoints.size() - 1));
+    }
+
+    private KnowledgeIngestService newService(int embedConcurrency, int vectorConcurrency) {
+        return new KnowledgeIngestService(
+                documentRepository,
+                segmentRepository,
+                embeddingModel,
+                chromaVectorStoreService,
+                null,
+                null,
+                "Auto",
+                new SimpleMeterRegistry(),
+                null,
+                new ObjectMapper(),
+                new PdfTextExtractor(3, 0, "", 1),
+                2,
+                12000,
+                2,
+                1,
+                embedConcurrency,
+                vectorConcurrency,
+                "BAAI/bge-m3",
+                transactionManager,
+                vectorGarbageCollector,
+                new FixedWindowChunker(900, 120)
+        );
+    }
+
+    private List<String> ingest(Path pdf, List<KnowledgeSegment> saved, int embedConcurrency, int vectorConcurrency) {
+        saved.clear();
+        KnowledgeIngestService service = newService(embedConcurrency, vectorConcurrency);
+        try {
+            KnowledgeDocument result = service.ingestExistingDocumentFromFile(1L, 7L, pdf.toString(), null);
+            assertEquals("READY", result.getStatus());
+            assertEquals(saved.size(), result.getSegmentCount());
+        } finally {
+            service.shutdownPipeline();
+        }
+        List<String> contents = new ArrayList<>();
+        for (int i = 0; i < saved.size(); i++) {
+            assertEquals(i, saved.get(i).getSegmentIndex());
+            contents.add(saved.get(i).getContent());
+        }
+        return contents;
+    }
+
+    static Path writePdf(Path file, int pages) throws Exception {
+        try (PDDocument pdf = new PDDocument()) {
+            for (int p = 0; p < pages; p++) {
+                PDPage page = new PDPage();
+                pdf.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(pdf, page)) {
+                    content.beginText();
+                    content.setFont(PDType1Font.HELVETICA, 9);
+                    content.setLeading(11f);
+                    content.newLineAtOffset(36, 750);
+                    for (int line = 0; line < 60; line++) {
+                        content.showText("page " + p + " line " + line + " retrieval augmented generation keeps context small");
+                        content.newLine();
+                    }
+                    content.endText();
+                }
+            }
+            pdf.save(file.toFile());
+        }
+        return file;
+    }
+}
@@ -72,7 +72,18 @@ public class KnowledgeIngestServiceRedisTest {
                 "Auto",
                 meterRegistry,
                 redisTemplate,
-                objectMapper
+                objectMapper,
+                null, // pdfTextExtractor
+                16,
+                12000,
+                4,
+                2,
+                2,
+                2,
+                "BAAI/bge-m3",
+                null,
+                null,
+                null
         );
 
         // Mock document repository
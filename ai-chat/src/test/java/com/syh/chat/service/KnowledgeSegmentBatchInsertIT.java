@@ -0,0 +1,151 @@
+package com.syh.chat.service;
+
+import com.syh.chat.entity.KnowledgeDocument;
+import com.syh.chat.entity.KnowledgeSegment;
+import com.syh.chat.repository.KnowledgeDocumentRepository;
+import com.syh.chat.repository.KnowledgeSegmentRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@Testcontainers(disabledWithoutDocker = true)
+@SpringBootTest
+@SuppressWarnings("resource")
+public class KnowledgeSegmentBatchInsertIT {
+
+    private static final int SEGMENTS = 1000;
+
+    @Container
+    static MySQLContainer<?> mysql = new MySQLContainer<>("mysql:8.0.36")
+            .withDatabaseName("ollama_chat")
+            .withUsername("root")
+            .withPassword("1234");
+
+    @Container
+    static GenericContainer<?> redis = new GenericContainer<>("redis:7.2-alpine").withExposedPorts(6379);
+
+    @DynamicPropertySource
+    static void registerProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", mysql::getJdbcUrl);
+        registry.add("spring.datasource.username", mysql::getUsername);
+        registry.add("spring.datasource.password", mysql::getPassword);
+        registry.add("spring.data.redis.host", redis::getHost);
+        registry.add("spring.data.redis.port", () -> redis.getMappedPort(6379));
+        registry.add("jwt.secret", () -> "test-secret-key-must-be-at-least-256-bits-long-for-hs256-please-change-this");
+        registry.add("bigmodel.api-key", () -> "dummy");
+        registry.add("siliconflow.api-key", () -> "dummy");
+        registry.add("chroma.base-url", () -> "http://127.0.0.1:8000");
+        registry.add("app.ingest.queue", () -> "disabled");
+    }
+
+    @Autowired
+    KnowledgeDocumentRepository documentRepository;
+
+    @Autowired
+    KnowledgeSegmentRepository segmentRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    void batchedSaveAllVersusRowByRowIdentityInsert() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Long identityDocId = createDocument("identity").getId();
+        Long batchedDocId = createDocument("batched").getId();
+
+        long identityStart = System.nanoTime();
+        tx.executeWithoutResult(status -> {
+            for (int i = 0; i < SEGMENTS; i++) {
+                insertWithGeneratedKey(identityDocId, i);
+            }
+        });
+        long identityNanos = System.nanoTime() - identityStart;
+
+        long batchedStart = System.nanoTime();
+        tx.executeWithoutResult(status -> {
+            List<KnowledgeSegment> segments = new ArrayList<>(SEGMENTS);
+            for (int i = 0; i < SEGMENTS; i++) {
+                segments.add(newSegment(batchedDocId, i));
+            }
+            segmentRepository.saveAll(segments);
+        });
+        long batchedNanos = System.nanoTime() - batchedStart;
+
+        assertEquals(SEGMENTS, segmentRepository.countByUserIdAndDocumentId(1L, identityDocId));
+        assertEquals(SEGMENTS, segmentRepository.countByUserIdAndDocumentId(1L, batchedDocId));
+
+        System.out.printf("knowledge_segment insert x%d: identity row-by-row %.0f rows/s (%d ms), batched saveAll %.0f rows/s (%d ms)%n",
+                SEGMENTS,
+                rowsPerSecond(identityNanos), identityNanos / 1_000_000,
+                rowsPerSecond(batchedNanos), batchedNanos / 1_000_000);
+    }
+
+    private KnowledgeDocument createDocument(String title) {
+        KnowledgeDocument doc = new KnowledgeDocument();
+        doc.setUserId(1L);
+        doc.setTitle(title);
+        doc.setStatus("PROCESSING");
+        doc.setSegmentCount(0);
+        doc.setCreatedAt(LocalDateTime.now());
+        doc.setUpdatedAt(LocalDateTime.now());
+        return documentRepository.save(doc);
+    }
+
+    private void insertWithGeneratedKey(Long documentId, int index) {
+        GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "insert into knowledge_segment (user_id, document_id, segment_index, content, chroma_id, created_at) values (?, ?, ?, ?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS
+            );
+            ps.setLong(1, 1L);
+            ps.setLong(2, documentId);
+            ps.setInt(3, index);
+            ps.setString(4, content(index));
+            ps.setString(5, "doc-" + documentId + "-seg-" + index);
+            ps.setTimestamp(6, Timestamp.valueOf(LocalDateTime.now()));
+            return ps;
+        }, keyHolder);
+    }
+
+    private KnowledgeSegment newSegment(Long documentId, int index) {
+        KnowledgeSegment ks = new KnowledgeSegment();
+        ks.setUserId(1L);
+        ks.setDocumentId(documentId);
+        ks.setSegmentIndex(index);
+        ks.setContent(content(index));
+        ks.setChromaId("doc-" + documentId + "-seg-" + index);
+        ks.setCreatedAt(LocalDateTime.now());
+        return ks;
+    }
+
+    private String content(int index) {
+        return ("segment " + index + " ").repeat(90);
+    }
+
+    private double rowsPerSecond(long nanos) {
+        return nanos <= 0 ? 0 : SEGMENTS * 1_000_000_000.0 / nanos;
+    }
+}
@@ -0,0 +1,142 @@
+package com.syh.chat.service;
+
+import com.syh.chat.util.ContentHash;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class LocalUploadBlobStoreTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void gzipBlobIsWrittenOnceAndOpenedAsTemporaryCopy() throws Exception {
+        byte[] body = ("%PDF-1.4\n" + "hello ".repeat(10_000)).getBytes(StandardCharsets.US_ASCII);
+        String hash = ContentHash.sha256Hex(new ByteArrayInputStream(body));
+        Path expected = tempDir.resolve("blobs").resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash + ".pdf.gz");
+        when(jdbcTemplate.queryForList(startsWith("SELECT location, compression"), eq(hash)))
+                .thenReturn(List.of(Map.of("location", expected.toString(), "compression", "gzip")));
+        LocalUploadBlobStore store = store("gzip");
+
+        UploadBlobStore.Blob first = store.store(upload("a.pdf", body), hash, body.length);
+        UploadBlobStore.Blob second = store.store(upload("b.pdf", body), hash, body.length);
+
+        assertEquals(expected.toString(), first.location());
+        assertEquals(first, second);
+        assertTrue(Files.size(expected) < body.length);
+        verify(jdbcTemplate, times(2)).update(startsWith("INSERT INTO upload_blob"), any(Object[].class));
+        verify(jdbcTemplate, times(1)).update(startsWith("UPDATE upload_blob SET stored_bytes"), any(Object[].class));
+
+        Path copy;
+        try (UploadBlobStore.LocalCopy local = store.open(first.location())) {
+            copy = local.path();
+            assertArrayEquals(body, Files.readAllBytes(copy));
+        }
+        assertFalse(Files.exists(copy));
+        assertTrue(Files.exists(expected));
+    }
+
+    @Test
+    void uncompressedBlobIsMovedIntoPlaceAndOpenedDirectly() throws Exception {
+        byte[] body = "%PDF-1.4\nplain".getBytes(StandardCharsets.US_ASCII);
+        String hash = ContentHash.sha256Hex(new ByteArrayInputStream(body));
+        Path expected = tempDir.resolve("blobs").resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash + ".pdf");
+        when(jdbcTemplate.queryForList(startsWith("SELECT location, compression"), eq(hash)))
+                .thenReturn(List.of(Map.of("location", expected.toString(), "compression", "none")));
+        Path source = upload("c.pdf", body);
+
+        UploadBlobStore.Blob blob = store("none").store(source, hash, body.length);
+
+        assertFalse(Files.exists(source));
+        assertArrayEquals(body, Files.readAllBytes(Path.of(blob.location())));
+        try (UploadBlobStore.LocalCopy local = store("none").open(blob.location())) {
+            assertEquals(expected, local.path());
+        }
+        assertTrue(Files.exists(expected));
+    }
+
+    @Test
+    void deletesOnlyBlobsStillUnreferencedUnderLock() throws Exception {
+        Path blob = Files.writeString(tempDir.resolve("x.pdf"), "%PDF-");
+        when(jdbcTemplate.queryForList(startsWith("SELECT sha256 FROM upload_blob"), eq(String.class), any(), any()))
+                .thenReturn(List.of("x", "y"));
+        when(jdbcTemplate.queryForList(contains("FOR UPDATE"), eq("x")))
+                .thenReturn(List.of(Map.of("location", blob.toString(), "stored_bytes", 5L)));
+        when(jdbcTemplate.queryForList(contains("FOR UPDATE"), eq("y"))).thenReturn(List.of());
+
+        UploadBlobStore.Sweep sweep = store("none").deleteUnreferenced(LocalDateTime.now(), 10);
+
+        assertEquals(1, sweep.blobs());
+        assertEquals(5L, sweep.storedBytes());
+        assertFalse(Files.exists(blob));
+        verify(jdbcTemplate).update("DELETE FROM upload_blob WHERE sha256 = ?", "x");
+        verify(jdbcTemplate, never()).update("DELETE FROM upload_blob WHERE sha256 = ?", "y");
+    }
+
+    @Test
+    void rejectsUnknownCompression() {
+        assertThrows(IllegalArgumentException.class, () -> store("zstd"));
+    }
+
+    @Test
+    void newlyWrittenBlobIsDeletedWhenTheCallerRollsBack() throws Exception {
+        byte[] body = "%PDF-1.4\nrollback".getBytes(StandardCharsets.US_ASCII);
+        String hash = ContentHash.sha256Hex(new ByteArrayInputStream(body));
+        Path expected = tempDir.resolve("blobs").resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash + ".pdf");
+        when(jdbcTemplate.queryForList(startsWith("SELECT location, compression"), eq(hash)))
+                .thenReturn(List.of(Map.of("location", expected.toString(), "compression", "none")));
+        when(jdbcTemplate.queryForList(startsWith("SELECT sha256 FROM upload_blob WHERE sha256 = ? FOR UPDATE"), eq(String.class), eq(hash)))
+                .thenReturn(List.of());
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            store("none").store(upload("d.pdf", body), hash, body.length);
+            assertTrue(Files.exists(expected));
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertFalse(Files.exists(expected));
+    }
+
+    @Test
+    void rolledBackBlobIsKeptWhenAnotherUploadNowReferencesIt() throws Exception {
+        Path blob = Files.writeString(tempDir.resolve("shared.pdf"), "%PDF-");
+        when(jdbcTemplate.queryForList(startsWith("SELECT sha256 FROM upload_blob WHERE sha256 = ? FOR UPDATE"), eq(String.class), eq("h")))
+                .thenReturn(List.of("h"));
+
+        store("none").discardIfUnreferenced("h", blob);
+
+        assertTrue(Files.exists(blob));
+    }
+
+    private Path upload(String name, byte[] body) throws Exception {
+        Path dir = Files.createDirectories(tempDir.resolve("tmp"));
+        return Files.write(dir.resolve(name), body);
+    }
+
+    private LocalUploadBlobStore store(String compression) {
+        return new LocalUploadBlobStore(jdbcTemplate, mock(PlatformTransactionManager.class), tempDir.toString(), compression);
+    }
+}
@@ -0,0 +1,56 @@
+package com.syh.chat.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PdfExtractionBenchmarkIT {
+
+    private static final int WARMUP_ROUNDS = 1;
+    private static final int MEASURED_ROUNDS = 3;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void sequentialVersusParallelExtraction() throws Exception {
+        int cores = Math.max(2, Runtime.getRuntime().availableProcessors());
+        PdfTextExtractor sequential = new PdfTextExtractor(20, 16 * 1024 * 1024, "", 1);
+        PdfTextExtractor parallel = new PdfTextExtractor(20, 16 * 1024 * 1024, "", cores);
+        try {
+            for (int pages : new int[]{50, 200, 800}) {
+                Path pdf = KnowledgeIngestPipelineTest.writePdf(tempDir.resolve("bench-" + pages + ".pdf"), pages);
+
+                List<String> expected = PdfTextExtractorTest.chunks(sequential, pdf);
+                assertEquals(expected, PdfTextExtractorTest.chunks(parallel, pdf));
+
+                long sequentialNanos = measure(sequential, pdf);
+                long parallelNanos = measure(parallel, pdf);
+                System.out.printf("pdf extraction %d pages (%d chunks): sequential %d ms, parallel x%d %d ms, speedup %.2fx%n",
+                        pages, expected.size(),
+                        sequentialNanos / 1_000_000,
+                        cores, parallelNanos / 1_000_000,
+                        parallelNanos <= 0 ? 0 : (double) sequentialNanos / parallelNanos);
+            }
+        } finally {
+            parallel.shutdown();
+        }
+    }
+
+    private long measure(PdfTextExtractor extractor, Path pdf) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            PdfTextExtractorTest.chunks(extractor, pdf);
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            PdfTextExtractorTest.chunks(extractor, pdf);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+}
@@ -0,0 +1,52 @@
+package com.syh.chat.service;
+
+import com.syh.chat.rag.StreamingTextChunker;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PdfTextExtractorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void parallelExtractionProducesIdenticalChunks() throws Exception {
+        Path pdf = KnowledgeIngestPipelineTest.writePdf(tempDir.resolve("doc.pdf"), 23);
+
+        PdfTextExtractor sequential = new PdfTextExtractor(4, 0, "", 1);
+        PdfTextExtractor parallel = new PdfTextExtractor(4, 0, "", 4);
+        try {
+            List<String> expected = chunks(sequential, pdf);
+            List<String> actual = chunks(parallel, pdf);
+
+            assertTrue(expected.size() > 10);
+            assertEquals(expected, actual);
+        } finally {
+            parallel.shutdown();
+        }
+    }
+
+    static List<String> chunks(PdfTextExtractor extractor, Path pdf) {
+        List<String> out = new ArrayList<>();
+        StreamingTextChunker chunker = new StreamingTextChunker(900, 120, out::add);
+        try (PdfTextExtractor.PageWindowReader reader = extractor.open(pdf)) {
+            int expectedStart = 1;
+            PdfTextExtractor.PageWindow window;
+            while ((window = reader.next()) != null) {
+                assertEquals(expectedStart, window.startPage());
+                expectedStart = window.endPage() + 1;
+                chunker.append(window.text());
+            }
+            assertEquals(reader.getTotalPages() + 1, expectedStart);
+        }
+        chunker.finish();
+        return out;
+    }
+}
@@ -0,0 +1,127 @@
+package com.syh.chat.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class RetentionServiceTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void purgesTerminalRowsInBatchesUntilExhausted() {
+        when(jdbcTemplate.queryForList(startsWith("SELECT id FROM outbox_event"), eq(Object.class), any(), any()))
+                .thenReturn(List.of("a", "b"), List.of("c"), List.of());
+        when(jdbcTemplate.queryForList(startsWith("SELECT id FROM ingest_task "), eq(Object.class), any(), any()))
+                .thenReturn(List.of());
+        when(jdbcTemplate.queryForList(startsWith("SELECT id FROM ingest_task_transition"), eq(Object.class), any(), any()))
+                .thenReturn(List.of());
+        when(jdbcTemplate.update(startsWith("DELETE FROM outbox_event"), any(Object[].class))).thenReturn(2, 1);
+
+        service(2, 100, "delete").purge();
+
+        verify(jdbcTemplate).update("DELETE FROM outbox_event WHERE id IN (?,?)", "a", "b");
+        verify(jdbcTemplate).update("DELETE FROM outbox_event WHERE id IN (?)", "c");
+        verify(jdbcTemplate, never()).update(startsWith("INSERT"), any(Object[].class));
+        assertEquals(3.0, meterRegistry.get("retention_purged_rows_total").tag("table", "outbox_event").counter().count());
+        verify(jdbcTemplate).query(contains("information_schema.TABLES"), any(RowCallbackHandler.class), any(Object[].class));
+    }
+
+    @Test
+    void archiveModeCopiesRowsBeforeDeleting() {
+        when(jdbcTemplate.queryForList(anyString(), eq(Object.class), any(), any())).thenReturn(List.of());
+        when(jdbcTemplate.queryForList(startsWith("SELECT id FROM outbox_event"), eq(Object.class), any(), any()))
+                .thenReturn(List.of("a"), List.of());
+        when(jdbcTemplate.queryForList(contains("information_schema.COLUMNS"), eq(String.class), any()))
+                .thenReturn(List.of("id", "status"));
+        when(jdbcTemplate.update(startsWith("DELETE FROM outbox_event"), any(Object[].class))).thenReturn(1);
+
+        service(10, 100, "archive").purge();
+
+        InOrder order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).update("INSERT IGNORE INTO outbox_event_archive (`id`, `status`) SELECT `id`, `status` FROM outbox_event WHERE id IN (?)", "a");
+        order.verify(jdbcTemplate).update("DELETE FROM outbox_event WHERE id IN (?)", "a");
+    }
+
+    @Test
+    void archivingTasksArchivesTheirTransitionsFirst() {
+        when(jdbcTemplate.queryForList(anyString(), eq(Object.class), any(), any())).thenReturn(List.of());
+        when(jdbcTemplate.queryForList(startsWith("SELECT id FROM ingest_task "), eq(Object.class), any(), any()))
+                .thenReturn(List.of("t1"), List.of());
+        when(jdbcTemplate.queryForList(contains("information_schema.COLUMNS"), eq(String.class), any()))
+                .thenReturn(List.of("id"));
+        when(jdbcTemplate.update(startsWith("DELETE FROM ingest_task "), any(Object[].class))).thenReturn(1);
+
+        new RetentionService(jdbcTemplate, mock(PlatformTransactionManager.class), meterRegistry,
+                true, 10, 0, 100, 14, "delete", 30, "archive", 7, "delete", 30).purge();
+
+        InOrder order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).update("INSERT IGNORE INTO ingest_task_transition_archive (`id`) SELECT `id` FROM ingest_task_transition WHERE task_id IN (?)", "t1");
+        order.verify(jdbcTemplate).update("INSERT IGNORE INTO ingest_task_archive (`id`) SELECT `id` FROM ingest_task WHERE id IN (?)", "t1");
+        order.verify(jdbcTemplate).update("DELETE FROM ingest_task WHERE id IN (?)", "t1");
+    }
+
+    @Test
+    void archiveFailsWhenArchiveTableIsMissingColumns() {
+        when(jdbcTemplate.queryForList(contains("information_schema.COLUMNS"), eq(String.class), eq("outbox_event")))
+                .thenReturn(List.of("id", "status", "lease_owner"));
+        when(jdbcTemplate.queryForList(contains("information_schema.COLUMNS"), eq(String.class), eq("outbox_event_archive")))
+                .thenReturn(List.of("id", "status"));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> service(10, 100, "archive").archiveColumns("outbox_event"));
+        assertTrue(e.getMessage().contains("lease_owner"));
+    }
+
+    @Test
+    void transitionsAreOnlyPurgedForTerminalTasks() {
+        service(10, 100, "delete").purge();
+
+        verify(jdbcTemplate).queryForList(
+                startsWith("SELECT id FROM ingest_task_transition WHERE EXISTS (SELECT 1 FROM ingest_task t WHERE t.id = ingest_task_transition.task_id AND t.status IN ('SUCCEEDED', 'DEAD'))"),
+                eq(Object.class), any(), any());
+    }
+
+    @Test
+    void evictsOldEmbeddingCacheEntriesByCacheKey() {
+        when(jdbcTemplate.queryForList(anyString(), eq(Object.class), any(), any())).thenReturn(List.of());
+        when(jdbcTemplate.queryForList(startsWith("SELECT cache_key FROM embedding_cache"), eq(Object.class), any(), any()))
+                .thenReturn(List.of("k1", "k2"), List.of());
+        when(jdbcTemplate.update(startsWith("DELETE FROM embedding_cache"), any(Object[].class))).thenReturn(2);
+
+        service(10, 100, "archive").purge();
+
+        verify(jdbcTemplate).queryForList(eq("SELECT cache_key FROM embedding_cache WHERE 1 = 1 AND created_at < ? ORDER BY created_at LIMIT ?"), eq(Object.class), any(), any());
+        verify(jdbcTemplate).update("DELETE FROM embedding_cache WHERE cache_key IN (?,?)", "k1", "k2");
+        verify(jdbcTemplate, never()).update(startsWith("INSERT IGNORE INTO embedding_cache"), any(Object[].class));
+    }
+
+    @Test
+    void stopsAfterMaxBatchesPerRun() {
+        when(jdbcTemplate.queryForList(anyString(), eq(Object.class), any(), any())).thenReturn(List.of("x"));
+        when(jdbcTemplate.update(startsWith("DELETE"), any(Object[].class))).thenReturn(1);
+
+        service(1, 3, "delete").purge();
+
+        verify(jdbcTemplate, times(3)).update(startsWith("DELETE"), any(Object[].class));
+    }
+
+    @Test
+    void rejectsUnknownMode() {
+        assertThrows(IllegalArgumentException.class, () -> service(1, 1, "truncate"));
+    }
+
+    private RetentionService service(int batchSize, int maxBatches, String outboxMode) {
+        return new RetentionService(jdbcTemplate, mock(PlatformTransactionManager.class), meterRegistry,
+                true, batchSize, 0, maxBatches, 14, "delete", 30, "delete", 7, outboxMode, 30);
+    }
+}
@@ -0,0 +1,47 @@
+package com.syh.chat.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class UploadBlobSweeperTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final UploadBlobStore blobStore = mock(UploadBlobStore.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void releasesTerminalTasksOnceAndDeletesUnreferencedBlobs() {
+        when(jdbcTemplate.queryForList(startsWith("SELECT id, blob_hash FROM ingest_task"), eq("SUCCEEDED"), any(), any()))
+                .thenReturn(List.of(Map.of("id", "t1", "blob_hash", "h1"), Map.of("id", "t2", "blob_hash", "h1")));
+        when(jdbcTemplate.queryForList(startsWith("SELECT id, blob_hash FROM ingest_task"), eq("DEAD"), any(), any()))
+                .thenReturn(List.of());
+        when(jdbcTemplate.update(startsWith("UPDATE ingest_task SET blob_hash = NULL"), eq("t1"), eq("h1"))).thenReturn(1);
+        when(jdbcTemplate.update(startsWith("UPDATE ingest_task SET blob_hash = NULL"), eq("t2"), eq("h1"))).thenReturn(0);
+        when(blobStore.deleteUnreferenced(any(LocalDateTime.class), anyInt())).thenReturn(new UploadBlobStore.Sweep(3, 4096));
+        when(blobStore.usage()).thenReturn(new UploadBlobStore.Usage(7, 9000, 6000));
+
+        sweeper().sweep();
+
+        verify(blobStore, times(1)).release("h1");
+        assertEquals(1.0, meterRegistry.get("upload_blob_sweep_total").tag("action", "released").counter().count());
+        assertEquals(3.0, meterRegistry.get("upload_blob_sweep_total").tag("action", "deleted").counter().count());
+        assertEquals(4096.0, meterRegistry.get("upload_blob_sweep_bytes_total").counter().count());
+        assertEquals(7.0, meterRegistry.get("upload_blob_count").gauge().value());
+        assertEquals(6000.0, meterRegistry.get("upload_blob_bytes").tag("kind", "stored").gauge().value());
+    }
+
+    private UploadBlobSweeper sweeper() {
+        return new UploadBlobSweeper(blobStore, jdbcTemplate, mock(PlatformTransactionManager.class), meterRegistry,
+                true, 100, 60, 10080, 10);
+    }
+}
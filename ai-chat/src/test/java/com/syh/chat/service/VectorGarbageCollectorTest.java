@@ -0,0 +1,76 @@
+package com.syh.chat.service;
+
+import com.syh.chat.repository.KnowledgeDocumentRepository;
+import com.syh.chat.repository.KnowledgeSegmentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class VectorGarbageCollectorTest {
+
+    @Mock
+    private ChromaVectorStoreService chromaVectorStoreService;
+
+    @Mock
+    private KnowledgeDocumentRepository documentRepository;
+
+    @Mock
+    private KnowledgeSegmentRepository segmentRepository;
+
+    @Test
+    void orphansAreRemovedOnlyAfterTwoConsecutivePasses() {
+        VectorGarbageCollector gc = collector(100);
+        when(chromaVectorStoreService.listDocumentCollections(anyInt())).thenReturn(List.of(1L, 2L, 3L));
+        when(documentRepository.countInFlightVectorReferences(1L)).thenReturn(0L);
+        when(documentRepository.countInFlightVectorReferences(2L)).thenReturn(0L);
+        when(documentRepository.countInFlightVectorReferences(3L)).thenReturn(1L);
+        when(documentRepository.countVectorReferences(1L)).thenReturn(1L);
+        when(documentRepository.countVectorReferences(2L)).thenReturn(0L);
+        when(segmentRepository.findChromaIdsByVectorDocumentId(1L)).thenReturn(List.of("doc-1-seg-0", "doc-1-seg-1"));
+        when(chromaVectorStoreService.listIds(eq(1L), anyInt(), anyInt()))
+                .thenReturn(List.of("doc-1-seg-0", "doc-1-seg-1", "doc-1-seg-0-a1b2c3d4"));
+
+        gc.reconcile();
+        verify(chromaVectorStoreService, never()).deleteCollection(any());
+        verify(chromaVectorStoreService, never()).deleteIds(any(), anyList());
+
+        gc.reconcile();
+        verify(chromaVectorStoreService).deleteCollection(2L);
+        verify(chromaVectorStoreService, never()).deleteCollection(3L);
+        verify(chromaVectorStoreService).deleteIds(1L, List.of("doc-1-seg-0-a1b2c3d4"));
+    }
+
+    @Test
+    void pruneDeletesEverythingOutsideKeepSetInBatches() {
+        VectorGarbageCollector gc = collector(2);
+        when(chromaVectorStoreService.listIds(5L, 0, 2)).thenReturn(List.of("doc-5-seg-0", "doc-5-seg-1"));
+        when(chromaVectorStoreService.listIds(5L, 2, 2)).thenReturn(List.of("doc-5-seg-2", "doc-5-seg-3"));
+        when(chromaVectorStoreService.listIds(5L, 4, 2)).thenReturn(List.of("doc-5-seg-4"));
+
+        int pruned = gc.pruneDocument(5L, Set.of("doc-5-seg-0", "doc-5-seg-1"));
+
+        assertEquals(3, pruned);
+        verify(chromaVectorStoreService).deleteIds(5L, List.of("doc-5-seg-2", "doc-5-seg-3"));
+        verify(chromaVectorStoreService).deleteIds(5L, List.of("doc-5-seg-4"));
+    }
+
+    private VectorGarbageCollector collector(int batchSize) {
+        return new VectorGarbageCollector(chromaVectorStoreService, documentRepository, segmentRepository,
+                new SimpleMeterRegistry(), true, batchSize, 1000, 0);
+    }
+}
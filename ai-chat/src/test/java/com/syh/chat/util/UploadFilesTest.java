@@ -0,0 +1,70 @@
+package com.syh.chat.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UploadFilesTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void streamsToDiskAndHashesOnTheFly() throws Exception {
+        byte[] body = ("%PDF-1.4\n" + "x".repeat(200_000)).getBytes(StandardCharsets.US_ASCII);
+        Path target = tempDir.resolve("a.pdf");
+
+        UploadFiles.Persisted persisted = UploadFiles.persistPdf(new ByteArrayInputStream(body), target, 0);
+
+        assertEquals(body.length, persisted.bytes());
+        assertEquals(ContentHash.sha256Hex(new ByteArrayInputStream(body)), persisted.sha256());
+        assertEquals(body.length, Files.size(target));
+    }
+
+    @Test
+    void rejectsOversizedUploadBeforeReadingTheRest() {
+        Path target = tempDir.resolve("big.pdf");
+        InputStream endless = new InputStream() {
+            private long read;
+
+            @Override
+            public int read() {
+                return read++ < 5 ? "%PDF-".charAt((int) read - 1) : 'x';
+            }
+        };
+
+        assertThrows(IllegalArgumentException.class, () -> UploadFiles.persistPdf(endless, target, 1024 * 1024));
+        assertFalse(Files.exists(target));
+    }
+
+    @Test
+    void rejectsNonPdfContent() {
+        Path target = tempDir.resolve("b.pdf");
+        InputStream in = new ByteArrayInputStream("PK\u0003\u0004zip".getBytes(StandardCharsets.ISO_8859_1));
+
+        assertThrows(IllegalArgumentException.class, () -> UploadFiles.persistPdf(in, target, 0));
+        assertFalse(Files.exists(target));
+    }
+
+    @Test
+    void rejectsMagicSplitAcrossReads() {
+        Path target = tempDir.resolve("c.pdf");
+        InputStream in = new ByteArrayInputStream("%PDX-1.4".getBytes(StandardCharsets.US_ASCII)) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 2));
+            }
+        };
+
+        assertThrows(IllegalArgumentException.class, () -> UploadFiles.persistPdf(in, target, 0));
+    }
+}